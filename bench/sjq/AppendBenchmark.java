@@ -0,0 +1,51 @@
+package sjq;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 在已建好的图上追加一篇短文档（GraphBuilder(base) 分词后 build，即逐行归并）的耗时与分配，
+ * 按原图规模和文档长度；与 {@link GraphBuildBenchmark} 的完整构图对照。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AppendBenchmark {
+  @Param({"1000000", "10000000"})
+  int tokens;
+
+  @Param({"1000"})
+  int documentWords;
+
+  private CsrGraph base;
+  private String document;
+
+  @Setup
+  public void setUp() {
+    base = new TextGraphAnalyzer(ZipfCorpus.file(tokens, 42L).toString(), IngestMode.PARALLEL)
+        .freeze().graph();
+    base.lexRank(); // 追加时沿用已算出的名次
+    document = new ZipfCorpus(tokens).text(documentWords, 7L);
+  }
+
+  // 生成的基准代码位于其他包中，返回类型声明为 Object
+  @Benchmark
+  public Object append() {
+    GraphBuilder update = new GraphBuilder(base);
+    update.accept(document);
+    return update.build();
+  }
+}
@@ -0,0 +1,35 @@
+package sjq;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 基准测试入口：接受 JMH 的全部命令行参数，默认加上 gc 分析器（分配速率），
+ * 结果以 JSON 写入 jmh-result.json（可用 -rff 指定其他文件）。
+ *
+ * <p>例：java -jar target/benchmarks.jar QueryBenchmark -p tokens=100000
+ */
+public class BenchmarkRunner {
+  public static void main(String[] args) throws RunnerException {
+    CommandLineOptions commandLine;
+    try {
+      commandLine = new CommandLineOptions(args);
+    } catch (CommandLineOptionException e) {
+      System.err.println("Error parsing command line: " + e.getMessage());
+      return;
+    }
+    Options options = new OptionsBuilder()
+        .parent(commandLine)
+        .addProfiler(GCProfiler.class)
+        .resultFormat(commandLine.getResultFormat().orElse(ResultFormatType.JSON))
+        .result(commandLine.getResult().orElse("jmh-result.json"))
+        .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,44 @@
+package sjq;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** 从文本文件构图（buildGraphFromFile）的耗时与分配，按语料规模和读取方式。 */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GraphBuildBenchmark {
+  @Param({"10000", "100000", "1000000", "10000000"})
+  int tokens;
+
+  @Param({"sequential", "parallel", "mapped"})
+  String mode;
+
+  private String path;
+  private IngestMode ingestMode;
+
+  @Setup
+  public void setUp() {
+    path = ZipfCorpus.file(tokens, 42L).toString();
+    ingestMode = IngestMode.parse(mode);
+  }
+
+  // 生成的基准代码位于其他包中，返回类型声明为 Object
+  @Benchmark
+  public Object buildGraphFromFile() {
+    return new TextGraphAnalyzer(path, ingestMode);
+  }
+}
@@ -0,0 +1,160 @@
+package sjq;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HTTP 查询服务的压测：在本机启动 {@link GraphHttpServer}，由 clients 个并发客户端经回环地址
+ * 共发送 requests 个请求（之前另有十分之一的预热请求不计入），按端点报告 p50、p99 和最大延迟。
+ * 请求按固定比例混合：bridge 45%、path 45%、walk 5%、generate 4%、paths 1%。
+ * 单词对的抽法与 {@link QueryBenchmark} 相同，其中四分之一取自少数热门单词对，
+ * 使相同的查询同时在途，可观察合并的效果。
+ *
+ * <p>例：java -cp target/benchmarks.jar sjq.HttpLoadHarness 1000000 64 200000
+ */
+public class HttpLoadHarness {
+  private static final int PAIRS = 4096;
+  private static final int HOT_PAIRS = 16;
+  private static final String[] ENDPOINTS = {"bridge", "path", "walk", "generate", "paths"};
+  private static final int[] PERCENT = {45, 45, 5, 4, 1};
+
+  public static void main(String[] args) throws Exception {
+    int tokens = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+    int clients = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+    int requests = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+
+    FrozenTextGraph frozen =
+        new TextGraphAnalyzer(ZipfCorpus.file(tokens, 42L).toString(), IngestMode.PARALLEL)
+            .freeze();
+    GraphHttpServer server = GraphHttpServer.start(frozen,
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    ExecutorService pool = Executors.newFixedThreadPool(clients);
+    try {
+      HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+      URI[][] uris = uris(frozen.graph(), server.port(), new ZipfCorpus(tokens));
+      run(client, uris, pool, clients, requests / 10, null, null);
+      LatencyHistogram[] latencies = new LatencyHistogram[ENDPOINTS.length + 1];
+      for (int i = 0; i < latencies.length; i++) {
+        latencies[i] = new LatencyHistogram();
+      }
+      LongAdder failures = new LongAdder();
+      long startTime = System.nanoTime();
+      run(client, uris, pool, clients, requests, latencies, failures);
+      long elapsed = System.nanoTime() - startTime;
+
+      System.out.printf(Locale.ROOT, "%d vertices, %d edges, %d clients%n",
+          frozen.graph().vertexCount(), frozen.graph().edgeCount(), clients);
+      System.out.printf(Locale.ROOT, "%-10s %10s %10s %10s %10s%n", "endpoint", "requests",
+          "p50 (us)", "p99 (us)", "max (us)");
+      for (int i = 0; i < latencies.length; i++) {
+        LatencyHistogram histogram = latencies[i];
+        System.out.printf(Locale.ROOT, "%-10s %10d %10d %10d %10d%n",
+            i < ENDPOINTS.length ? ENDPOINTS[i] : "all", histogram.count(),
+            histogram.valueAtPercentile(50) / 1000, histogram.valueAtPercentile(99) / 1000,
+            histogram.max() / 1000);
+      }
+      System.out.printf(Locale.ROOT, "%.0f requests/s, %d failed, %d coalesced%n",
+          requests * 1e9 / elapsed, failures.sum(), server.coalescedCount());
+    } finally {
+      pool.shutdown();
+      server.stop(0);
+    }
+  }
+
+  // 每个端点预先生成 PAIRS 个请求地址，压测时随机选用
+  private static URI[][] uris(CsrGraph graph, int port, ZipfCorpus corpus) {
+    SplittableRandom random = new SplittableRandom(7);
+    String base = "http://localhost:" + port + "/";
+    URI[][] uris = new URI[ENDPOINTS.length][PAIRS];
+    for (int i = 0; i < PAIRS; i++) {
+      int u = random.nextInt(graph.vertexCount());
+      int v = random.nextInt(graph.vertexCount());
+      if (i % 2 == 0 && graph.outDegree(u) > 0) {
+        int b = graph.target(graph.begin(u) + random.nextInt(graph.outDegree(u)));
+        if (graph.outDegree(b) > 0) {
+          v = graph.target(graph.begin(b) + random.nextInt(graph.outDegree(b)));
+        }
+      }
+      String pair = "?from=" + encode(graph.word(u)) + "&to=" + encode(graph.word(v));
+      uris[0][i] = URI.create(base + "bridge" + pair);
+      uris[1][i] = URI.create(base + "path" + pair);
+      uris[2][i] = URI.create(base + "walk?steps=" + (1 + random.nextInt(50)));
+      uris[3][i] = URI.create(base + "generate?text=" + encode(corpus.text(20, i)));
+      uris[4][i] = URI.create(base + "paths?from=" + encode(graph.word(u)));
+    }
+    return uris;
+  }
+
+  private static String encode(String value) {
+    return URLEncoder.encode(value, StandardCharsets.UTF_8);
+  }
+
+  // latencies 为 null 时只预热，不记录
+  private static void run(HttpClient client, URI[][] uris, ExecutorService pool, int clients,
+      int requests, LatencyHistogram[] latencies, LongAdder failures)
+      throws InterruptedException, ExecutionException {
+    AtomicLong remaining = new AtomicLong(requests);
+    List<Callable<Void>> tasks = new ArrayList<>(clients);
+    for (int c = 0; c < clients; c++) {
+      SplittableRandom random = new SplittableRandom(c);
+      tasks.add(() -> {
+        while (remaining.getAndDecrement() > 0) {
+          int endpoint = pick(random.nextInt(100));
+          int index = random.nextInt(4) == 0 ? random.nextInt(HOT_PAIRS) : random.nextInt(PAIRS);
+          HttpRequest request = HttpRequest.newBuilder(uris[endpoint][index])
+              .timeout(Duration.ofSeconds(30)).build();
+          long startTime = System.nanoTime();
+          int status;
+          try {
+            status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+          } catch (IOException e) {
+            status = -1;
+          }
+          long elapsed = System.nanoTime() - startTime;
+          if (latencies != null) {
+            latencies[endpoint].record(elapsed);
+            latencies[ENDPOINTS.length].record(elapsed);
+            if (status != 200) {
+              failures.increment();
+            }
+          }
+        }
+        return null;
+      });
+    }
+    for (Future<Void> future : pool.invokeAll(tasks)) {
+      future.get();
+    }
+  }
+
+  // 累计比例首次超过 percentile（0~99）的端点
+  private static int pick(int percentile) {
+    int bound = 0;
+    for (int endpoint = 0; endpoint < PERCENT.length; endpoint++) {
+      bound += PERCENT[endpoint];
+      if (percentile < bound) {
+        return endpoint;
+      }
+    }
+    return PERCENT.length - 1;
+  }
+}
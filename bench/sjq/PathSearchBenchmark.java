@@ -0,0 +1,62 @@
+package sjq;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** 两点间最短路径的三种搜索方式对比，单词对随机抽取。 */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PathSearchBenchmark {
+  private static final int PAIRS = 1024; // 2 的幂
+
+  @Param({"100000", "1000000", "10000000"})
+  int tokens;
+
+  @Param({"DIJKSTRA", "BIDIRECTIONAL", "ALT"})
+  String mode;
+
+  private FrozenTextGraph frozen;
+  private PathSearchMode searchMode;
+  private String[] from;
+  private String[] to;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    String path = ZipfCorpus.file(tokens, 42L).toString();
+    frozen = new TextGraphAnalyzer(path, IngestMode.PARALLEL).freeze();
+    searchMode = PathSearchMode.valueOf(mode);
+    if (searchMode == PathSearchMode.ALT) {
+      frozen.prepareLandmarks(); // 地标的预计算不计入查询耗时
+    }
+    CsrGraph graph = frozen.graph();
+    SplittableRandom random = new SplittableRandom(7);
+    from = new String[PAIRS];
+    to = new String[PAIRS];
+    for (int i = 0; i < PAIRS; i++) {
+      from[i] = graph.word(random.nextInt(graph.vertexCount()));
+      to[i] = graph.word(random.nextInt(graph.vertexCount()));
+    }
+  }
+
+  @Benchmark
+  public Object shortestPath() {
+    int i = next++ & (PAIRS - 1);
+    return frozen.shortestPath(from[i], to[i], searchMode);
+  }
+}
@@ -0,0 +1,100 @@
+package sjq;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 建好图之后的各项查询：吞吐量与延迟分布（SampleTime 给出分位数）。
+ * 查询的单词对预先随机抽好并循环使用，其中一半取自两跳可达的单词对，保证有桥接词可查。
+ * 通过只读快照调用，避免控制台输出计入耗时。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class QueryBenchmark {
+  private static final int PAIRS = 1024; // 2 的幂
+
+  @Param({"10000", "100000", "1000000", "10000000"})
+  int tokens;
+
+  private FrozenTextGraph frozen;
+  private String[] from;
+  private String[] to;
+  private String text;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    String path = ZipfCorpus.file(tokens, 42L).toString();
+    frozen = new TextGraphAnalyzer(path, IngestMode.PARALLEL).freeze();
+    CsrGraph graph = frozen.graph();
+    SplittableRandom random = new SplittableRandom(7);
+    from = new String[PAIRS];
+    to = new String[PAIRS];
+    for (int i = 0; i < PAIRS; i++) {
+      int u = random.nextInt(graph.vertexCount());
+      int v = random.nextInt(graph.vertexCount());
+      if (i % 2 == 0 && graph.outDegree(u) > 0) {
+        int b = graph.target(graph.begin(u) + random.nextInt(graph.outDegree(u)));
+        if (graph.outDegree(b) > 0) {
+          v = graph.target(graph.begin(b) + random.nextInt(graph.outDegree(b)));
+        }
+      }
+      from[i] = graph.word(u);
+      to[i] = graph.word(v);
+    }
+    text = new ZipfCorpus(tokens).text(1000, 11L);
+  }
+
+  private int nextPair() {
+    return next++ & (PAIRS - 1);
+  }
+
+  @Benchmark
+  public String queryBridgeWords() {
+    int i = nextPair();
+    return frozen.queryBridgeWords(from[i], to[i]);
+  }
+
+  /** 改写 1000 个单词的文本。 */
+  @Benchmark
+  public String generateNewText() {
+    return frozen.generateNewText(text);
+  }
+
+  @Benchmark
+  public String calcShortestPath() {
+    int i = nextPair();
+    return frozen.calcShortestPath(from[i], to[i]);
+  }
+
+  /** 单源最短路径树，并按控制台格式写出全部路径（写入丢弃输出的 Writer）。 */
+  @Benchmark
+  public Object calcShortestMulPaths() throws IOException {
+    ShortestPaths paths = frozen.shortestPathsFrom(from[nextPair()]);
+    paths.writeTo(Writer.nullWriter());
+    return paths;
+  }
+
+  /** 非交互式随机游走，至多 100 步。 */
+  @Benchmark
+  public String randomWalk() {
+    return frozen.randomWalk(100);
+  }
+}
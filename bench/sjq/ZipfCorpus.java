@@ -0,0 +1,95 @@
+package sjq;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * 基准测试用的合成语料：单词频率服从 Zipf 分布（指数 1.0），
+ * 词表大小按 Heaps 定律随语料规模增长（约 30 × √tokens）。
+ * 相同的规模和种子总是生成相同的文件，生成后缓存在临时目录中供后续运行复用。
+ */
+final class ZipfCorpus {
+  private static final double EXPONENT = 1.0;
+  private static final int WORDS_PER_LINE = 12;
+
+  private final String[] vocabulary;
+  private final double[] cumulative; // 第 i 个单词及更常见单词的累计概率
+
+  ZipfCorpus(int tokens) {
+    int size = (int) Math.max(100, Math.min(1_000_000, 30 * Math.sqrt(tokens)));
+    vocabulary = new String[size];
+    cumulative = new double[size];
+    double total = 0;
+    for (int i = 0; i < size; i++) {
+      vocabulary[i] = wordOf(i);
+      total += 1 / Math.pow(i + 1, EXPONENT);
+      cumulative[i] = total;
+    }
+    for (int i = 0; i < size; i++) {
+      cumulative[i] /= total;
+    }
+  }
+
+  /** 第 i 常见的单词：i + 1 的双射 26 进制表示，常见单词最短。 */
+  private static String wordOf(int i) {
+    StringBuilder word = new StringBuilder();
+    for (int n = i + 1; n > 0; n = (n - 1) / 26) {
+      word.append((char) ('a' + (n - 1) % 26));
+    }
+    return word.reverse().toString();
+  }
+
+  /** 按 Zipf 分布抽取一个单词。 */
+  String sample(SplittableRandom random) {
+    int index = Arrays.binarySearch(cumulative, random.nextDouble());
+    return vocabulary[Math.min(vocabulary.length - 1, index < 0 ? -index - 1 : index)];
+  }
+
+  /** 由 count 个抽样单词组成的一段文本，单词间以空格分隔。 */
+  String text(int count, long seed) {
+    SplittableRandom random = new SplittableRandom(seed);
+    StringBuilder text = new StringBuilder(count * 6);
+    for (int i = 0; i < count; i++) {
+      if (i > 0) {
+        text.append(' ');
+      }
+      text.append(sample(random));
+    }
+    return text.toString();
+  }
+
+  /** 含 tokens 个单词的语料文件，已缓存时直接返回。 */
+  static Path file(int tokens, long seed) {
+    Path path = Paths.get(System.getProperty("java.io.tmpdir"),
+        "sjq-zipf-" + tokens + "-" + seed + ".txt");
+    if (Files.isRegularFile(path)) {
+      return path;
+    }
+    ZipfCorpus corpus = new ZipfCorpus(tokens);
+    SplittableRandom random = new SplittableRandom(seed);
+    Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+    try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+      for (int i = 0; i < tokens; i++) {
+        writer.write(corpus.sample(random));
+        writer.write(i % WORDS_PER_LINE == WORDS_PER_LINE - 1 ? '\n' : ' ');
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    try {
+      Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return path;
+  }
+}
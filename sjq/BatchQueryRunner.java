@@ -0,0 +1,180 @@
+package sjq;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * 批量查询：逐行读入查询，分块交给线程池在同一个只读快照上执行，结果按输入顺序写出。
+ * 每行一个查询，单词之间以空白分隔：
+ * <pre>
+ *   bridge a b               桥接词
+ *   path a b [界限]          a 到 b 的最短路径，界限如 weight=10 hops=4 nodes=100000 ms=50
+ *   kpaths a b k [界限]      a 到 b 的至多 k 条最短无环路径，每条一行
+ *   paths a                  a 到其余每个单词的最短路径，每个单词一行
+ *   gen 文本                  根据桥接词生成新文本
+ *   walk [n]                 随机游走，至多 n 步，省略或 0 表示不限
+ *   nbridge a b              n 元模型上的桥接词
+ *   nwalk [n]                n 元模型上的随机游走，步数同 walk
+ * </pre>
+ * 未启用 n 元模型时，nbridge 和 nwalk 输出 "N-gram model is not enabled"。
+ * 空行和以 # 开头的行忽略。输出的说明文字与交互模式相同；无法识别的行输出 "Unknown query: ..."。
+ * 同时在途的块数有上限，读入、执行和写出流水进行，内存占用与输入长度无关。
+ */
+final class BatchQueryRunner {
+  static final int CHUNK_SIZE = 256; // 每个任务执行的查询数
+
+  private final FrozenTextGraph graph;
+  private final ExecutorService pool;
+  private final int maxPending; // 同时在途的块数
+
+  BatchQueryRunner(FrozenTextGraph graph, ExecutorService pool, int parallelism) {
+    this.graph = graph;
+    this.pool = pool;
+    this.maxPending = Math.max(2, parallelism * 2);
+  }
+
+  /**
+   * 执行 in 中的全部查询，结果依次写入 out（调用方负责缓冲和关闭），返回执行的查询数。
+   * 单个查询抛出的异常以 IllegalStateException 抛出。
+   */
+  long run(BufferedReader in, Writer out) throws IOException, InterruptedException {
+    Deque<Future<String[]>> pending = new ArrayDeque<>();
+    String[] chunk = new String[CHUNK_SIZE];
+    int size = 0;
+    long count = 0;
+    String line;
+    while ((line = in.readLine()) != null) {
+      String query = line.trim();
+      if (query.isEmpty() || query.startsWith("#")) {
+        continue;
+      }
+      chunk[size++] = query;
+      count++;
+      if (size == CHUNK_SIZE) {
+        submit(pending, chunk, size);
+        chunk = new String[CHUNK_SIZE];
+        size = 0;
+        while (pending.size() >= maxPending) {
+          write(pending.poll(), out);
+        }
+      }
+    }
+    if (size > 0) {
+      submit(pending, chunk, size);
+    }
+    while (!pending.isEmpty()) {
+      write(pending.poll(), out);
+    }
+    out.flush();
+    return count;
+  }
+
+  private void submit(Deque<Future<String[]>> pending, String[] chunk, int size) {
+    String[] queries = size == chunk.length ? chunk : Arrays.copyOf(chunk, size);
+    pending.add(pool.submit(() -> {
+      String[] results = new String[queries.length];
+      StringBuilder buffer = new StringBuilder();
+      for (int i = 0; i < queries.length; i++) {
+        buffer.setLength(0);
+        results[i] = execute(queries[i], buffer).toString();
+      }
+      return results;
+    }));
+  }
+
+  private static void write(Future<String[]> chunk, Writer out)
+      throws IOException, InterruptedException {
+    try {
+      for (String result : chunk.get()) {
+        out.write(result);
+      }
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /** 执行一行查询，把结果（以换行结尾，可能多行）追加到 out。 */
+  StringBuilder execute(String query, StringBuilder out) throws IOException {
+    String[] parts = query.split("\\s+", 2);
+    String command = parts[0].toLowerCase(Locale.ROOT);
+    String[] words = parts.length > 1 ? parts[1].split("\\s+") : new String[0];
+    String newLine = System.lineSeparator();
+    switch (command) {
+      case "bridge":
+        if (words.length != 2) {
+          break;
+        }
+        return out.append(graph.describeBridgeWords(words[0], words[1])).append(newLine);
+      case "path":
+      case "kpaths":
+        int boundsFrom = command.equals("path") ? 2 : 3;
+        if (words.length < boundsFrom) {
+          break;
+        }
+        String path;
+        try {
+          int k = command.equals("path") ? 1 : Integer.parseInt(words[2]);
+          path = words.length == 2 ? graph.calcShortestPath(words[0], words[1])
+              : graph.describeBoundedPaths(words[0], words[1], k, PathBounds.parse(
+                  String.join(" ", Arrays.copyOfRange(words, boundsFrom, words.length))));
+        } catch (IllegalArgumentException e) {
+          break;
+        }
+        return out.append(path == null ? "Either word1 or word2 is not in the graph!" : path)
+            .append(newLine);
+      case "paths":
+        if (words.length != 1) {
+          break;
+        }
+        ShortestPaths paths = graph.shortestPathsFrom(words[0]);
+        if (paths == null) {
+          return out.append("The word is not in the graph!").append(newLine);
+        }
+        paths.writeTo(out);
+        return out;
+      case "gen":
+        return out.append(graph.generateNewText(parts.length > 1 ? parts[1] : ""))
+            .append(newLine);
+      case "walk":
+        if (words.length > 1) {
+          break;
+        }
+        try {
+          int maxSteps = words.length == 0 ? 0 : Integer.parseInt(words[0]);
+          return out.append(graph.randomWalk(maxSteps)).append(newLine);
+        } catch (NumberFormatException e) {
+          break;
+        }
+      case "nbridge":
+        if (words.length != 2) {
+          break;
+        }
+        String bridges = graph.describeNgramBridgeWords(words[0], words[1]);
+        return out.append(bridges == null ? FrozenTextGraph.NGRAM_DISABLED : bridges)
+            .append(newLine);
+      case "nwalk":
+        if (words.length > 1) {
+          break;
+        }
+        try {
+          int maxSteps = words.length == 0 ? 0 : Integer.parseInt(words[0]);
+          String walk = graph.ngramRandomWalk(maxSteps);
+          return out.append(walk == null ? FrozenTextGraph.NGRAM_DISABLED : walk)
+              .append(newLine);
+        } catch (NumberFormatException e) {
+          break;
+        }
+      default:
+        break;
+    }
+    return out.append("Unknown query: ").append(query).append(newLine);
+  }
+}
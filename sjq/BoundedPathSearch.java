@@ -0,0 +1,345 @@
+package sjq;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * 有界的两点间最短路径，以及同样有界的 k 条最短无环路径（Yen 算法）。
+ * 界限见 {@link PathBounds}：超过总权重或边数的路径视为不存在，堆顶距离超过总权重即可断定
+ * “界内无路径”并提前结束；出队顶点数或耗时用完时也提前结束，此时答案未知。
+ *
+ * <p>不限边数时第一条路径由 {@link ShortestPathEngine} 求出，与 calcShortestPath 的结果相同。
+ * 限制边数时按（顶点, 边数）标签搜索：标签按距离出队，同一顶点上距离和边数都不占优的标签丢弃，
+ * 因此得到的是边数不超过上限的路径中最短的一条。Yen 算法的每条偏离路径也用标签搜索求出，
+ * 根路径上的顶点和已选路径在偏离点的下一条边被排除。实例不是线程安全的。
+ */
+final class BoundedPathSearch {
+  private static final int CLOCK_MASK = 255; // 每出队 256 个顶点读一次时钟
+
+  /** 查询的结论。 */
+  enum Status {
+    FOUND, // 找到路径（k 条时找到了全部，或已没有更多路径）
+    NO_PATH, // 不可达，与界限无关
+    BEYOND_BOUND, // 界内没有路径，界外可能有
+    BUDGET_EXHAUSTED // 预算用完，之前找到的路径仍然有效
+  }
+
+  private final CsrGraph graph;
+  private final ShortestPathEngine engine;
+  private final int[] minHops; // 本次搜索中 v 已出队的标签的最少边数
+  private final int[] settledStamp; // settledStamp[v] == generation 时 minHops[v] 有效
+  private final int[] blockedStamp; // blockedStamp[v] == blockGeneration 时 v 不可经过
+  private int generation;
+  private int blockGeneration;
+  // 标签即一条部分路径：终点、距离、边数和上一个标签
+  private int[] labelVertex = new int[64];
+  private int[] labelDist = new int[64];
+  private int[] labelHops = new int[64];
+  private int[] labelPrev = new int[64];
+  private int labelCount;
+  private long[] heap = new long[64]; // 距离在高 32 位、标签在低 32 位
+  private int heapSize;
+  // 当前查询的状态
+  private PathBounds bounds;
+  private long startTime;
+  private long settledCount;
+  private Status status;
+  private int distance;
+
+  BoundedPathSearch(CsrGraph graph) {
+    int n = graph.vertexCount();
+    this.graph = graph;
+    this.engine = new ShortestPathEngine(graph);
+    this.minHops = new int[n];
+    this.settledStamp = new int[n];
+    this.blockedStamp = new int[n];
+  }
+
+  /** source 到 target 的至多 k 条最短无环路径，按总权重升序，总权重相同时边数少的在前。 */
+  Result search(int source, int target, int k, PathBounds bounds) {
+    this.bounds = bounds;
+    this.startTime = System.nanoTime();
+    this.settledCount = 0;
+    List<int[]> paths = new ArrayList<>();
+    List<Integer> distances = new ArrayList<>();
+    clearBlocked();
+    int[] first = bounds.maxHops() == PathBounds.UNBOUNDED
+        ? dijkstra(source, target)
+        : labelSearch(source, target, bounds.maxWeight(), bounds.maxHops(), new int[0]);
+    if (first == null) {
+      return new Result(status, paths, distances, settledCount);
+    }
+    paths.add(first);
+    distances.add(distance);
+
+    PriorityQueue<Candidate> candidates = new PriorityQueue<>(Candidate.ORDER);
+    Set<String> seen = new HashSet<>();
+    seen.add(Arrays.toString(first));
+    while (paths.size() < k) {
+      int[] last = paths.get(paths.size() - 1);
+      int rootWeight = 0;
+      for (int i = 0; i + 1 < last.length; i++) {
+        if (i > 0) {
+          rootWeight += graph.weight(graph.edgeIndex(last[i - 1], last[i]));
+        }
+        if (rootWeight >= bounds.maxWeight() || i >= bounds.maxHops()) {
+          break; // 根路径已用完界限
+        }
+        // 根路径 last[0..i] 上除偏离点外的顶点不可再经过
+        clearBlocked();
+        for (int j = 0; j < i; j++) {
+          blockedStamp[last[j]] = blockGeneration;
+        }
+        // 与根路径相同的已选路径，其在偏离点之后的下一个顶点不可再走
+        int[] excluded = new int[paths.size()];
+        int excludedCount = 0;
+        for (int[] path : paths) {
+          if (path.length > i + 1 && Arrays.equals(path, 0, i + 1, last, 0, i + 1)) {
+            excluded[excludedCount++] = path[i + 1];
+          }
+        }
+        int remainingHops = bounds.maxHops() == PathBounds.UNBOUNDED
+            ? PathBounds.UNBOUNDED : bounds.maxHops() - i;
+        int[] spur = labelSearch(last[i], target, bounds.maxWeight() - rootWeight,
+            remainingHops, Arrays.copyOf(excluded, excludedCount));
+        if (status == Status.BUDGET_EXHAUSTED) {
+          return new Result(status, paths, distances, settledCount);
+        }
+        if (spur != null) {
+          int[] candidate = Arrays.copyOf(last, i + spur.length);
+          System.arraycopy(spur, 0, candidate, i, spur.length);
+          if (seen.add(Arrays.toString(candidate))) {
+            candidates.add(new Candidate(candidate, rootWeight + distance));
+          }
+        }
+      }
+      Candidate next = candidates.poll();
+      if (next == null) {
+        break; // 界内已没有更多路径
+      }
+      paths.add(next.path);
+      distances.add(next.weight);
+    }
+    return new Result(Status.FOUND, paths, distances, settledCount);
+  }
+
+  private void clearBlocked() {
+    if (++blockGeneration == 0) { // 代数回绕时清空标记
+      Arrays.fill(blockedStamp, 0);
+      blockGeneration = 1;
+    }
+  }
+
+  // 不限边数：逐步推进普通 Dijkstra，堆顶距离超过总权重时即可断定界内无路径
+  private int[] dijkstra(int source, int target) {
+    engine.start(target, null, null);
+    engine.seed(source, 0);
+    while (!engine.isEmpty()) {
+      if (engine.peekDistance() > bounds.maxWeight()) {
+        status = Status.BEYOND_BOUND;
+        return null;
+      }
+      if (budgetExhausted()) {
+        return null;
+      }
+      settledCount++;
+      if (engine.settleNext() == target) {
+        status = Status.FOUND;
+        distance = engine.distance(target);
+        return engine.path(target);
+      }
+    }
+    status = Status.NO_PATH;
+    return null;
+  }
+
+  /**
+   * 边数不超过 maxHops、总权重不超过 maxWeight 的最短路径；封锁的顶点不经过，
+   * 从 source 出发的第一步不走到 excluded 中的顶点。
+   */
+  private int[] labelSearch(int source, int target, int maxWeight, int maxHops,
+      int[] excluded) {
+    if (++generation == 0) {
+      Arrays.fill(settledStamp, 0);
+      generation = 1;
+    }
+    boolean hopBounded = maxHops != PathBounds.UNBOUNDED;
+    boolean pruned = false;
+    labelCount = 0;
+    heapSize = 0;
+    push(source, 0, 0, -1);
+    while (heapSize > 0) {
+      int label = poll();
+      int v = labelVertex[label];
+      int hops = labelHops[label];
+      if (dominated(v, hops, hopBounded)) {
+        continue;
+      }
+      if (budgetExhausted()) {
+        return null;
+      }
+      settledCount++;
+      settledStamp[v] = generation;
+      minHops[v] = hops;
+      if (v == target) {
+        status = Status.FOUND;
+        distance = labelDist[label];
+        return trace(label);
+      }
+      if (hops == maxHops) {
+        pruned |= graph.outDegree(v) > 0;
+        continue;
+      }
+      for (int e = graph.begin(v); e < graph.end(v); e++) {
+        int w = graph.target(e);
+        if (blockedStamp[w] == blockGeneration || (v == source && contains(excluded, w))) {
+          continue;
+        }
+        long newDist = (long) labelDist[label] + graph.weight(e);
+        if (newDist > maxWeight) {
+          pruned = true;
+        } else if (!dominated(w, hops + 1, hopBounded)) {
+          push(w, (int) newDist, hops + 1, label);
+        }
+      }
+    }
+    status = pruned ? Status.BEYOND_BOUND : Status.NO_PATH;
+    return null;
+  }
+
+  // v 上已有出队的标签，且（限制边数时）其边数不多于 hops
+  private boolean dominated(int v, int hops, boolean hopBounded) {
+    return settledStamp[v] == generation && (!hopBounded || minHops[v] <= hops);
+  }
+
+  private static boolean contains(int[] array, int value) {
+    for (int element : array) {
+      if (element == value) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean budgetExhausted() {
+    boolean exhausted = settledCount >= bounds.maxSettled()
+        || (bounds.timeoutNanos() != Long.MAX_VALUE && (settledCount & CLOCK_MASK) == 0
+            && System.nanoTime() - startTime > bounds.timeoutNanos());
+    if (exhausted) {
+      status = Status.BUDGET_EXHAUSTED;
+    }
+    return exhausted;
+  }
+
+  private int[] trace(int label) {
+    int length = labelHops[label] + 1;
+    int[] path = new int[length];
+    for (int l = label, i = length - 1; l >= 0; l = labelPrev[l], i--) {
+      path[i] = labelVertex[l];
+    }
+    return path;
+  }
+
+  private void push(int vertex, int dist, int hops, int prev) {
+    if (labelCount == labelVertex.length) {
+      int capacity = labelCount * 2;
+      labelVertex = Arrays.copyOf(labelVertex, capacity);
+      labelDist = Arrays.copyOf(labelDist, capacity);
+      labelHops = Arrays.copyOf(labelHops, capacity);
+      labelPrev = Arrays.copyOf(labelPrev, capacity);
+    }
+    int label = labelCount++;
+    labelVertex[label] = vertex;
+    labelDist[label] = dist;
+    labelHops[label] = hops;
+    labelPrev[label] = prev;
+    if (heapSize == heap.length) {
+      heap = Arrays.copyOf(heap, heapSize * 2);
+    }
+    long key = ((long) dist << 32) | label;
+    int i = heapSize++;
+    while (i > 0 && heap[(i - 1) >>> 1] > key) {
+      heap[i] = heap[(i - 1) >>> 1];
+      i = (i - 1) >>> 1;
+    }
+    heap[i] = key;
+  }
+
+  private int poll() {
+    int label = (int) heap[0];
+    long last = heap[--heapSize];
+    int i = 0;
+    while (2 * i + 1 < heapSize) {
+      int child = 2 * i + 1;
+      if (child + 1 < heapSize && heap[child + 1] < heap[child]) {
+        child++;
+      }
+      if (heap[child] >= last) {
+        break;
+      }
+      heap[i] = heap[child];
+      i = child;
+    }
+    heap[i] = last;
+    return label;
+  }
+
+  /** Yen 算法的候选路径。 */
+  private static final class Candidate {
+    // 总权重小者优先，其次边数少者，再按顶点 ID 序列比较，保证结果确定
+    static final Comparator<Candidate> ORDER = Comparator.<Candidate>comparingInt(c -> c.weight)
+        .thenComparingInt(c -> c.path.length)
+        .thenComparing((a, b) -> Arrays.compare(a.path, b.path));
+
+    final int[] path;
+    final int weight;
+
+    Candidate(int[] path, int weight) {
+      this.path = path;
+      this.weight = weight;
+    }
+  }
+
+  /** 一次查询的结果：结论与按总权重升序排列的路径（顶点序列）。 */
+  static final class Result {
+    private final Status status;
+    private final int[][] paths;
+    private final int[] distances;
+    private final long settledCount;
+
+    Result(Status status, List<int[]> paths, List<Integer> distances, long settledCount) {
+      this.status = status;
+      this.paths = paths.toArray(new int[0][]);
+      this.distances = distances.stream().mapToInt(Integer::intValue).toArray();
+      this.settledCount = settledCount;
+    }
+
+    Status status() {
+      return status;
+    }
+
+    /** 找到的路径数；预算用完时可能少于请求的条数。 */
+    int size() {
+      return paths.length;
+    }
+
+    int[] path(int i) {
+      return paths[i].clone();
+    }
+
+    /** 第 i 条路径的总权重。 */
+    int distance(int i) {
+      return distances[i];
+    }
+
+    /** 各次搜索中出队的顶点（标签）总数。 */
+    long settledCount() {
+      return settledCount;
+    }
+  }
+}
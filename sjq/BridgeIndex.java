@@ -0,0 +1,209 @@
+package sjq;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 桥接词索引：返回 from→b→to 中所有 b 的 ID 数组（按 ID 升序，调用方不得修改）。
+ * 文本中出现最多的单词（出边权重之和最大）作为起点时，到各单词的桥接词一次性预先算好；
+ * 其余单词对在首次查询时求交集，结果放入分段加锁的 LRU 缓存。可被多个线程同时查询。
+ */
+final class BridgeIndex {
+  static final long DEFAULT_PRECOMPUTED_ENTRIES = 1L << 20; // 预计算的桥接词总数上限
+  static final int DEFAULT_CACHE_CAPACITY = 1 << 16; // LRU 缓存的单词对数
+  private static final int[] NONE = new int[0];
+  private static final int SEGMENTS = 16;
+
+  private final CsrGraph graph;
+  private final int[] slotOf; // 顶点在预计算表中的下标，-1 表示未预计算
+  private final int[] hotSources;
+  private final int[][] hotTargets; // hotTargets[i]：第 i 个预计算起点能经一个单词到达的单词，升序
+  private final int[][][] hotBridges; // hotBridges[i][j]：到 hotTargets[i][j] 的桥接词
+  private final Segment[] segments = new Segment[SEGMENTS];
+
+  BridgeIndex(CsrGraph graph, long precomputedEntries, int cacheCapacity) {
+    this(graph, selectHotSources(graph, precomputedEntries), cacheCapacity);
+    int[] scratch = new int[graph.vertexCount()];
+    for (int i = 0; i < hotSources.length; i++) {
+      fillHot(i, scratch);
+    }
+  }
+
+  private BridgeIndex(CsrGraph graph, int[] hotSources, int cacheCapacity) {
+    this.graph = graph;
+    this.hotSources = hotSources;
+    this.slotOf = new int[graph.vertexCount()];
+    this.hotTargets = new int[hotSources.length][];
+    this.hotBridges = new int[hotSources.length][][];
+    Arrays.fill(slotOf, -1);
+    for (int i = 0; i < hotSources.length; i++) {
+      slotOf[hotSources[i]] = i;
+    }
+    for (int i = 0; i < SEGMENTS; i++) {
+      segments[i] = new Segment(Math.max(1, cacheCapacity / SEGMENTS));
+    }
+  }
+
+  // 按出边权重之和从大到小选取起点，直到两跳路径总数达到上限
+  private static int[] selectHotSources(CsrGraph graph, long budget) {
+    int n = graph.vertexCount();
+    long[] keyed = new long[n];
+    for (int v = 0; v < n; v++) {
+      long frequency = 0;
+      for (int e = graph.begin(v); e < graph.end(v); e++) {
+        frequency += graph.weight(e);
+      }
+      keyed[v] = (-frequency << 32) | v; // 频次取负，升序排序即按频次降序
+    }
+    Arrays.sort(keyed);
+    int count = 0;
+    long used = 0;
+    while (count < n) {
+      int v = (int) keyed[count];
+      long paths = twoHopCount(graph, v);
+      if (used + paths > budget) {
+        break;
+      }
+      used += paths;
+      count++;
+    }
+    int[] sources = new int[count];
+    for (int i = 0; i < count; i++) {
+      sources[i] = (int) keyed[i];
+    }
+    return sources;
+  }
+
+  private static long twoHopCount(CsrGraph graph, int v) {
+    long paths = 0;
+    for (int e = graph.begin(v); e < graph.end(v); e++) {
+      paths += graph.outDegree(graph.target(e));
+    }
+    return paths;
+  }
+
+  /**
+   * 追加文本后得到新图上的索引：起点本身或其任一后继的出边发生变化时，
+   * 以它为起点的预计算表和缓存项失效，其余原样保留。
+   */
+  BridgeIndex retain(CsrGraph updated, boolean[] changed) {
+    boolean[] affected = new boolean[updated.vertexCount()];
+    for (int v = 0; v < affected.length; v++) {
+      affected[v] = changed[v];
+      for (int e = updated.begin(v); e < updated.end(v) && !affected[v]; e++) {
+        affected[v] = changed[updated.target(e)];
+      }
+    }
+    BridgeIndex result = new BridgeIndex(updated, hotSources, segments[0].capacity * SEGMENTS);
+    int[] scratch = new int[updated.vertexCount()];
+    for (int i = 0; i < hotSources.length; i++) {
+      if (affected[hotSources[i]]) {
+        result.fillHot(i, scratch);
+      } else {
+        result.hotTargets[i] = hotTargets[i];
+        result.hotBridges[i] = hotBridges[i];
+      }
+    }
+    for (int s = 0; s < SEGMENTS; s++) {
+      synchronized (segments[s]) {
+        for (Map.Entry<Long, int[]> entry : segments[s].entrySet()) {
+          if (!affected[EdgeCounter.from(entry.getKey())]) {
+            result.segments[s].put(entry.getKey(), entry.getValue());
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /** from 到 to 的桥接词，按 ID 升序；没有时返回空数组。 */
+  int[] bridges(int from, int to) {
+    int slot = slotOf[from];
+    if (slot >= 0) {
+      int j = Arrays.binarySearch(hotTargets[slot], to);
+      return j < 0 ? NONE : hotBridges[slot][j];
+    }
+    long key = EdgeCounter.key(from, to);
+    Segment segment = segments[(int) (key * 0x9E3779B97F4A7C15L >>> 60)];
+    int[] result;
+    synchronized (segment) {
+      result = segment.get(key);
+    }
+    if (result == null) {
+      // 求交集不持锁；并发时可能重复计算，结果相同
+      result = graph.bridgeWords(from, to);
+      if (result.length == 0) {
+        result = NONE;
+      }
+      synchronized (segment) {
+        segment.put(key, result);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * 算出一个预计算起点到所有单词的桥接词：沿 from→b→c 扫描一遍两跳路径，
+   * 先按 c 计数，再按 b 的升序填入，每个 c 的桥接词自然有序。
+   * 只在构造期间调用；count 是全为 0 的临时数组，用完后恢复为全 0。
+   */
+  private void fillHot(int slot, int[] count) {
+    int from = hotSources[slot];
+    int[] reached = new int[16];
+    int reachedCount = 0;
+    for (int e = graph.begin(from); e < graph.end(from); e++) {
+      int b = graph.target(e);
+      for (int f = graph.begin(b); f < graph.end(b); f++) {
+        int c = graph.target(f);
+        if (count[c]++ == 0) {
+          if (reachedCount == reached.length) {
+            reached = Arrays.copyOf(reached, reachedCount * 2);
+          }
+          reached[reachedCount++] = c;
+        }
+      }
+    }
+    int[] targets = Arrays.copyOf(reached, reachedCount);
+    Arrays.sort(targets);
+    int[][] bridges = new int[reachedCount][];
+    int[] fill = new int[reachedCount];
+    for (int j = 0; j < reachedCount; j++) {
+      bridges[j] = new int[count[targets[j]]];
+      count[targets[j]] = j; // 改存 c 在 targets 中的下标
+    }
+    for (int e = graph.begin(from); e < graph.end(from); e++) {
+      int b = graph.target(e);
+      for (int f = graph.begin(b); f < graph.end(b); f++) {
+        int j = count[graph.target(f)];
+        bridges[j][fill[j]++] = b;
+      }
+    }
+    for (int c : targets) {
+      count[c] = 0;
+    }
+    hotTargets[slot] = targets;
+    hotBridges[slot] = bridges;
+  }
+
+  /** 预计算起点数。 */
+  int precomputedSourceCount() {
+    return hotSources.length;
+  }
+
+  // LRU 缓存的一段，以自身为锁
+  private static final class Segment extends LinkedHashMap<Long, int[]> {
+    private static final long serialVersionUID = 1L;
+    private final int capacity;
+
+    Segment(int capacity) {
+      super(16, 0.75f, true);
+      this.capacity = capacity;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Long, int[]> eldest) {
+      return size() > capacity;
+    }
+  }
+}
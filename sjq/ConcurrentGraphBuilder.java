@@ -0,0 +1,106 @@
+package sjq;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * 并发构图：多个线程同时送入各自的文档，每篇文档先在本线程内分词计数，
+ * 再把单词并入共享字典、把边的权重分条带并入共享计数器。
+ * 边按起点哈希到若干条带，每条带一把锁，一篇文档对每条带只加锁一次，
+ * 不同线程只有落在同一条带时才会相互等待。
+ * 文档之间相互独立，前一篇的末词不与后一篇的首词相连；单词编号取决于文档完成的先后。
+ */
+final class ConcurrentGraphBuilder {
+  private final WordDictionary dictionary = new WordDictionary(); // 以自身为锁
+  private final EdgeCounter[] stripes; // 各条带以自身为锁
+
+  ConcurrentGraphBuilder() {
+    int count = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 4);
+    stripes = new EdgeCounter[count];
+    for (int i = 0; i < count; i++) {
+      stripes[i] = new EdgeCounter();
+    }
+  }
+
+  /** 加入一篇文档，可被多个线程同时调用。 */
+  void add(CharSequence text) {
+    GraphBuilder local = new GraphBuilder();
+    local.accept(text);
+    merge(local);
+  }
+
+  /** 读完 reader 并作为一篇文档加入，可被多个线程同时调用。 */
+  void add(Reader reader) throws IOException {
+    GraphBuilder local = new GraphBuilder();
+    char[] buffer = new char[8192];
+    int n;
+    while ((n = reader.read(buffer)) != -1) {
+      local.accept(buffer, 0, n);
+    }
+    merge(local);
+  }
+
+  private void merge(GraphBuilder local) {
+    WordDictionary words = local.dictionary();
+    int[] remap = new int[words.size()];
+    synchronized (dictionary) {
+      for (int id = 0; id < remap.length; id++) {
+        remap[id] = dictionary.intern(words.word(id));
+      }
+    }
+
+    // 先按条带分组（计数排序），再逐条带加锁批量累加
+    EdgeCounter edges = local.edges();
+    int mask = stripes.length - 1;
+    int[] start = new int[stripes.length + 1];
+    edges.forEach((from, to, count) -> start[stripeOf(remap[from], mask) + 1]++);
+    for (int s = 0; s < stripes.length; s++) {
+      start[s + 1] += start[s];
+    }
+    int[] next = Arrays.copyOf(start, stripes.length);
+    long[] keys = new long[edges.size()];
+    int[] counts = new int[edges.size()];
+    edges.forEach((from, to, count) -> {
+      int slot = next[stripeOf(remap[from], mask)]++;
+      keys[slot] = EdgeCounter.key(remap[from], remap[to]);
+      counts[slot] = count;
+    });
+    for (int s = 0; s < stripes.length; s++) {
+      if (start[s] == start[s + 1]) {
+        continue;
+      }
+      EdgeCounter stripe = stripes[s];
+      synchronized (stripe) {
+        for (int i = start[s]; i < start[s + 1]; i++) {
+          stripe.add(EdgeCounter.from(keys[i]), EdgeCounter.to(keys[i]), counts[i]);
+        }
+      }
+    }
+  }
+
+  private static int stripeOf(int from, int mask) {
+    return (from * 0x9E3779B9 >>> 16) & mask;
+  }
+
+  /** 汇总各条带，冻结为 CSR 图；调用时不应再有线程在加入文档。 */
+  CsrGraph build() {
+    WordDictionary words;
+    synchronized (dictionary) {
+      words = dictionary.copy();
+    }
+    int total = 0;
+    for (EdgeCounter stripe : stripes) {
+      synchronized (stripe) {
+        total += stripe.size();
+      }
+    }
+    EdgeCounter all = new EdgeCounter(total);
+    for (EdgeCounter stripe : stripes) {
+      synchronized (stripe) {
+        stripe.forEach(all::add);
+      }
+    }
+    return CsrGraph.build(words, all, -1);
+  }
+}
@@ -0,0 +1,114 @@
+package sjq;
+
+import java.util.Arrays;
+
+/**
+ * 上下文表：把由 width 个单词 ID 组成的上下文映射为从 0 开始的连续整数 ID。
+ * 所有上下文依次平铺在一个 int[] 中，哈希表的槽位只保存上下文 ID，
+ * 每个上下文不创建任何对象，也不拼接字符串。
+ */
+final class ContextTable {
+  private static final int EMPTY = -1;
+
+  private final int width;
+  private int[] tuples; // 第 id 个上下文位于 [id * width, (id + 1) * width)
+  private int[] table; // 槽位中保存上下文 ID，EMPTY 表示空槽；装载率不超过 1/2
+  private int size;
+
+  ContextTable(int width, int expectedSize) {
+    this.width = width;
+    int capacity = Math.max(16, expectedSize);
+    tuples = new int[capacity * width];
+    table = new int[Integer.highestOneBit(capacity * 2 - 1) * 2];
+    Arrays.fill(table, EMPTY);
+  }
+
+  /** 每个上下文的单词数。 */
+  int width() {
+    return width;
+  }
+
+  /** 上下文数量。 */
+  int size() {
+    return size;
+  }
+
+  /** 第 id 个上下文的第 i 个单词。 */
+  int word(int id, int i) {
+    return tuples[id * width + i];
+  }
+
+  /** 返回 words[offset..offset + width) 组成的上下文的 ID，不存在时分配新 ID。 */
+  int intern(int[] words, int offset) {
+    int slot = findSlot(words, offset);
+    if (table[slot] != EMPTY) {
+      return table[slot];
+    }
+    if ((size + 1) * width > tuples.length) {
+      tuples = Arrays.copyOf(tuples, tuples.length * 2);
+    }
+    System.arraycopy(words, offset, tuples, size * width, width);
+    table[slot] = size;
+    if (++size * 2 > table.length) {
+      rehash(table.length * 2);
+    }
+    return size - 1;
+  }
+
+  /** 查询上下文的 ID，不存在时返回 -1；不产生任何对象。 */
+  int idOf(int[] words, int offset) {
+    return table[findSlot(words, offset)];
+  }
+
+  /** 释放多余的容量，之后仍可继续添加。 */
+  void trim() {
+    tuples = Arrays.copyOf(tuples, Math.max(width, size * width));
+  }
+
+  /** 估算占用的堆内存（字节）。 */
+  long estimatedBytes() {
+    return WordDictionary.align(16 + 4L * tuples.length)
+        + WordDictionary.align(16 + 4L * table.length);
+  }
+
+  private int findSlot(int[] words, int offset) {
+    int mask = table.length - 1;
+    int slot = hashOf(words, offset) & mask;
+    while (table[slot] != EMPTY && !matches(table[slot], words, offset)) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private boolean matches(int id, int[] words, int offset) {
+    int base = id * width;
+    for (int i = 0; i < width; i++) {
+      if (tuples[base + i] != words[offset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int hashOf(int[] words, int offset) {
+    long h = 0;
+    for (int i = 0; i < width; i++) {
+      h = (h + words[offset + i]) * 0x9E3779B97F4A7C15L;
+    }
+    return (int) (h ^ (h >>> 32));
+  }
+
+  // 扩容时哈希值由上下文本身重新计算，不额外缓存
+  private void rehash(int newLength) {
+    table = new int[newLength];
+    Arrays.fill(table, EMPTY);
+    int mask = newLength - 1;
+    for (int id = 0; id < size; id++) {
+      int slot = hashOf(tuples, id * width) & mask;
+      while (table[slot] != EMPTY) {
+        slot = (slot + 1) & mask;
+      }
+      table[slot] = id;
+    }
+  }
+}
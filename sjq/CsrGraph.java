@@ -0,0 +1,434 @@
+package sjq;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * 压缩稀疏行（CSR）格式的有向加权图。
+ * 顶点 v 的出边位于 [offsets[v], offsets[v + 1]) 区间，每行内的 targets 按 ID 升序排列。
+ * 同时维护一份反向邻接（入边）索引，顶点 v 的前驱位于 [inOffsets[v], inOffsets[v + 1])，
+ * 同样按 ID 升序排列。各数组和单词表由 {@link GraphStorage} 决定放在堆上还是堆外。
+ */
+final class CsrGraph {
+  private final GraphStorage storage;
+  private final Vocabulary dictionary;
+  private final IntArray offsets;
+  private final IntArray targets;
+  private final IntArray weights;
+  private final IntArray inOffsets;
+  private final IntArray sources;
+  private final IntArray inWeights;
+  private final int lastWord; // 构图文本的最后一个单词，追加文本时与新文本的首词相连
+  private volatile int[] lexRank; // 单词的字典序名次，按需计算
+
+  CsrGraph(WordDictionary dictionary, int[] offsets, int[] targets, int[] weights,
+      int lastWord) {
+    this(dictionary, offsets, targets, weights, lastWord, GraphStorage.HEAP);
+  }
+
+  /** 由正向 CSR 构图并建立反向索引，再把所有数组和单词表放入 storage；传入的数组不得再修改。 */
+  CsrGraph(Vocabulary dictionary, int[] offsets, int[] targets, int[] weights, int lastWord,
+      GraphStorage storage) {
+    this(dictionary, offsets, targets, weights, reverseIndex(offsets, targets, weights),
+        lastWord, storage, null);
+  }
+
+  // reverse 为反向 CSR 的 {inOffsets, sources, inWeights}；lexRank 已知时一并传入
+  private CsrGraph(Vocabulary dictionary, int[] offsets, int[] targets, int[] weights,
+      int[][] reverse, int lastWord, GraphStorage storage, int[] lexRank) {
+    this.storage = storage;
+    this.dictionary = storage.store(dictionary);
+    this.lastWord = lastWord;
+    this.offsets = storage.store(offsets);
+    this.targets = storage.store(targets);
+    this.weights = storage.store(weights);
+    this.inOffsets = storage.store(reverse[0]);
+    this.sources = storage.store(reverse[1]);
+    this.inWeights = storage.store(reverse[2]);
+    this.lexRank = lexRank;
+  }
+
+  private static int[][] reverseIndex(int[] offsets, int[] targets, int[] weights) {
+    int vertexCount = offsets.length - 1;
+    int[] inOffsets = new int[vertexCount + 1];
+    int[] sources = new int[targets.length];
+    int[] inWeights = new int[targets.length];
+    buildReverseIndex(offsets, targets, weights, inOffsets, sources, inWeights);
+    return new int[][] {inOffsets, sources, inWeights};
+  }
+
+  /** 由正向 CSR 计数排序得到反向 CSR；按源顶点升序填充，因此每行自然有序。 */
+  private static void buildReverseIndex(int[] offsets, int[] targets, int[] weights,
+      int[] inOffsets, int[] sources, int[] inWeights) {
+    int vertexCount = inOffsets.length - 1;
+    for (int target : targets) {
+      inOffsets[target + 1]++;
+    }
+    for (int v = 0; v < vertexCount; v++) {
+      inOffsets[v + 1] += inOffsets[v];
+    }
+    int[] next = Arrays.copyOf(inOffsets, vertexCount);
+    for (int v = 0; v < vertexCount; v++) {
+      for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+        int slot = next[targets[e]]++;
+        sources[slot] = v;
+        inWeights[slot] = weights[e];
+      }
+    }
+  }
+
+  /** 由边计数器构建 CSR，顶点数取字典大小。 */
+  static CsrGraph build(WordDictionary dictionary, EdgeCounter edges, int lastWord) {
+    return build(dictionary, edges, lastWord, GraphStorage.HEAP);
+  }
+
+  /**
+   * 由边计数器构建 CSR，数组和单词表直接放入 storage：堆上只在构建期间临时存在一份正反 CSR 数组，
+   * 不会先建成堆上的图再整体复制。
+   */
+  static CsrGraph build(WordDictionary dictionary, EdgeCounter edges, int lastWord,
+      GraphStorage storage) {
+    int vertexCount = dictionary.size();
+    long[] keys = edges.sortedKeys();
+    int[] offsets = new int[vertexCount + 1];
+    int[] targets = new int[keys.length];
+    int[] weights = new int[keys.length];
+    for (int e = 0; e < keys.length; e++) {
+      long key = keys[e];
+      offsets[EdgeCounter.from(key) + 1]++;
+      targets[e] = EdgeCounter.to(key);
+      weights[e] = edges.get(key);
+    }
+    for (int v = 0; v < vertexCount; v++) {
+      offsets[v + 1] += offsets[v];
+    }
+    return new CsrGraph(dictionary, offsets, targets, weights, lastWord, storage);
+  }
+
+  /**
+   * 把增量边并入本图，返回新图，本图不变。dictionary 须是本图字典的扩充（新单词编号在后）。
+   * 正反两份 CSR 都逐行归并：没有增量的连续若干行整块复制，有增量的行按 ID 归并，
+   * 相同的边权重相加；已算出的字典序名次只为新单词二分插入，不重新排序。
+   * 新图与本图使用同一种存储后端。
+   */
+  CsrGraph merge(WordDictionary dictionary, EdgeCounter delta, int lastWord) {
+    int vertexCount = dictionary.size();
+    long[] keys = delta.sortedKeys();
+    int[] counts = new int[keys.length];
+    long[] reverseKeys = new long[keys.length]; // 先 to 后 from，用于归并反向索引
+    int edgeCount = edgeCount(); // 合并后的边数，预先算出以免结果数组再截短
+    for (int k = 0; k < keys.length; k++) {
+      int from = EdgeCounter.from(keys[k]);
+      int to = EdgeCounter.to(keys[k]);
+      counts[k] = delta.get(keys[k]);
+      reverseKeys[k] = EdgeCounter.key(to, from);
+      if (from >= vertexCount() || to >= vertexCount() || !hasEdge(from, to)) {
+        edgeCount++;
+      }
+    }
+    Arrays.sort(reverseKeys);
+    int[] reverseCounts = new int[keys.length];
+    for (int k = 0; k < keys.length; k++) {
+      long key = reverseKeys[k];
+      reverseCounts[k] = delta.get(EdgeCounter.key(EdgeCounter.to(key), EdgeCounter.from(key)));
+    }
+    int[][] forward = mergeRows(offsets, targets, weights, vertexCount, edgeCount, keys, counts);
+    int[][] reverse = mergeRows(inOffsets, sources, inWeights, vertexCount, edgeCount,
+        reverseKeys, reverseCounts);
+    int[] rank = lexRank;
+    return new CsrGraph(dictionary, forward[0], forward[1], forward[2], reverse, lastWord,
+        storage, rank == null ? null : extendLexRank(rank, dictionary));
+  }
+
+  /**
+   * 把按 (行, 列) 升序排列的增量并入一份 CSR（行偏移、列、值），行数扩充到 rowCount、
+   * 项数为 entryCount，返回 {偏移, 列, 值}。没有增量的连续若干行整块复制，偏移统一平移。
+   */
+  private static int[][] mergeRows(IntArray offsets, IntArray columns, IntArray values,
+      int rowCount, int entryCount, long[] keys, int[] counts) {
+    int oldRows = offsets.length() - 1;
+    int[] newOffsets = new int[rowCount + 1];
+    int[] newColumns = new int[entryCount];
+    int[] newValues = new int[entryCount];
+    int e = 0;
+    int k = 0;
+    int row = 0;
+    while (row < rowCount) {
+      int nextChanged = k < keys.length ? EdgeCounter.from(keys[k]) : rowCount;
+      if (row < nextChanged) {
+        // [row, nextChanged) 没有增量：原有的行整块复制，新增的行为空
+        int copyEnd = Math.min(nextChanged, oldRows);
+        if (row < copyEnd) {
+          int from = offsets.get(row);
+          int count = offsets.get(copyEnd) - from;
+          columns.copyTo(from, newColumns, e, count);
+          values.copyTo(from, newValues, e, count);
+          int shift = e - from;
+          for (int r = row; r < copyEnd; r++) {
+            newOffsets[r + 1] = offsets.get(r + 1) + shift;
+          }
+          e += count;
+          row = copyEnd;
+        }
+        for (; row < nextChanged; row++) {
+          newOffsets[row + 1] = e;
+        }
+        continue;
+      }
+      // 有增量的行：按列归并原有的项和增量
+      int i = row < oldRows ? offsets.get(row) : 0;
+      int end = row < oldRows ? offsets.get(row + 1) : 0;
+      while (i < end || (k < keys.length && EdgeCounter.from(keys[k]) == row)) {
+        int deltaColumn = k < keys.length && EdgeCounter.from(keys[k]) == row
+            ? EdgeCounter.to(keys[k]) : Integer.MAX_VALUE;
+        if (i < end && columns.get(i) < deltaColumn) {
+          newColumns[e] = columns.get(i);
+          newValues[e++] = values.get(i++);
+        } else {
+          int value = counts[k++];
+          if (i < end && columns.get(i) == deltaColumn) {
+            value += values.get(i++);
+          }
+          newColumns[e] = deltaColumn;
+          newValues[e++] = value;
+        }
+      }
+      newOffsets[++row] = e;
+    }
+    return new int[][] {newOffsets, newColumns, newValues};
+  }
+
+  /**
+   * 字典扩充后的字典序名次：原有单词的相对次序不变，新单词排序后在原有次序中二分查找插入位置，
+   * 代价为 O(V + n log V)（n 为新单词数），而不是重新排序全部单词。
+   */
+  private static int[] extendLexRank(int[] rank, Vocabulary dictionary) {
+    int oldCount = rank.length;
+    int vertexCount = dictionary.size();
+    if (vertexCount == oldCount) {
+      return rank;
+    }
+    int[] order = new int[oldCount];
+    for (int v = 0; v < oldCount; v++) {
+      order[rank[v]] = v;
+    }
+    Integer[] added = new Integer[vertexCount - oldCount];
+    String[] words = new String[added.length];
+    for (int i = 0; i < added.length; i++) {
+      added[i] = i;
+      words[i] = dictionary.word(oldCount + i);
+    }
+    Arrays.sort(added, Comparator.comparing(i -> words[i]));
+    int[] newRank = new int[vertexCount];
+    int next = 0; // order 中下一个尚未排名的位置
+    int position = 0;
+    for (Integer i : added) {
+      int lo = next;
+      int hi = oldCount;
+      while (lo < hi) { // 第一个大于该新单词的原有单词
+        int mid = (lo + hi) >>> 1;
+        if (dictionary.word(order[mid]).compareTo(words[i]) < 0) {
+          lo = mid + 1;
+        } else {
+          hi = mid;
+        }
+      }
+      for (; next < lo; next++) {
+        newRank[order[next]] = position++;
+      }
+      newRank[oldCount + i] = position++;
+    }
+    for (; next < oldCount; next++) {
+      newRank[order[next]] = position++;
+    }
+    return newRank;
+  }
+
+  /**
+   * 换用另一种存储后端的同一张图；已是该后端时返回本图。各数组整块复制，反向索引和字典序名次沿用，
+   * 不重新计算。构图和载入快照时应直接传入目标后端，而不是构建后再换。
+   */
+  CsrGraph withStorage(GraphStorage storage) {
+    if (storage == this.storage) {
+      return this;
+    }
+    int[][] reverse = {toArray(inOffsets), toArray(sources), toArray(inWeights)};
+    return new CsrGraph(dictionary, toArray(offsets), toArray(targets), toArray(weights),
+        reverse, lastWord, storage, lexRank);
+  }
+
+  private static int[] toArray(IntArray array) {
+    int[] values = new int[array.length()];
+    array.copyTo(0, values, 0, values.length);
+    return values;
+  }
+
+  GraphStorage storage() {
+    return storage;
+  }
+
+  Vocabulary dictionary() {
+    return dictionary;
+  }
+
+  /** 构图文本的最后一个单词，文本中没有单词时为 -1。 */
+  int lastWord() {
+    return lastWord;
+  }
+
+  int vertexCount() {
+    return offsets.length() - 1;
+  }
+
+  int edgeCount() {
+    return targets.length();
+  }
+
+  /** 所有边的权重之和，即文本中相邻单词对的个数。 */
+  long totalWeight() {
+    long total = 0;
+    for (int e = 0; e < weights.length(); e++) {
+      total += weights.get(e);
+    }
+    return total;
+  }
+
+  /**
+   * 估算图占用的内存（字节）：正反两份 CSR 数组加上字典，堆外后端计的是直接内存。
+   * 堆上按压缩指针下的对象头和 8 字节对齐粗略计算，用于度量报告。
+   */
+  long estimatedBytes() {
+    return offsets.estimatedBytes() + targets.estimatedBytes() + weights.estimatedBytes()
+        + inOffsets.estimatedBytes() + sources.estimatedBytes() + inWeights.estimatedBytes()
+        + dictionary.estimatedBytes();
+  }
+
+  String word(int v) {
+    return dictionary.word(v);
+  }
+
+  int idOf(String word) {
+    return dictionary.idOf(word);
+  }
+
+  /** 顶点 v 的第一条出边下标。 */
+  int begin(int v) {
+    return offsets.get(v);
+  }
+
+  /** 顶点 v 的最后一条出边之后的下标。 */
+  int end(int v) {
+    return offsets.get(v + 1);
+  }
+
+  int outDegree(int v) {
+    return offsets.get(v + 1) - offsets.get(v);
+  }
+
+  int target(int e) {
+    return targets.get(e);
+  }
+
+  int weight(int e) {
+    return weights.get(e);
+  }
+
+  /** 顶点 v 的第一条入边下标（反向索引中）。 */
+  int inBegin(int v) {
+    return inOffsets.get(v);
+  }
+
+  /** 顶点 v 的最后一条入边之后的下标（反向索引中）。 */
+  int inEnd(int v) {
+    return inOffsets.get(v + 1);
+  }
+
+  int inDegree(int v) {
+    return inOffsets.get(v + 1) - inOffsets.get(v);
+  }
+
+  /** 反向索引中第 i 条入边的源顶点。 */
+  int source(int i) {
+    return sources.get(i);
+  }
+
+  /** 反向索引中第 i 条入边的权重。 */
+  int inWeight(int i) {
+    return inWeights.get(i);
+  }
+
+  /**
+   * 桥接词：from 的后继与 to 的前驱的交集，按 ID 升序返回。
+   * 遍历较短的一侧，在较长的一侧上倍增查找（galloping），代价约为 O(m log(n / m))。
+   */
+  int[] bridgeWords(int from, int to) {
+    int aLo = begin(from);
+    int aHi = end(from);
+    int bLo = inBegin(to);
+    int bHi = inEnd(to);
+    if (aHi - aLo <= bHi - bLo) {
+      return intersect(targets, aLo, aHi, sources, bLo, bHi);
+    }
+    return intersect(sources, bLo, bHi, targets, aLo, aHi);
+  }
+
+  private static int[] intersect(IntArray small, int sLo, int sHi, IntArray large, int lLo,
+      int lHi) {
+    int[] result = new int[Math.min(sHi - sLo, lHi - lLo)];
+    int n = 0;
+    int pos = lLo;
+    for (int i = sLo; i < sHi && pos < lHi; i++) {
+      int key = small.get(i);
+      // 倍增找到包含 key 的区间，再在区间内二分
+      int step = 1;
+      int hi = pos;
+      while (hi < lHi && large.get(hi) < key) {
+        pos = hi + 1;
+        hi += step;
+        step <<= 1;
+      }
+      int index = large.binarySearch(pos, Math.min(hi + 1, lHi), key);
+      if (index >= 0) {
+        result[n++] = key;
+        pos = index + 1;
+      } else {
+        pos = -index - 1;
+      }
+    }
+    return n == result.length ? result : Arrays.copyOf(result, n);
+  }
+
+  /** 二分查找边 from→to 的下标，不存在时返回 -1。 */
+  int edgeIndex(int from, int to) {
+    int index = targets.binarySearch(begin(from), end(from), to);
+    return index >= 0 ? index : -1;
+  }
+
+  boolean hasEdge(int from, int to) {
+    return edgeIndex(from, to) >= 0;
+  }
+
+  /**
+   * 每个顶点的单词在字典序中的名次。
+   * 最短路径中距离相同的顶点按单词字典序出队，与原先 TreeSet 的比较规则一致。
+   */
+  int[] lexRank() {
+    int[] rank = lexRank;
+    if (rank == null) {
+      int n = vertexCount();
+      Integer[] order = new Integer[n];
+      String[] words = new String[n]; // 堆外单词表每次取词都新建 String，排序前先取一遍
+      for (int v = 0; v < n; v++) {
+        order[v] = v;
+        words[v] = dictionary.word(v);
+      }
+      Arrays.sort(order, Comparator.comparing(v -> words[v]));
+      rank = new int[n];
+      for (int i = 0; i < n; i++) {
+        rank[order[i]] = i;
+      }
+      lexRank = rank;
+    }
+    return rank;
+  }
+}
@@ -0,0 +1,67 @@
+package sjq;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * 存放在直接内存中的只读 int 数组，堆上只有几个 IntBuffer 句柄。
+ * 单个 ByteBuffer 不能超过 2GB，因此按 2^28 个 int 分段；绝大多数数组只有一段。
+ * 直接内存在句柄不可达后由 GC 的 Cleaner 释放，总量受 -XX:MaxDirectMemorySize 限制。
+ */
+final class DirectIntArray implements IntArray {
+  private static final int SEGMENT_BITS = 28;
+  private static final int SEGMENT_MASK = (1 << SEGMENT_BITS) - 1;
+
+  private final IntBuffer[] segments;
+  private final int length;
+
+  private DirectIntArray(IntBuffer[] segments, int length) {
+    this.segments = segments;
+    this.length = length;
+  }
+
+  /** 把 values 复制到直接内存。 */
+  static DirectIntArray copyOf(int[] values) {
+    int segmentCount = Math.max(1, (values.length + SEGMENT_MASK) >>> SEGMENT_BITS);
+    IntBuffer[] segments = new IntBuffer[segmentCount];
+    for (int s = 0; s < segmentCount; s++) {
+      int from = s << SEGMENT_BITS;
+      int count = Math.min(values.length - from, 1 << SEGMENT_BITS);
+      IntBuffer segment = ByteBuffer.allocateDirect(4 * count)
+          .order(ByteOrder.nativeOrder()).asIntBuffer();
+      segment.put(values, from, count);
+      segments[s] = segment;
+    }
+    return new DirectIntArray(segments, values.length);
+  }
+
+  @Override
+  public int get(int index) {
+    // 越界时由 IntBuffer 或分段数组抛出异常
+    return segments[index >>> SEGMENT_BITS].get(index & SEGMENT_MASK);
+  }
+
+  @Override
+  public void copyTo(int from, int[] dest, int destPos, int count) {
+    // 逐段整块读出，区间可能跨越分段边界
+    while (count > 0) {
+      int offset = from & SEGMENT_MASK;
+      int n = Math.min(count, (1 << SEGMENT_BITS) - offset);
+      segments[from >>> SEGMENT_BITS].get(offset, dest, destPos, n);
+      from += n;
+      destPos += n;
+      count -= n;
+    }
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public long estimatedBytes() {
+    return 4L * length;
+  }
+}
@@ -0,0 +1,143 @@
+package sjq;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * 存放在直接内存中的只读单词表。所有单词的字符依次平铺在一个 CharBuffer 中，
+ * 第 id 个单词位于 [offsets[id], offsets[id + 1])；哈希表与 {@link WordDictionary} 相同，
+ * 开放寻址、槽位中保存单词 ID。查找不产生对象，{@link #word} 每次新建一个 String。
+ */
+final class DirectVocabulary implements Vocabulary {
+  private static final int EMPTY = -1;
+
+  private final CharBuffer chars;
+  private final IntArray offsets;
+  private final IntArray hashes;
+  private final IntArray table;
+
+  private DirectVocabulary(CharBuffer chars, IntArray offsets, IntArray hashes, IntArray table) {
+    this.chars = chars;
+    this.offsets = offsets;
+    this.hashes = hashes;
+    this.table = table;
+  }
+
+  /** 把单词表复制到直接内存，ID 保持不变。字符总数须小于 2^30。 */
+  static DirectVocabulary copyOf(Vocabulary dictionary) {
+    int size = dictionary.size();
+    int[] offsets = new int[size + 1];
+    long total = 0;
+    for (int id = 0; id < size; id++) {
+      total += dictionary.word(id).length();
+      if (total > Integer.MAX_VALUE / 2) {
+        throw new IllegalArgumentException("Vocabulary too large for off-heap storage");
+      }
+      offsets[id + 1] = (int) total;
+    }
+    CharBuffer chars = ByteBuffer.allocateDirect(2 * (int) total)
+        .order(ByteOrder.nativeOrder()).asCharBuffer();
+    int[] hashes = new int[size];
+    int[] table = new int[Integer.highestOneBit(Math.max(16, size) * 2 - 1) * 2];
+    Arrays.fill(table, EMPTY);
+    int mask = table.length - 1;
+    for (int id = 0; id < size; id++) {
+      String word = dictionary.word(id);
+      chars.put(word);
+      hashes[id] = WordDictionary.mix(word.hashCode());
+      int slot = hashes[id] & mask;
+      while (table[slot] != EMPTY) {
+        slot = (slot + 1) & mask;
+      }
+      table[slot] = id;
+    }
+    return new DirectVocabulary(chars, DirectIntArray.copyOf(offsets),
+        DirectIntArray.copyOf(hashes), DirectIntArray.copyOf(table));
+  }
+
+  @Override
+  public int size() {
+    return hashes.length();
+  }
+
+  @Override
+  public String word(int id) {
+    int begin = offsets.get(id);
+    int end = offsets.get(id + 1);
+    char[] word = new char[end - begin];
+    chars.get(begin, word);
+    return new String(word);
+  }
+
+  @Override
+  public int idOf(String word) {
+    if (word == null) {
+      return -1;
+    }
+    int h = WordDictionary.mix(word.hashCode());
+    int mask = table.length() - 1;
+    for (int slot = h & mask; table.get(slot) != EMPTY; slot = (slot + 1) & mask) {
+      int id = table.get(slot);
+      if (hashes.get(id) == h && matches(id, word)) {
+        return id;
+      }
+    }
+    return -1;
+  }
+
+  private boolean matches(int id, String word) {
+    int begin = offsets.get(id);
+    if (offsets.get(id + 1) - begin != word.length()) {
+      return false;
+    }
+    for (int i = 0; i < word.length(); i++) {
+      if (chars.get(begin + i) != word.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int idOf(char[] word, int offset, int length) {
+    int h = WordDictionary.mix(WordDictionary.hashOf(word, offset, length));
+    int mask = table.length() - 1;
+    for (int slot = h & mask; table.get(slot) != EMPTY; slot = (slot + 1) & mask) {
+      int id = table.get(slot);
+      if (hashes.get(id) == h && matches(id, word, offset, length)) {
+        return id;
+      }
+    }
+    return -1;
+  }
+
+  private boolean matches(int id, char[] word, int offset, int length) {
+    int begin = offsets.get(id);
+    if (offsets.get(id + 1) - begin != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (chars.get(begin + i) != word[offset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public WordDictionary copy() {
+    WordDictionary copy = new WordDictionary(size());
+    for (int id = 0; id < size(); id++) {
+      copy.intern(word(id));
+    }
+    return copy;
+  }
+
+  @Override
+  public long estimatedBytes() {
+    return 2L * chars.capacity() + offsets.estimatedBytes() + hashes.estimatedBytes()
+        + table.estimatedBytes();
+  }
+}
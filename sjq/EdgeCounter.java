@@ -0,0 +1,137 @@
+package sjq;
+
+import java.util.Arrays;
+
+/**
+ * 边计数器：以 (from, to) 两个单词 ID 拼成的 long 为键，累计边的出现次数。
+ * 使用开放寻址的原始类型数组，构图时不产生装箱的 Integer。
+ */
+final class EdgeCounter {
+  private static final long EMPTY = -1L;
+
+  private long[] keys;
+  private int[] counts;
+  private int size;
+
+  EdgeCounter() {
+    this(64);
+  }
+
+  EdgeCounter(int expectedSize) {
+    int capacity = Integer.highestOneBit(Math.max(32, expectedSize * 2 - 1)) * 2;
+    keys = new long[capacity];
+    counts = new int[capacity];
+    Arrays.fill(keys, EMPTY);
+  }
+
+  static long key(int from, int to) {
+    return ((long) from << 32) | (to & 0xFFFFFFFFL);
+  }
+
+  static int from(long key) {
+    return (int) (key >>> 32);
+  }
+
+  static int to(long key) {
+    return (int) key;
+  }
+
+  /** 不同边的数量。 */
+  int size() {
+    return size;
+  }
+
+  /** 所有边的次数之和。 */
+  long totalCount() {
+    long total = 0;
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != EMPTY) {
+        total += counts[i];
+      }
+    }
+    return total;
+  }
+
+  /** 边 from→to 的次数加 delta。 */
+  void add(int from, int to, int delta) {
+    long key = key(from, to);
+    int mask = keys.length - 1;
+    int slot = mix(key) & mask;
+    while (keys[slot] != EMPTY) {
+      if (keys[slot] == key) {
+        counts[slot] += delta;
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+    keys[slot] = key;
+    counts[slot] = delta;
+    if (++size * 2 > keys.length) {
+      rehash(keys.length * 2);
+    }
+  }
+
+  /** 遍历所有边（顺序不确定）。 */
+  void forEach(EdgeConsumer consumer) {
+    for (int i = 0; i < keys.length; i++) {
+      long key = keys[i];
+      if (key != EMPTY) {
+        consumer.accept(from(key), to(key), counts[i]);
+      }
+    }
+  }
+
+  /** 按键（即先 from 后 to）升序返回所有边的键。 */
+  long[] sortedKeys() {
+    long[] result = new long[size];
+    int n = 0;
+    for (long key : keys) {
+      if (key != EMPTY) {
+        result[n++] = key;
+      }
+    }
+    Arrays.sort(result);
+    return result;
+  }
+
+  /** 查询边的次数，不存在时返回 0。 */
+  int get(long key) {
+    int mask = keys.length - 1;
+    for (int slot = mix(key) & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+      if (keys[slot] == key) {
+        return counts[slot];
+      }
+    }
+    return 0;
+  }
+
+  private void rehash(int newLength) {
+    long[] oldKeys = keys;
+    int[] oldCounts = counts;
+    keys = new long[newLength];
+    counts = new int[newLength];
+    Arrays.fill(keys, EMPTY);
+    int mask = newLength - 1;
+    for (int i = 0; i < oldKeys.length; i++) {
+      long key = oldKeys[i];
+      if (key != EMPTY) {
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY) {
+          slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        counts[slot] = oldCounts[i];
+      }
+    }
+  }
+
+  private static int mix(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  /** 边的回调。 */
+  interface EdgeConsumer {
+    void accept(int from, int to, int count);
+  }
+}
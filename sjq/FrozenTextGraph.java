@@ -0,0 +1,579 @@
+package sjq;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * 图的只读快照：创建后图和预计算的最短路径都不再改变，任意多个线程（包括虚拟线程）可以无锁地并发查询。
+ * 路径搜索引擎从无锁的池中借用、用完归还，随机数取自调用线程自己的生成器，查询方法不向控制台输出。
+ * 追加文本或预计算路径得到的是新的快照，已有快照上的查询不受影响。
+ * 各查询的耗时和计数记入 {@link GraphMetrics}，未启用时不读时钟。
+ */
+final class FrozenTextGraph {
+  static final String NGRAM_DISABLED = "N-gram model is not enabled"; // 未启用 n 元模型时的说明
+  private final CsrGraph graph;
+  private final PathOracle oracle; // 预计算的最短路径树，未预计算时为 null
+  private final NgramModel ngram; // 与图由同一段文本统计的 n 元模型，未启用时为 null
+  private final GraphMetrics metrics;
+  private final ConcurrentLinkedQueue<PointToPointSearch> searches;
+  private final ConcurrentLinkedQueue<ShortestPathEngine> engines;
+  private final ConcurrentLinkedQueue<BoundedPathSearch> boundedSearches;
+  private volatile Landmarks landmarks; // 各搜索实例共享，首次 ALT 查询时计算
+  private volatile RandomWalker walker; // 随机游走的别名表，按需创建
+  private volatile BridgeIndex bridgeIndex; // 桥接词索引，首次查询桥接词时创建
+  private volatile Map<String, Map<String, Integer>> mapView; // getGraph() 的兼容视图，按需构建
+  private volatile double[] pageRank; // 各单词的 PageRank，首次按 PageRank 排名时计算
+
+  FrozenTextGraph(CsrGraph graph) {
+    this(graph, GraphMetrics.disabled());
+  }
+
+  FrozenTextGraph(CsrGraph graph, GraphMetrics metrics) {
+    this(graph, null, metrics);
+  }
+
+  /** 图及由同一段文本统计的 n 元模型 ngram（可为 null），两者共用字典。 */
+  FrozenTextGraph(CsrGraph graph, NgramModel ngram, GraphMetrics metrics) {
+    this(graph, null, ngram, metrics, new ConcurrentLinkedQueue<>(),
+        new ConcurrentLinkedQueue<>(), new ConcurrentLinkedQueue<>(), null);
+  }
+
+  private FrozenTextGraph(CsrGraph graph, PathOracle oracle, NgramModel ngram,
+      GraphMetrics metrics,
+      ConcurrentLinkedQueue<PointToPointSearch> searches,
+      ConcurrentLinkedQueue<ShortestPathEngine> engines,
+      ConcurrentLinkedQueue<BoundedPathSearch> boundedSearches,
+      Map<String, Map<String, Integer>> mapView) {
+    this.graph = graph;
+    this.oracle = oracle;
+    this.ngram = ngram;
+    this.metrics = metrics;
+    this.searches = searches;
+    this.engines = engines;
+    this.boundedSearches = boundedSearches;
+    this.mapView = mapView;
+  }
+
+  CsrGraph graph() {
+    return graph;
+  }
+
+  /** n 元模型，未启用时为 null。 */
+  NgramModel ngramModel() {
+    return ngram;
+  }
+
+  GraphMetrics metrics() {
+    return metrics;
+  }
+
+  /** 换上预计算的最短路径树，图相同，引擎池、地标和别名表沿用。 */
+  FrozenTextGraph withOracle(PathOracle pathOracle) {
+    FrozenTextGraph result = new FrozenTextGraph(graph, pathOracle, ngram, metrics, searches,
+        engines, boundedSearches, mapView);
+    result.landmarks = landmarks;
+    result.walker = walker;
+    result.bridgeIndex = bridgeIndex;
+    result.pageRank = pageRank;
+    return result;
+  }
+
+  /**
+   * 并入一段追加的文本，返回新快照，只让受影响的缓存失效：Map 视图只重建变化的行，
+   * 预计算的最短路径树只丢弃能到达变化之处的，其余按新图的顶点数扩展后保留，
+   * 桥接词索引只重算起点或其后继变化了的部分。
+   * 随机游走别名表与路径搜索引擎按边下标或顶点数分配，在新快照上按需重建。
+   * 启用了 n 元模型时 update 须在其上继续统计（以 graph() 和 ngramModel() 创建），
+   * 新快照换上更新后的模型。
+   */
+  FrozenTextGraph append(GraphBuilder update) {
+    EdgeCounter delta = update.edges();
+    CsrGraph updated = update.build();
+    if (delta.size() == 0 && updated.vertexCount() == graph.vertexCount()) {
+      return this; // 新文本中没有单词，图不变
+    }
+    boolean[] changed = new boolean[updated.vertexCount()];
+    delta.forEach((from, to, count) -> changed[from] = true);
+    int[] changedSources = new int[updated.vertexCount()];
+    int changedCount = 0;
+    for (int v = 0; v < changed.length; v++) {
+      if (changed[v]) {
+        changedSources[changedCount++] = v;
+      }
+    }
+    changedSources = Arrays.copyOf(changedSources, changedCount);
+
+    Map<String, Map<String, Integer>> view = mapView;
+    FrozenTextGraph result = new FrozenTextGraph(updated,
+        oracle == null ? null : oracle.retain(changedSources, updated.vertexCount()),
+        update.buildNgram(updated.dictionary()), metrics, new ConcurrentLinkedQueue<>(),
+        new ConcurrentLinkedQueue<>(), new ConcurrentLinkedQueue<>(),
+        view == null ? null : buildView(updated, view, graph.vertexCount(), changed));
+    BridgeIndex index = bridgeIndex;
+    if (index != null) {
+      result.bridgeIndex = index.retain(updated, changed);
+    }
+    return result;
+  }
+
+  /** 以 Map 形式返回图，首次调用时由 CSR 构建并缓存，不可修改。 */
+  Map<String, Map<String, Integer>> mapView() {
+    Map<String, Map<String, Integer>> view = mapView;
+    if (view == null) {
+      view = buildView(graph, null, 0, null);
+      mapView = view;
+    }
+    return view;
+  }
+
+  // 按 ID 顺序构建 Map 视图；previous 中前 reusable 个单词未变化的行直接沿用
+  private static Map<String, Map<String, Integer>> buildView(CsrGraph graph,
+      Map<String, Map<String, Integer>> previous, int reusable, boolean[] changed) {
+    Map<String, Map<String, Integer>> view = new LinkedHashMap<>();
+    for (int v = 0; v < graph.vertexCount(); v++) {
+      String word = graph.word(v);
+      if (v < reusable && !changed[v]) {
+        view.put(word, previous.get(word));
+        continue;
+      }
+      Map<String, Integer> neighbors = new LinkedHashMap<>();
+      for (int e = graph.begin(v); e < graph.end(v); e++) {
+        neighbors.put(graph.word(graph.target(e)), graph.weight(e));
+      }
+      view.put(word, Collections.unmodifiableMap(neighbors));
+    }
+    return Collections.unmodifiableMap(view);
+  }
+
+  /**
+   * 查询桥接词，多个桥接词以 ", " 分隔；
+   * 有单词不在图中时返回 ""，没有桥接词时返回 " "。
+   */
+  public String queryBridgeWords(String word1, String word2) {
+    long startTime = metrics.enabled() ? System.nanoTime() : 0;
+    String result = bridgeWords(word1, word2);
+    if (metrics.enabled()) {
+      metrics.recordLatency(GraphMetrics.Operation.BRIDGE_WORDS, System.nanoTime() - startTime);
+    }
+    return result;
+  }
+
+  private String bridgeWords(String word1, String word2) {
+    int from = graph.idOf(word1);
+    int to = graph.idOf(word2);
+    if (from < 0 || to < 0) {
+      return "";
+    }
+
+    int[] bridgeWords = bridgeIndex().bridges(from, to);
+
+    if (bridgeWords.length == 0) {
+      return " ";
+    }
+    StringBuilder joinResult = new StringBuilder(graph.word(bridgeWords[0]));
+    for (int i = 1; i < bridgeWords.length; i++) {
+      joinResult.append(", ").append(graph.word(bridgeWords[i]));
+    }
+    return joinResult.toString();
+  }
+
+  /** 桥接词查询结果的说明文字，如 "The bridge words from a to b are: c, d"，单词不在图中时说明是哪个。 */
+  String describeBridgeWords(String word1, String word2) {
+    return describeBridgeWords(word1, word2, queryBridgeWords(word1, word2));
+  }
+
+  /**
+   * 在 n 元模型上查询桥接词（见 {@link NgramModel#queryBridgeWords}），返回值与
+   * {@link #queryBridgeWords} 的约定相同；未启用 n 元模型时返回 null。
+   */
+  public String queryNgramBridgeWords(String word1, String word2) {
+    if (ngram == null) {
+      return null;
+    }
+    long startTime = metrics.enabled() ? System.nanoTime() : 0;
+    String result = ngram.queryBridgeWords(word1, word2);
+    if (metrics.enabled()) {
+      metrics.recordLatency(GraphMetrics.Operation.NGRAM_BRIDGE_WORDS,
+          System.nanoTime() - startTime);
+    }
+    return result;
+  }
+
+  /** n 元模型上桥接词查询结果的说明文字，格式同 {@link #describeBridgeWords}；未启用时返回 null。 */
+  String describeNgramBridgeWords(String word1, String word2) {
+    String result = queryNgramBridgeWords(word1, word2);
+    return result == null ? null : describeBridgeWords(word1, word2, result);
+  }
+
+  // 模型与图共用字典，单词是否在图中对两者相同
+  private String describeBridgeWords(String word1, String word2, String result) {
+    if (result.isEmpty()) {
+      if (graph.idOf(word1) >= 0) {
+        return "No " + word2 + " in the graph!";
+      } else if (graph.idOf(word2) >= 0) {
+        return "No " + word1 + " in the graph!";
+      }
+      return "No " + word1 + " and " + word2 + " in the graph!";
+    } else if (result.equals(" ")) {
+      return "No bridge words from " + word1 + " to " + word2 + "!";
+    }
+    return "The bridge words from " + word1 + " to " + word2 + " are: " + result;
+  }
+
+  /** 桥接词索引，首次使用时创建。 */
+  BridgeIndex bridgeIndex() {
+    BridgeIndex result = bridgeIndex;
+    if (result == null) {
+      synchronized (this) {
+        result = bridgeIndex;
+        if (result == null) {
+          result = new BridgeIndex(graph, BridgeIndex.DEFAULT_PRECOMPUTED_ENTRIES,
+              BridgeIndex.DEFAULT_CACHE_CAPACITY);
+          bridgeIndex = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  /** 根据桥接词生成新文本，随机数取自调用线程的 ThreadLocalRandom。 */
+  public String generateNewText(String inputText) {
+    return generateNewText(inputText, ThreadLocalRandom.current());
+  }
+
+  /**
+   * 根据桥接词生成新文本：文本按空白切分为单词并转为小写，以单个空格相连，
+   * 相邻两词之间有桥接词时随机插入其中一个。一遍扫描完成，单词在复用的缓冲区中
+   * 查字典，不为每个单词创建字符串，结果写入同一个 StringBuilder。
+   */
+  String generateNewText(String inputText, RandomGenerator random) {
+    long startTime = metrics.enabled() ? System.nanoTime() : 0;
+    String result = rewrite(inputText, random);
+    if (metrics.enabled()) {
+      metrics.recordLatency(GraphMetrics.Operation.GENERATE_TEXT, System.nanoTime() - startTime);
+    }
+    return result;
+  }
+
+  private String rewrite(String inputText, RandomGenerator random) {
+    BridgeIndex index = bridgeIndex();
+    Vocabulary dictionary = graph.dictionary();
+    int length = inputText.length();
+    StringBuilder result = new StringBuilder(length + length / 4);
+    char[] word = new char[16];
+    int previous = -1; // 上一个单词的 ID，不在图中或没有上一个单词时为 -1
+    boolean first = true;
+    int i = 0;
+    while (i < length) {
+      while (i < length && isSeparator(inputText.charAt(i))) {
+        i++;
+      }
+      if (i == length) {
+        break;
+      }
+      int wordLength = 0;
+      while (i < length && !isSeparator(inputText.charAt(i))) {
+        if (wordLength == word.length) {
+          word = Arrays.copyOf(word, wordLength * 2);
+        }
+        word[wordLength++] = Character.toLowerCase(inputText.charAt(i++));
+      }
+      int current = dictionary.idOf(word, 0, wordLength);
+      if (!first) {
+        if (previous >= 0 && current >= 0) {
+          int[] bridges = index.bridges(previous, current);
+          if (bridges.length > 0) {
+            result.append(' ').append(graph.word(bridges[random.nextInt(bridges.length)]));
+          }
+        }
+        result.append(' ');
+      }
+      result.append(word, 0, wordLength);
+      previous = current;
+      first = false;
+    }
+    return result.toString();
+  }
+
+  // 与正则 \s 相同的空白字符
+  private static boolean isSeparator(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+
+  /**
+   * 以指定方式计算两单词间的最短路径，不向控制台输出。
+   * 有单词不在图中时返回 null；不可达时结果中的路径为 null。
+   */
+  PathResult shortestPath(String word1, String word2, PathSearchMode mode) {
+    int source = graph.idOf(word1);
+    int target = graph.idOf(word2);
+    if (source < 0 || target < 0) {
+      return null;
+    }
+
+    long startTime = System.nanoTime();
+    int[] path;
+    int distance;
+    int settledCount;
+    ShortestPathTree cached = oracle == null ? null : oracle.tree(source);
+    if (cached != null) {
+      // 起点已预计算，直接沿前驱回溯
+      path = cached.path(target);
+      distance = cached.distance(target);
+      settledCount = 0;
+    } else {
+      PointToPointSearch search = searches.poll();
+      if (search == null) {
+        search = new PointToPointSearch(graph, this::landmarks);
+      }
+      path = search.search(source, target, mode);
+      distance = search.distance();
+      settledCount = search.settledCount();
+      searches.add(search);
+    }
+    long elapsed = System.nanoTime() - startTime;
+    if (metrics.enabled()) {
+      metrics.recordLatency(GraphMetrics.Operation.SHORTEST_PATH, elapsed);
+      if (cached != null) {
+        metrics.increment(GraphMetrics.Counter.PRECOMPUTED_PATH_HITS, 1);
+      } else {
+        metrics.increment(GraphMetrics.Counter.SETTLED_VERTICES, settledCount);
+      }
+    }
+    return new PathResult(path == null ? null : joinPath(path),
+        new PathQueryStats(mode, elapsed, settledCount, path == null ? -1 : distance));
+  }
+
+  /**
+   * 两单词间的最短路径（a→b→c 形式）；有单词不在图中时返回 null，
+   * 不可达时返回 "No path found from ..."。
+   */
+  public String calcShortestPath(String word1, String word2) {
+    PathResult result = shortestPath(word1, word2, PathSearchMode.DIJKSTRA);
+    if (result == null) {
+      return null;
+    }
+    return result.path() == null ? "No path found from " + word1 + " to " + word2 : result.path();
+  }
+
+  /**
+   * 有界最短路径：路径总权重和边数不超过 bounds 的限制，搜索预算用完时提前结束；
+   * k 大于 1 时按 Yen 算法求出至多 k 条互不相同的无环路径。有单词不在图中时返回 null，
+   * k 小于 1 时抛出 IllegalArgumentException。
+   */
+  BoundedPathSearch.Result boundedPaths(String word1, String word2, int k, PathBounds bounds) {
+    if (k < 1) {
+      throw new IllegalArgumentException("Invalid k: " + k);
+    }
+    int source = graph.idOf(word1);
+    int target = graph.idOf(word2);
+    if (source < 0 || target < 0) {
+      return null;
+    }
+    long startTime = metrics.enabled() ? System.nanoTime() : 0;
+    BoundedPathSearch search = boundedSearches.poll();
+    if (search == null) {
+      search = new BoundedPathSearch(graph);
+    }
+    BoundedPathSearch.Result result = search.search(source, target, k, bounds);
+    boundedSearches.add(search);
+    if (metrics.enabled()) {
+      metrics.recordLatency(GraphMetrics.Operation.BOUNDED_PATHS, System.nanoTime() - startTime);
+      metrics.increment(GraphMetrics.Counter.SETTLED_VERTICES, result.settledCount());
+    }
+    return result;
+  }
+
+  /**
+   * 有界最短路径的说明文字：k 为 1 时与 {@link #calcShortestPath} 相同，只有一行路径；
+   * 否则每条路径一行，形如 "1. a→b→c (3)"。界内没有路径时返回 "No path within bound ..."，
+   * 预算用完时另起一行说明。有单词不在图中时返回 null。
+   */
+  String describeBoundedPaths(String word1, String word2, int k, PathBounds bounds) {
+    BoundedPathSearch.Result result = boundedPaths(word1, word2, k, bounds);
+    if (result == null) {
+      return null;
+    }
+    StringBuilder out = new StringBuilder();
+    for (int i = 0; i < result.size(); i++) {
+      if (i > 0) {
+        out.append(System.lineSeparator());
+      }
+      if (k == 1) {
+        out.append(joinPath(result.path(i)));
+      } else {
+        out.append(i + 1).append(". ").append(joinPath(result.path(i)))
+            .append(" (").append(result.distance(i)).append(')');
+      }
+    }
+    switch (result.status()) {
+      case NO_PATH:
+        return "No path found from " + word1 + " to " + word2;
+      case BEYOND_BOUND:
+        return "No path within bound from " + word1 + " to " + word2 + " (" + bounds + ")";
+      case BUDGET_EXHAUSTED:
+        if (out.length() > 0) {
+          out.append(System.lineSeparator());
+        }
+        return out.append("Search budget exhausted from ").append(word1).append(" to ")
+            .append(word2).append(" (").append(bounds).append(')').toString();
+      default:
+        return out.toString();
+    }
+  }
+
+  /** 从 startWord 出发到所有单词的最短路径树，startWord 不在图中时返回 null。 */
+  public ShortestPaths shortestPathsFrom(String startWord) {
+    int source = graph.idOf(startWord);
+    if (source < 0) {
+      return null;
+    }
+    long startTime = metrics.enabled() ? System.nanoTime() : 0;
+    ShortestPathTree tree = oracle == null ? null : oracle.tree(source);
+    if (tree == null) {
+      ShortestPathEngine engine = engines.poll();
+      if (engine == null) {
+        engine = new ShortestPathEngine(graph);
+      }
+      engine.run(source, -1);
+      tree = ShortestPathTree.of(engine, source, graph.vertexCount());
+      engines.add(engine);
+    }
+    if (metrics.enabled()) {
+      metrics.recordLatency(GraphMetrics.Operation.SHORTEST_PATHS_FROM,
+          System.nanoTime() - startTime);
+    }
+    return new ShortestPaths(graph, tree);
+  }
+
+  /** 预先计算 ALT 搜索所需的地标距离。 */
+  void prepareLandmarks() {
+    landmarks();
+  }
+
+  private Landmarks landmarks() {
+    Landmarks result = landmarks;
+    if (result == null) {
+      synchronized (this) {
+        result = landmarks;
+        if (result == null) {
+          result = Landmarks.select(graph, PointToPointSearch.DEFAULT_LANDMARKS);
+          landmarks = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * 非交互式随机游走：从随机单词出发，一直走到重复的边、没有出边
+   * 或达到 maxSteps 步（不大于 0 表示不限）为止。图为空时返回 ""。
+   */
+  public String randomWalk(int maxSteps) {
+    int count = graph.vertexCount();
+    if (count == 0) {
+      return "";
+    }
+    long startTime = metrics.enabled() ? System.nanoTime() : 0;
+    RandomGenerator random = ThreadLocalRandom.current();
+    RandomWalker.Walk walk = walker().newWalk();
+    walk.reset(random.nextInt(count));
+    walk.run(random, maxSteps);
+    String result = walk.appendTo(new StringBuilder()).toString();
+    if (metrics.enabled()) {
+      metrics.recordLatency(GraphMetrics.Operation.RANDOM_WALK, System.nanoTime() - startTime);
+      metrics.increment(GraphMetrics.Counter.WALK_STEPS, walk.length() - 1);
+    }
+    return result;
+  }
+
+  /**
+   * 在 n 元模型上随机游走（见 {@link NgramModel#randomWalk}），随机数取自调用线程的
+   * ThreadLocalRandom；未启用 n 元模型时返回 null。
+   */
+  public String ngramRandomWalk(int maxSteps) {
+    if (ngram == null) {
+      return null;
+    }
+    long startTime = metrics.enabled() ? System.nanoTime() : 0;
+    String result = ngram.randomWalk(maxSteps, ThreadLocalRandom.current());
+    if (metrics.enabled()) {
+      metrics.recordLatency(GraphMetrics.Operation.NGRAM_WALK, System.nanoTime() - startTime);
+    }
+    return result;
+  }
+
+  /**
+   * 按 measure 排名前 k 的单词。PageRank 在首次使用时于 pool 上并行计算并缓存，
+   * 追加文本后的新快照重新计算。
+   */
+  WordRanking.Result rankWords(WordRanking.Measure measure, int k, ForkJoinPool pool)
+      throws InterruptedException {
+    double[] scores;
+    if (measure == WordRanking.Measure.PAGERANK) {
+      scores = pageRank;
+      if (scores == null) {
+        // 并发首次调用时可能各算一份，结果相同
+        scores = WordRanking.pageRank(graph, WordRanking.DEFAULT_DAMPING,
+            WordRanking.DEFAULT_TOLERANCE, WordRanking.DEFAULT_MAX_ITERATIONS, pool);
+        pageRank = scores;
+      }
+    } else {
+      scores = WordRanking.scores(graph, measure);
+    }
+    int[] top = WordRanking.topK(scores, k);
+    String[] words = new String[top.length];
+    double[] topScores = new double[top.length];
+    for (int i = 0; i < top.length; i++) {
+      words[i] = graph.word(top[i]);
+      topScores[i] = scores[top[i]];
+    }
+    return new WordRanking.Result(measure, words, topScores);
+  }
+
+  /** 随机游走的别名表，首次使用时创建；创建后只读，可被多个线程共享。 */
+  RandomWalker walker() {
+    RandomWalker result = walker;
+    if (result == null) {
+      // 并发首次调用时可能各建一份，结果相同，保留最后写入者即可
+      result = new RandomWalker(graph);
+      walker = result;
+    }
+    return result;
+  }
+
+  // 把顶点序列拼接为 a→b→c 形式
+  private String joinPath(int[] path) {
+    StringBuilder builder = new StringBuilder(graph.word(path[0]));
+    for (int i = 1; i < path.length; i++) {
+      builder.append("→").append(graph.word(path[i]));
+    }
+    return builder.toString();
+  }
+
+  /** 一次两点间最短路径查询的结果。 */
+  static final class PathResult {
+    private final String path;
+    private final PathQueryStats stats;
+
+    PathResult(String path, PathQueryStats stats) {
+      this.path = path;
+      this.stats = stats;
+    }
+
+    /** a→b→c 形式的路径，不可达时为 null。 */
+    String path() {
+      return path;
+    }
+
+    PathQueryStats stats() {
+      return stats;
+    }
+  }
+}
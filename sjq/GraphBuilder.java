@@ -0,0 +1,145 @@
+package sjq;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 构图器：按顺序接收文本，累计单词字典和边的权重，最后冻结为 CSR 图。
+ * 文本经 {@link WordTokenizer} 分词，相邻单词之间连一条边，换行不打断单词序列；
+ * 两个构图器也可以按文本先后顺序合并，合并处同样相连。
+ * 启用 n 元模型时，每个单词的 ID 同时送入 {@link NgramBuilder}，模型与图共用字典。
+ */
+final class GraphBuilder {
+  private final CsrGraph base; // 增量构图时的原图，否则为 null
+  private final WordDictionary dictionary; // 单词到 ID 的映射
+  private final EdgeCounter edges = new EdgeCounter(); // 边及其权重（增量构图时只含新增部分）
+  private final WordTokenizer tokenizer;
+  private final NgramBuilder ngram; // 同时统计的 n 元模型，未启用时为 null
+  private int firstWord = -1; // 第一个单词的 ID，用于与前一段文本相连
+  private int previousWord = -1; // 上一个单词的 ID
+
+  GraphBuilder() {
+    this(0);
+  }
+
+  /** 构图的同时统计 ngramOrder 阶的 n 元模型（见 {@link NgramBuilder}），0 表示不统计。 */
+  GraphBuilder(int ngramOrder) {
+    this.base = null;
+    this.dictionary = new WordDictionary();
+    this.tokenizer = new WordTokenizer(dictionary, this::acceptWord);
+    this.ngram = ngramOrder == 0 ? null : new NgramBuilder(ngramOrder);
+  }
+
+  /**
+   * 增量构图：接收紧随 base 的文本之后的一段文本。
+   * 单词在 base 字典的副本中编号，第一个新单词与 base 的最后一个单词相连；base 本身不变。
+   */
+  GraphBuilder(CsrGraph base) {
+    this(base, null);
+  }
+
+  /**
+   * 增量构图，同时在 base 的 n 元模型 baseModel（由同一段文本统计，可为 null）之上继续统计；
+   * baseModel 本身不变。
+   */
+  GraphBuilder(CsrGraph base, NgramModel baseModel) {
+    this.base = base;
+    this.dictionary = base.dictionary().copy();
+    this.tokenizer = new WordTokenizer(dictionary, this::acceptWord);
+    this.ngram = baseModel == null ? null : new NgramBuilder(baseModel);
+    this.previousWord = base.lastWord();
+  }
+
+  /** 接收一段字符。 */
+  void accept(char[] chars, int offset, int count) {
+    tokenizer.feed(chars, offset, count);
+  }
+
+  /** 接收一段 ASCII/UTF-8 字节。 */
+  void accept(byte[] bytes, int offset, int count) {
+    tokenizer.feed(bytes, offset, count);
+  }
+
+  /** 接收缓冲区中剩余的 ASCII/UTF-8 字节，例如内存映射的文件窗口。 */
+  void accept(ByteBuffer bytes) {
+    tokenizer.feed(bytes);
+  }
+
+  /** 接收一段文本。 */
+  void accept(CharSequence text) {
+    tokenizer.feed(text);
+  }
+
+  private void acceptWord(int word) {
+    if (previousWord >= 0) {
+      edges.add(previousWord, word, 1); // 更新边的权重
+    } else {
+      firstWord = word;
+    }
+    previousWord = word;
+    if (ngram != null) {
+      ngram.accept(word);
+    }
+  }
+
+  /**
+   * 把紧随其后的一段文本的构图结果合并进来。
+   * 对方的单词按其首次出现的顺序重新编号，因此合并结果与顺序构图完全相同。
+   * 启用 n 元模型时，对方须以相同的阶统计。
+   */
+  void append(GraphBuilder next) {
+    tokenizer.finish();
+    next.tokenizer.finish();
+    WordDictionary nextDictionary = next.dictionary;
+    int[] remap = new int[nextDictionary.size()];
+    for (int id = 0; id < remap.length; id++) {
+      remap[id] = dictionary.intern(nextDictionary.word(id));
+    }
+    next.edges.forEach((from, to, count) -> edges.add(remap[from], remap[to], count));
+    if (next.firstWord >= 0) {
+      if (previousWord >= 0) {
+        edges.add(previousWord, remap[next.firstWord], 1); // 拼接处的单词对
+      } else {
+        firstWord = remap[next.firstWord];
+      }
+      previousWord = remap[next.previousWord];
+    }
+    if (ngram != null) {
+      ngram.append(next.ngram, remap);
+    }
+  }
+
+  /** 单词字典，ID 即边计数器中使用的编号。 */
+  WordDictionary dictionary() {
+    tokenizer.finish();
+    return dictionary;
+  }
+
+  /** 新增或权重改变的边；增量构图时只含新文本带来的部分。 */
+  EdgeCounter edges() {
+    tokenizer.finish();
+    return edges;
+  }
+
+  /** 冻结为 CSR 图；增量构图时把新增的边并入原图，得到新图。 */
+  CsrGraph build() {
+    return build(GraphStorage.HEAP);
+  }
+
+  /**
+   * 冻结为 CSR 图，数组和单词表直接放入 storage，不先建成堆上的整张图再复制；
+   * 增量构图时新图沿用原图的存储后端，忽略 storage。
+   */
+  CsrGraph build(GraphStorage storage) {
+    tokenizer.finish();
+    if (base != null) {
+      return base.merge(dictionary, edges, previousWord);
+    }
+    return CsrGraph.build(dictionary, edges, previousWord, storage);
+  }
+
+  /** 冻结 n 元模型，dictionary 为 {@link #build()} 所得图的字典；未启用时返回 null。 */
+  NgramModel buildNgram(Vocabulary dictionary) {
+    tokenizer.finish();
+    return ngram == null ? null : ngram.build(dictionary);
+  }
+}
@@ -0,0 +1,236 @@
+package sjq;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * 把图的邻接表流式写出：内容先写入同一个复用的字符缓冲区，满了再整块交给输出，
+ * 不为每条边创建字符串。以单词为单位分页（offset/limit），返回值即下一页的游标；
+ * 按顺序拼接各页得到的内容与一次写出全部相同。实例不是线程安全的。
+ */
+final class GraphExporter {
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /** 输出格式。 */
+  enum Format {
+    /** 与 printGraph 相同的文字描述：word -> {a(1), b(2)}。 */
+    TEXT,
+    /** 每行一条边：起点、终点、权重以制表符分隔，第一页前有表头。 */
+    TSV,
+    /** 每行一个单词的 JSON 对象：{"word":"a","edges":{"b":1}}。 */
+    JSONL;
+
+    /** 按文件扩展名选择格式：.tsv、.jsonl/.ndjson，其余为 TEXT。 */
+    static Format forFileName(String fileName) {
+      String name = fileName.toLowerCase(Locale.ROOT);
+      if (name.endsWith(".tsv")) {
+        return TSV;
+      }
+      if (name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+        return JSONL;
+      }
+      return TEXT;
+    }
+  }
+
+  /** 单词及其出边的排列顺序，两种都是确定的。 */
+  enum Order {
+    /** 按单词在文本中首次出现的顺序（即 ID 顺序）。 */
+    INSERTION,
+    /** 按单词的字典序。 */
+    ALPHABETICAL
+  }
+
+  private final CsrGraph graph;
+  private final Format format;
+  private final int[] order; // 第 i 个写出的顶点，INSERTION 时为 null
+  private final int[] rank; // 顶点的字典序名次，INSERTION 时为 null
+  private final String lineSeparator;
+  private final char[] buffer = new char[BUFFER_SIZE];
+  private int position;
+  private Writer sink; // 正在写出的目标，只在 write 期间有效
+  private long[] row = new long[16]; // 按字典序排列一行出边时复用
+
+  GraphExporter(CsrGraph graph, Format format, Order order) {
+    this.graph = graph;
+    this.format = format;
+    if (order == Order.ALPHABETICAL) {
+      this.rank = graph.lexRank();
+      this.order = new int[rank.length];
+      for (int v = 0; v < rank.length; v++) {
+        this.order[rank[v]] = v;
+      }
+    } else {
+      this.rank = null;
+      this.order = null;
+    }
+    // 文字描述与控制台一致，机器可读的格式固定用 \n
+    this.lineSeparator = format == Format.TEXT ? System.lineSeparator() : "\n";
+  }
+
+  /** 可分页的单词总数。 */
+  int vertexCount() {
+    return graph.vertexCount();
+  }
+
+  /**
+   * 写出从第 offset 个单词起的至多 limit 个单词（limit 不大于 0 表示写到末尾）及其出边，
+   * 写完后 flush 但不关闭 out。
+   *
+   * @return 下一页的 offset，已写到末尾时返回 -1
+   */
+  int write(Writer out, int offset, int limit) throws IOException {
+    int count = graph.vertexCount();
+    int from = Math.max(0, offset);
+    int to = limit <= 0 ? count : (int) Math.min(count, (long) from + limit);
+    sink = out;
+    position = 0;
+    try {
+      if (format == Format.TSV && from == 0) {
+        append("source\ttarget\tweight").append(lineSeparator);
+      }
+      for (int i = from; i < to; i++) {
+        writeVertex(order == null ? i : order[i]);
+      }
+      drain();
+    } finally {
+      sink = null;
+    }
+    out.flush();
+    return to < count ? to : -1;
+  }
+
+  /** 同 {@link #write(Writer, int, int)}，按 UTF-8 写出到字节流，不关闭 out。 */
+  int write(OutputStream out, int offset, int limit) throws IOException {
+    return write(new OutputStreamWriter(out, StandardCharsets.UTF_8), offset, limit);
+  }
+
+  /** 把整个图写入文件，文件已存在时覆盖。 */
+  void export(Path path) throws IOException {
+    try (Writer out = new OutputStreamWriter(Files.newOutputStream(path),
+        StandardCharsets.UTF_8)) {
+      write(out, 0, 0);
+    }
+  }
+
+  private void writeVertex(int v) throws IOException {
+    int begin = graph.begin(v);
+    int degree = graph.outDegree(v);
+    if (rank != null) {
+      // 出边按终点的字典序排列：名次与边下标拼成 long 排序
+      if (row.length < degree) {
+        row = new long[Math.max(degree, row.length * 2)];
+      }
+      for (int i = 0; i < degree; i++) {
+        row[i] = ((long) rank[graph.target(begin + i)] << 32) | (begin + i);
+      }
+      Arrays.sort(row, 0, degree);
+    }
+    String word = graph.word(v);
+    if (format == Format.TEXT) {
+      append(word).append(" -> {");
+    } else if (format == Format.JSONL) {
+      append("{\"word\":");
+      appendJsonString(word);
+      append(",\"edges\":{");
+    }
+    for (int i = 0; i < degree; i++) {
+      int e = rank == null ? begin + i : (int) row[i];
+      String target = graph.word(graph.target(e));
+      if (format == Format.TEXT) {
+        if (i > 0) {
+          append(", ");
+        }
+        append(target).append('(').append(graph.weight(e)).append(')');
+      } else if (format == Format.JSONL) {
+        if (i > 0) {
+          append(',');
+        }
+        appendJsonString(target);
+        append(':').append(graph.weight(e));
+      } else {
+        append(word).append('\t').append(target).append('\t').append(graph.weight(e))
+            .append(lineSeparator);
+      }
+    }
+    if (format == Format.TEXT) {
+      append('}').append(lineSeparator);
+    } else if (format == Format.JSONL) {
+      append("}}").append(lineSeparator);
+    }
+  }
+
+  private GraphExporter append(String text) throws IOException {
+    int length = text.length();
+    if (position + length > buffer.length) {
+      drain();
+      if (length > buffer.length) {
+        sink.write(text); // 比整个缓冲区还长的单词直接写出
+        return this;
+      }
+    }
+    text.getChars(0, length, buffer, position);
+    position += length;
+    return this;
+  }
+
+  private GraphExporter append(char c) throws IOException {
+    if (position == buffer.length) {
+      drain();
+    }
+    buffer[position++] = c;
+    return this;
+  }
+
+  // 写出整数的十进制表示，不创建字符串
+  private GraphExporter append(int value) throws IOException {
+    if (value < 0) {
+      return append('-').append(-(long) value);
+    }
+    return append((long) value);
+  }
+
+  private GraphExporter append(long value) throws IOException {
+    if (position + 20 > buffer.length) {
+      drain();
+    }
+    int digits = 1;
+    for (long n = value; n >= 10; n /= 10) {
+      digits++;
+    }
+    long n = value;
+    for (int i = position + digits - 1; i >= position; i--, n /= 10) {
+      buffer[i] = (char) ('0' + n % 10);
+    }
+    position += digits;
+    return this;
+  }
+
+  private void appendJsonString(String text) throws IOException {
+    append('"');
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '"' || c == '\\') {
+        append('\\').append(c);
+      } else if (c < 0x20) {
+        append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+      } else {
+        append(c);
+      }
+    }
+    append('"');
+  }
+
+  // 把缓冲区中的内容整块交给输出，之后从头复用
+  private void drain() throws IOException {
+    sink.write(buffer, 0, position);
+    position = 0;
+  }
+}
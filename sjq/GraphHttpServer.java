@@ -0,0 +1,327 @@
+package sjq;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 本机 HTTP 查询服务：基于 JDK 自带的 HttpServer，在一份共享的只读快照上回答查询，
+ * 其他进程不必各自构图。每个请求一个虚拟线程（Java 21 及以上，经反射取得），
+ * 更早的版本退回到按需增长的线程池。结果均为 text/plain; charset=UTF-8：
+ * <pre>
+ *   GET  /bridge?from=a&amp;to=b   桥接词
+ *   GET  /path?from=a&amp;to=b     最短路径，可加 k（至多 k 条）及界限 weight、hops、nodes、ms
+ *   GET  /paths?from=a          a 到其余每个单词的最短路径，每个单词一行
+ *   GET  /generate?text=...     根据桥接词生成新文本，也可以 POST 文本作为请求体
+ *   GET  /walk?steps=n          随机游走，至多 n 步，省略或 0 表示不限
+ *   GET  /ngram/bridge?from=a&amp;to=b   n 元模型上的桥接词
+ *   GET  /ngram/walk?steps=n    n 元模型上的随机游走
+ * </pre>
+ * 缺少参数或查询串编码有误返回 400，单词不在图中或未启用 n 元模型返回 404，方法不对返回 405，
+ * POST 的请求体超过 1MB 返回 413。
+ * 结果确定的查询（bridge、path、paths、ngram/bridge）在相同查询仍在计算时不再重复计算，而是等待并共享同一个结果；
+ * generate、walk 带随机性，限时（ms）的 path 结果取决于耗时，都每个请求单独计算。
+ */
+final class GraphHttpServer {
+  private static final int MAX_BODY_BYTES = 1 << 20;
+  // 响应头和正文分两次写出，开着 Nagle 算法时每个请求都要等对方的延迟确认（约 40ms）
+  private static final String NO_DELAY = "sun.net.httpserver.nodelay";
+  private static final String[] BOUND_PARAMETERS = {"weight", "hops", "nodes", "ms"};
+
+  private final FrozenTextGraph graph;
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final Map<String, CompletableFuture<Response>> inFlight = new ConcurrentHashMap<>();
+  private final LongAdder coalesced = new LongAdder();
+
+  private GraphHttpServer(FrozenTextGraph graph, HttpServer server, ExecutorService executor) {
+    this.graph = graph;
+    this.server = server;
+    this.executor = executor;
+  }
+
+  /** 在 address 上启动服务，端口为 0 时由系统分配（见 {@link #port()}）。 */
+  static GraphHttpServer start(FrozenTextGraph graph, InetSocketAddress address)
+      throws IOException {
+    if (System.getProperty(NO_DELAY) == null) {
+      System.setProperty(NO_DELAY, "true"); // 在首次创建 HttpServer 之前设置才有效
+    }
+    HttpServer server = HttpServer.create(address, 0);
+    ExecutorService executor = newRequestExecutor();
+    GraphHttpServer service = new GraphHttpServer(graph, server, executor);
+    server.createContext("/bridge", exchange -> service.handle(exchange, false, service::bridge));
+    server.createContext("/path", exchange -> service.handle(exchange, false, service::path));
+    server.createContext("/paths", exchange -> service.handle(exchange, false, service::paths));
+    server.createContext("/generate",
+        exchange -> service.handle(exchange, true, service::generate));
+    server.createContext("/walk", exchange -> service.handle(exchange, false, service::walk));
+    server.createContext("/ngram/bridge",
+        exchange -> service.handle(exchange, false, service::ngramBridge));
+    server.createContext("/ngram/walk",
+        exchange -> service.handle(exchange, false, service::ngramWalk));
+    server.setExecutor(executor);
+    server.start();
+    return service;
+  }
+
+  /** 每个请求一个虚拟线程；运行环境不支持时使用按需增长的线程池。 */
+  static ExecutorService newRequestExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+          .invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newCachedThreadPool();
+    }
+  }
+
+  int port() {
+    return server.getAddress().getPort();
+  }
+
+  /** 因相同查询正在计算而直接共享结果的请求数。 */
+  long coalescedCount() {
+    return coalesced.sum();
+  }
+
+  /** 停止接受新请求，至多等待 delaySeconds 秒让已有请求完成。 */
+  void stop(int delaySeconds) {
+    server.stop(delaySeconds);
+    executor.shutdown();
+  }
+
+  /** 一个查询的处理函数：由参数（POST 时含请求体 body）得到响应。 */
+  private interface Endpoint {
+    Response answer(Map<String, String> parameters);
+  }
+
+  /** 响应的状态码和正文。 */
+  private static final class Response {
+    final int status;
+    final String body;
+
+    Response(int status, String body) {
+      this.status = status;
+      this.body = body;
+    }
+  }
+
+  private void handle(HttpExchange exchange, boolean allowPost, Endpoint endpoint)
+      throws IOException {
+    try (exchange) {
+      String method = exchange.getRequestMethod();
+      Response response;
+      if (method.equals("GET") || (allowPost && method.equals("POST"))) {
+        response = answer(exchange, method.equals("POST"), endpoint);
+      } else {
+        exchange.getResponseHeaders().set("Allow", allowPost ? "GET, POST" : "GET");
+        response = new Response(405, "Method not allowed: " + method);
+      }
+      byte[] body = (response.body + "\n").getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+      exchange.sendResponseHeaders(response.status, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    }
+  }
+
+  // 解析参数（POST 时读入请求体）并交给 endpoint；参数或请求体不合法时不调用 endpoint
+  private static Response answer(HttpExchange exchange, boolean post, Endpoint endpoint)
+      throws IOException {
+    Map<String, String> parameters;
+    try {
+      parameters = parse(exchange.getRequestURI().getRawQuery());
+    } catch (IllegalArgumentException e) {
+      return new Response(400, "Invalid query: " + e.getMessage());
+    }
+    if (post) {
+      String body = readBody(exchange.getRequestBody());
+      if (body == null) {
+        return new Response(413, "Request body exceeds " + MAX_BODY_BYTES + " bytes");
+      }
+      parameters.put("body", body);
+    }
+    try {
+      return endpoint.answer(parameters);
+    } catch (RuntimeException e) {
+      return new Response(500, "Error: " + e.getMessage());
+    }
+  }
+
+  // 解析 URL 查询串，同名参数取最后一个；% 转义不合法时抛出 IllegalArgumentException
+  static Map<String, String> parse(String rawQuery) {
+    Map<String, String> parameters = new HashMap<>();
+    if (rawQuery == null || rawQuery.isEmpty()) {
+      return parameters;
+    }
+    for (String pair : rawQuery.split("&")) {
+      int equals = pair.indexOf('=');
+      String name = equals < 0 ? pair : pair.substring(0, equals);
+      String value = equals < 0 ? "" : pair.substring(equals + 1);
+      parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+          URLDecoder.decode(value, StandardCharsets.UTF_8));
+    }
+    return parameters;
+  }
+
+  // 读入请求体，超过 MAX_BODY_BYTES 时返回 null，不截断
+  private static String readBody(InputStream in) throws IOException {
+    byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+    if (body.length > MAX_BODY_BYTES) {
+      return null;
+    }
+    return new String(body, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * 相同 key 的查询同时在途时只计算一次：第一个请求计算并发布结果，其余请求等待并共享它；
+   * 计算完成后立即移除，之后的请求重新计算，不做缓存。
+   */
+  private Response coalesce(String key, Supplier<Response> query) {
+    CompletableFuture<Response> mine = new CompletableFuture<>();
+    CompletableFuture<Response> running = inFlight.putIfAbsent(key, mine);
+    if (running != null) {
+      coalesced.increment();
+      return running.join();
+    }
+    try {
+      Response response = query.get();
+      mine.complete(response);
+      return response;
+    } catch (RuntimeException | Error e) {
+      mine.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, mine);
+    }
+  }
+
+  private static Response missing(String name) {
+    return new Response(400, "Missing parameter: " + name);
+  }
+
+  private Response bridge(Map<String, String> parameters) {
+    String from = parameters.get("from");
+    String to = parameters.get("to");
+    if (from == null || to == null) {
+      return missing(from == null ? "from" : "to");
+    }
+    return coalesce("bridge\n" + from + "\n" + to, () -> {
+      boolean known = graph.graph().idOf(from) >= 0 && graph.graph().idOf(to) >= 0;
+      return new Response(known ? 200 : 404, graph.describeBridgeWords(from, to));
+    });
+  }
+
+  private Response path(Map<String, String> parameters) {
+    String from = parameters.get("from");
+    String to = parameters.get("to");
+    if (from == null || to == null) {
+      return missing(from == null ? "from" : "to");
+    }
+    int k;
+    PathBounds bounds;
+    try {
+      k = Integer.parseInt(parameters.getOrDefault("k", "1"));
+      if (k < 1) {
+        return new Response(400, "Invalid k: " + k);
+      }
+      StringBuilder spec = new StringBuilder();
+      for (String name : BOUND_PARAMETERS) {
+        if (parameters.containsKey(name)) {
+          spec.append(name).append('=').append(parameters.get(name)).append(' ');
+        }
+      }
+      bounds = PathBounds.parse(spec.toString());
+    } catch (IllegalArgumentException e) {
+      return new Response(400, "Invalid bounds: " + e.getMessage());
+    }
+    Supplier<Response> query = () -> {
+      String path = k == 1 && bounds == PathBounds.NONE
+          ? graph.calcShortestPath(from, to)
+          : graph.describeBoundedPaths(from, to, k, bounds);
+      return path == null
+          ? new Response(404, "Either word1 or word2 is not in the graph!")
+          : new Response(200, path);
+    };
+    return bounds.timeoutNanos() != Long.MAX_VALUE ? query.get()
+        : coalesce("path\n" + from + "\n" + to + "\n" + k + "\n" + bounds, query);
+  }
+
+  private Response paths(Map<String, String> parameters) {
+    String from = parameters.get("from");
+    if (from == null) {
+      return missing("from");
+    }
+    return coalesce("paths\n" + from, () -> {
+      ShortestPaths paths = graph.shortestPathsFrom(from);
+      if (paths == null) {
+        return new Response(404, "The word is not in the graph!");
+      }
+      StringBuilder out = new StringBuilder();
+      try {
+        paths.writeTo(out);
+      } catch (IOException e) {
+        throw new IllegalStateException(e); // StringBuilder 不会抛出
+      }
+      return new Response(200, out.toString().stripTrailing());
+    });
+  }
+
+  private Response generate(Map<String, String> parameters) {
+    String text = parameters.containsKey("body") ? parameters.get("body") : parameters.get("text");
+    if (text == null) {
+      return missing("text");
+    }
+    return new Response(200, graph.generateNewText(text));
+  }
+
+  private Response walk(Map<String, String> parameters) {
+    int steps;
+    try {
+      steps = Integer.parseInt(parameters.getOrDefault("steps", "0"));
+    } catch (NumberFormatException e) {
+      return new Response(400, "Invalid steps: " + parameters.get("steps"));
+    }
+    return new Response(200, graph.randomWalk(steps));
+  }
+
+  private Response ngramBridge(Map<String, String> parameters) {
+    String from = parameters.get("from");
+    String to = parameters.get("to");
+    if (from == null || to == null) {
+      return missing(from == null ? "from" : "to");
+    }
+    if (graph.ngramModel() == null) {
+      return new Response(404, FrozenTextGraph.NGRAM_DISABLED);
+    }
+    return coalesce("ngram/bridge\n" + from + "\n" + to, () -> {
+      boolean known = graph.graph().idOf(from) >= 0 && graph.graph().idOf(to) >= 0;
+      return new Response(known ? 200 : 404, graph.describeNgramBridgeWords(from, to));
+    });
+  }
+
+  private Response ngramWalk(Map<String, String> parameters) {
+    int steps;
+    try {
+      steps = Integer.parseInt(parameters.getOrDefault("steps", "0"));
+    } catch (NumberFormatException e) {
+      return new Response(400, "Invalid steps: " + parameters.get("steps"));
+    }
+    String walk = graph.ngramRandomWalk(steps);
+    return walk == null ? new Response(404, FrozenTextGraph.NGRAM_DISABLED)
+        : new Response(200, walk);
+  }
+}
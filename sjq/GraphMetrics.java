@@ -0,0 +1,74 @@
+package sjq;
+
+/**
+ * 构图与查询的度量接口：记录各项操作的耗时、计数器以及当前图的规模。
+ * 默认使用 {@link #disabled()}，此时调用方只需检查一次 {@link #enabled()}，不读时钟也不做任何记录。
+ * 实现须可被多个线程同时调用。
+ */
+interface GraphMetrics {
+  /** 计时的操作。 */
+  enum Operation {
+    BUILD, // 读文本构图或载入快照
+    APPEND, // 追加文本
+    PRECOMPUTE, // 预计算最短路径
+    BRIDGE_WORDS,
+    GENERATE_TEXT,
+    SHORTEST_PATH,
+    BOUNDED_PATHS, // 有界最短路径与 k 条最短路径
+    SHORTEST_PATHS_FROM,
+    RANDOM_WALK,
+    RANK_WORDS,
+    NGRAM_BRIDGE_WORDS, // n 元模型上的桥接词
+    NGRAM_WALK // n 元模型上的随机游走
+  }
+
+  /** 累加的计数器。 */
+  enum Counter {
+    SETTLED_VERTICES, // 两点间最短路径搜索中确定了距离的顶点总数
+    PRECOMPUTED_PATH_HITS, // 直接使用预计算最短路径树的查询数
+    WALK_STEPS // 非交互式随机游走的总步数
+  }
+
+  /** 是否在记录；为 false 时调用方应跳过计时。 */
+  boolean enabled();
+
+  /** 记录一次操作的耗时。 */
+  void recordLatency(Operation operation, long elapsedNanos);
+
+  /** 计数器加上 delta。 */
+  void increment(Counter counter, long delta);
+
+  /**
+   * 记录一次构图（或追加文本）：耗时计入 operation 的分布，
+   * tokens 为本次读入的单词数，graph 为得到的新图，用于报告规模和估算内存。
+   */
+  void recordGraph(Operation operation, long elapsedNanos, long tokens, CsrGraph graph);
+
+  /** 不做任何记录的实现。 */
+  static GraphMetrics disabled() {
+    return Disabled.INSTANCE;
+  }
+
+  /** 空实现，单例。 */
+  enum Disabled implements GraphMetrics {
+    INSTANCE;
+
+    @Override
+    public boolean enabled() {
+      return false;
+    }
+
+    @Override
+    public void recordLatency(Operation operation, long elapsedNanos) {
+    }
+
+    @Override
+    public void increment(Counter counter, long delta) {
+    }
+
+    @Override
+    public void recordGraph(Operation operation, long elapsedNanos, long tokens,
+        CsrGraph graph) {
+    }
+  }
+}
@@ -0,0 +1,212 @@
+package sjq;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 图的二进制快照：保存字典、邻接和权重，启动时内存映射读回，跳过文本解析。
+ *
+ * <p>文件布局（小端）：
+ * <pre>
+ *   int  magic, int version
+ *   long 源文件长度, long 源文件修改时间（毫秒）
+ *   int  顶点数 n, int 边数 m, int 单词字节总数 b, int 文本最后一个单词的 ID（没有时为 -1）
+ *   int[n + 1] 单词在字节区中的起始位置
+ *   byte[b]    UTF-8 编码的单词，之后补齐到 4 字节对齐
+ *   int[n + 1] offsets, int[m] targets, int[m] weights
+ * </pre>
+ * 源文件长度或修改时间与快照记录的不一致时，快照视为过期。
+ */
+final class GraphSnapshot {
+  static final String SUFFIX = ".graph";
+  private static final int MAGIC = 0x54474153; // "TGAS"
+  private static final int VERSION = 2;
+  private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + 4 + 4 + 4;
+  private static final int WINDOW_SIZE = 64 << 20; // 映射与写出的窗口大小，4 的倍数
+
+  private GraphSnapshot() {
+  }
+
+  /** 源文件对应的快照路径：在文件名后追加 .graph。 */
+  static Path pathFor(Path source) {
+    return source.resolveSibling(source.getFileName() + SUFFIX);
+  }
+
+  /** 快照是否存在且与源文件的长度和修改时间一致。 */
+  static boolean isUpToDate(Path snapshot, Path source) {
+    if (!Files.isRegularFile(snapshot) || !Files.isRegularFile(source)) {
+      return false;
+    }
+    try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+      ByteBuffer header = readHeader(channel);
+      return header.getLong(8) == Files.size(source)
+          && header.getLong(16) == Files.getLastModifiedTime(source).toMillis();
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * 写出快照；先写临时文件再原子替换，避免留下半个快照。
+   * 源文件的长度和修改时间应在构图之前取得，构图期间文件被改动时快照会被判为过期。
+   */
+  static void save(CsrGraph graph, Path snapshot, long sourceLength, long sourceModified)
+      throws IOException {
+    int n = graph.vertexCount();
+    int m = graph.edgeCount();
+    byte[][] words = new byte[n][];
+    long wordBytes = 0;
+    for (int v = 0; v < n; v++) {
+      words[v] = graph.word(v).getBytes(StandardCharsets.UTF_8);
+      wordBytes += words[v].length;
+    }
+    if (wordBytes > Integer.MAX_VALUE - 8) {
+      throw new IOException("Vocabulary too large for snapshot");
+    }
+
+    Path temp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(WINDOW_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      buffer.putInt(MAGIC).putInt(VERSION)
+          .putLong(sourceLength)
+          .putLong(sourceModified)
+          .putInt(n).putInt(m).putInt((int) wordBytes).putInt(graph.lastWord());
+      int position = 0;
+      for (int v = 0; v < n; v++) {
+        putInt(channel, buffer, position);
+        position += words[v].length;
+      }
+      putInt(channel, buffer, position);
+      for (byte[] word : words) {
+        putBytes(channel, buffer, word);
+      }
+      putBytes(channel, buffer, new byte[(int) ((4 - wordBytes % 4) % 4)]);
+      for (int v = 0; v <= n; v++) {
+        putInt(channel, buffer, v < n ? graph.begin(v) : m);
+      }
+      for (int e = 0; e < m; e++) {
+        putInt(channel, buffer, graph.target(e));
+      }
+      for (int e = 0; e < m; e++) {
+        putInt(channel, buffer, graph.weight(e));
+      }
+      flush(channel, buffer);
+      channel.force(false);
+    }
+    Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** 内存映射读回快照，按区段批量拷贝到 int[]，不为每条边创建对象。 */
+  static CsrGraph load(Path snapshot) throws IOException {
+    return load(snapshot, GraphStorage.HEAP);
+  }
+
+  /** 同 {@link #load(Path)}，读出的数组和单词表直接放入 storage。 */
+  static CsrGraph load(Path snapshot, GraphStorage storage) throws IOException {
+    try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+      ByteBuffer header = readHeader(channel);
+      int n = header.getInt(24);
+      int m = header.getInt(28);
+      int wordBytes = header.getInt(32);
+      int lastWord = header.getInt(36);
+      long position = HEADER_SIZE;
+
+      int[] wordOffsets = new int[n + 1];
+      position = readInts(channel, position, wordOffsets);
+      byte[] blob = new byte[wordBytes];
+      MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, wordBytes);
+      mapped.get(blob);
+      position += wordBytes + (4 - wordBytes % 4) % 4;
+      WordDictionary dictionary = new WordDictionary(n);
+      for (int v = 0; v < n; v++) {
+        String word = new String(blob, wordOffsets[v], wordOffsets[v + 1] - wordOffsets[v],
+            StandardCharsets.UTF_8);
+        if (dictionary.intern(word) != v) {
+          throw new IOException("Corrupt snapshot: duplicate word " + word);
+        }
+      }
+
+      int[] offsets = new int[n + 1];
+      int[] targets = new int[m];
+      int[] weights = new int[m];
+      position = readInts(channel, position, offsets);
+      position = readInts(channel, position, targets);
+      position = readInts(channel, position, weights);
+      if (position != channel.size() || offsets[n] != m || lastWord < -1 || lastWord >= n) {
+        throw new IOException("Corrupt snapshot: " + snapshot);
+      }
+      return new CsrGraph(dictionary, offsets, targets, weights, lastWord, storage);
+    }
+  }
+
+  private static ByteBuffer readHeader(FileChannel channel) throws IOException {
+    if (channel.size() < HEADER_SIZE) {
+      throw new IOException("Not a graph snapshot");
+    }
+    ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE)
+        .order(ByteOrder.LITTLE_ENDIAN);
+    if (header.getInt(0) != MAGIC) {
+      throw new IOException("Not a graph snapshot");
+    }
+    if (header.getInt(4) != VERSION) {
+      throw new IOException("Unsupported snapshot version " + header.getInt(4));
+    }
+    return header;
+  }
+
+  // 分窗口映射文件，把 dst.length 个 int 批量读入 dst，返回读完后的位置
+  private static long readInts(FileChannel channel, long position, int[] dst) throws IOException {
+    int done = 0;
+    while (done < dst.length) {
+      int count = Math.min(dst.length - done, WINDOW_SIZE / 4);
+      IntBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, count * 4L)
+          .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+      window.get(dst, done, count);
+      done += count;
+      position += count * 4L;
+    }
+    return position;
+  }
+
+  private static void putInt(FileChannel channel, ByteBuffer buffer, int value)
+      throws IOException {
+    if (buffer.remaining() < 4) {
+      flush(channel, buffer);
+    }
+    buffer.putInt(value);
+  }
+
+  private static void putBytes(FileChannel channel, ByteBuffer buffer, byte[] bytes)
+      throws IOException {
+    if (buffer.remaining() < bytes.length) {
+      flush(channel, buffer);
+    }
+    if (bytes.length > buffer.remaining()) {
+      ByteBuffer large = ByteBuffer.wrap(bytes); // 超长单词直接写出
+      while (large.hasRemaining()) {
+        channel.write(large);
+      }
+    } else {
+      buffer.put(bytes);
+    }
+  }
+
+  private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+}
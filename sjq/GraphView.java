@@ -0,0 +1,255 @@
+package sjq;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * 可视化或导出用的子图：图中选出的一部分单词及它们之间的全部边（导出子图）。
+ * 大图可只取度数或权重最高的 K 个单词，或某个单词 k 跳以内的邻域；
+ * 选出的子图可逐个交给渲染器，也可不经界面直接写成 DOT 或 GraphML。
+ */
+final class GraphView {
+  private final CsrGraph graph;
+  private final int[] vertices; // 选中的顶点，按 ID 升序
+  private final boolean[] selected; // 按顶点 ID 标记是否选中
+
+  private GraphView(CsrGraph graph, int[] vertices) {
+    this.graph = graph;
+    this.vertices = vertices;
+    this.selected = new boolean[graph.vertexCount()];
+    for (int v : vertices) {
+      selected[v] = true;
+    }
+  }
+
+  /** 整个图。 */
+  static GraphView all(CsrGraph graph) {
+    int[] vertices = new int[graph.vertexCount()];
+    Arrays.setAll(vertices, v -> v);
+    return new GraphView(graph, vertices);
+  }
+
+  /** 出入度之和最高的 k 个单词，度数相同时取 ID 小的（先出现的）。 */
+  static GraphView topByDegree(CsrGraph graph, int k) {
+    long[] scores = new long[graph.vertexCount()];
+    for (int v = 0; v < scores.length; v++) {
+      scores[v] = graph.outDegree(v) + graph.inDegree(v);
+    }
+    return new GraphView(graph, top(scores, k));
+  }
+
+  /** 出入边权重之和（即单词出现次数的约两倍）最高的 k 个单词。 */
+  static GraphView topByWeight(CsrGraph graph, int k) {
+    long[] scores = new long[graph.vertexCount()];
+    for (int v = 0; v < scores.length; v++) {
+      for (int e = graph.begin(v); e < graph.end(v); e++) {
+        scores[v] += graph.weight(e);
+      }
+      for (int i = graph.inBegin(v); i < graph.inEnd(v); i++) {
+        scores[v] += graph.inWeight(i);
+      }
+    }
+    return new GraphView(graph, top(scores, k));
+  }
+
+  // 把分数和取反的 ID 拼成 long 后排序，取最大的 k 个，再按 ID 升序返回
+  private static int[] top(long[] scores, int k) {
+    long[] keys = new long[scores.length];
+    for (int v = 0; v < scores.length; v++) {
+      keys[v] = (Math.min(scores[v], Integer.MAX_VALUE) << 32) | (Integer.MAX_VALUE - v);
+    }
+    Arrays.sort(keys);
+    int count = Math.max(0, Math.min(k, keys.length));
+    int[] result = new int[count];
+    for (int i = 0; i < count; i++) {
+      result[i] = Integer.MAX_VALUE - (int) keys[keys.length - 1 - i];
+    }
+    Arrays.sort(result);
+    return result;
+  }
+
+  /**
+   * word 沿出边或入边 hops 跳以内能到的单词（含 word 本身），按层广度优先展开。
+   * word 不在图中时返回 null。
+   */
+  static GraphView neighborhood(CsrGraph graph, String word, int hops) {
+    int start = graph.idOf(word);
+    if (start < 0) {
+      return null;
+    }
+    boolean[] seen = new boolean[graph.vertexCount()];
+    int[] queue = new int[graph.vertexCount()];
+    int head = 0;
+    int tail = 0;
+    queue[tail++] = start;
+    seen[start] = true;
+    for (int depth = 0; depth < hops && head < tail; depth++) {
+      int levelEnd = tail;
+      while (head < levelEnd) {
+        int v = queue[head++];
+        for (int e = graph.begin(v); e < graph.end(v); e++) {
+          int w = graph.target(e);
+          if (!seen[w]) {
+            seen[w] = true;
+            queue[tail++] = w;
+          }
+        }
+        for (int i = graph.inBegin(v); i < graph.inEnd(v); i++) {
+          int w = graph.source(i);
+          if (!seen[w]) {
+            seen[w] = true;
+            queue[tail++] = w;
+          }
+        }
+      }
+    }
+    int[] result = Arrays.copyOf(queue, tail);
+    Arrays.sort(result);
+    return new GraphView(graph, result);
+  }
+
+  /**
+   * 解析显示范围：空串或 all 为整个图，degree K、weight K 为度数或权重最高的 K 个单词，
+   * hop 单词 K 为单词 K 跳以内的邻域（单词不在图中时返回 null）。格式错误时抛出
+   * IllegalArgumentException。
+   */
+  static GraphView parse(CsrGraph graph, String spec) {
+    String[] parts = spec.trim().toLowerCase(Locale.ROOT).split("\\s+");
+    switch (parts[0]) {
+      case "":
+      case "all":
+        return all(graph);
+      case "degree":
+        return topByDegree(graph, Integer.parseInt(argument(parts, 1, 2)));
+      case "weight":
+        return topByWeight(graph, Integer.parseInt(argument(parts, 1, 2)));
+      case "hop":
+        return neighborhood(graph, argument(parts, 1, 3), Integer.parseInt(parts[2]));
+      default:
+        throw new IllegalArgumentException("Unknown view: " + spec);
+    }
+  }
+
+  private static String argument(String[] parts, int index, int expectedLength) {
+    if (parts.length != expectedLength) {
+      throw new IllegalArgumentException("Wrong number of arguments: " + String.join(" ", parts));
+    }
+    return parts[index];
+  }
+
+  CsrGraph graph() {
+    return graph;
+  }
+
+  /** 选中的顶点，按 ID 升序；不可修改。 */
+  int[] vertices() {
+    return vertices;
+  }
+
+  int vertexCount() {
+    return vertices.length;
+  }
+
+  /** 两端都选中的边数。 */
+  int edgeCount() {
+    int count = 0;
+    for (int v : vertices) {
+      for (int e = graph.begin(v); e < graph.end(v); e++) {
+        if (selected[graph.target(e)]) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  /** 按起点 ID、终点 ID 升序把两端都选中的边交给 consumer。 */
+  void forEachEdge(EdgeCounter.EdgeConsumer consumer) {
+    for (int v : vertices) {
+      for (int e = graph.begin(v); e < graph.end(v); e++) {
+        if (selected[graph.target(e)]) {
+          consumer.accept(v, graph.target(e), graph.weight(e));
+        }
+      }
+    }
+  }
+
+  /** 按扩展名（.dot/.gv 或 .graphml）写出到文件。 */
+  void export(Path path) throws IOException {
+    String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+    boolean graphMl = name.endsWith(".graphml");
+    if (!graphMl && !name.endsWith(".dot") && !name.endsWith(".gv")) {
+      throw new IOException("Unsupported export format: " + path.getFileName());
+    }
+    try (Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+      if (graphMl) {
+        writeGraphMl(out);
+      } else {
+        writeDot(out);
+      }
+    }
+  }
+
+  /** 写成 Graphviz DOT，边的 label 与 weight 均为权重。 */
+  void writeDot(Writer out) throws IOException {
+    out.write("digraph G {\n");
+    for (int v : vertices) {
+      out.write("  ");
+      writeQuoted(out, graph.word(v));
+      out.write(";\n");
+    }
+    for (int v : vertices) {
+      for (int e = graph.begin(v); e < graph.end(v); e++) {
+        int w = graph.target(e);
+        if (selected[w]) {
+          out.write("  ");
+          writeQuoted(out, graph.word(v));
+          out.write(" -> ");
+          writeQuoted(out, graph.word(w));
+          String weight = Integer.toString(graph.weight(e));
+          out.write(" [label=" + weight + ", weight=" + weight + "];\n");
+        }
+      }
+    }
+    out.write("}\n");
+  }
+
+  private static void writeQuoted(Writer out, String word) throws IOException {
+    out.write('"');
+    out.write(word.replace("\\", "\\\\").replace("\"", "\\\""));
+    out.write('"');
+  }
+
+  /** 写成 GraphML，顶点 ID 即单词，边带整数属性 weight。 */
+  void writeGraphMl(Writer out) throws IOException {
+    out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    out.write("<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">\n");
+    out.write("  <key id=\"weight\" for=\"edge\" attr.name=\"weight\" attr.type=\"int\"/>\n");
+    out.write("  <graph id=\"G\" edgedefault=\"directed\">\n");
+    for (int v : vertices) {
+      out.write("    <node id=\"" + xml(graph.word(v)) + "\"/>\n");
+    }
+    for (int v : vertices) {
+      for (int e = graph.begin(v); e < graph.end(v); e++) {
+        int w = graph.target(e);
+        if (selected[w]) {
+          out.write("    <edge source=\"" + xml(graph.word(v)) + "\" target=\""
+              + xml(graph.word(w)) + "\"><data key=\"weight\">" + graph.weight(e)
+              + "</data></edge>\n");
+        }
+      }
+    }
+    out.write("  </graph>\n");
+    out.write("</graphml>\n");
+  }
+
+  private static String xml(String text) {
+    return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;")
+        .replace("\"", "&quot;");
+  }
+}
@@ -0,0 +1,20 @@
+package sjq;
+
+import java.util.Locale;
+
+/**
+ * 构图时读取输入文件的方式。
+ */
+enum IngestMode {
+  /** 单线程通过 Reader 解码后按块读取。 */
+  SEQUENTIAL,
+  /** 按字节区间切块，在 ForkJoinPool 上并行构图。 */
+  PARALLEL,
+  /** 用 FileChannel 分窗口内存映射文件，直接按字节分词，不做字符解码。 */
+  MAPPED;
+
+  /** 解析命令行中的模式名，大小写不敏感。 */
+  static IngestMode parse(String name) {
+    return valueOf(name.trim().toUpperCase(Locale.ROOT));
+  }
+}
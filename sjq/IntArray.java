@@ -0,0 +1,80 @@
+package sjq;
+
+import java.util.Arrays;
+
+/**
+ * 只读的 int 数组：CSR 图的各个数组通过它访问，底层可以是堆上的 int[]，
+ * 也可以是堆外的直接内存（见 {@link GraphStorage}）。
+ */
+interface IntArray {
+  int get(int index);
+
+  int length();
+
+  /** 估算占用的内存（字节），堆外实现计的是直接内存。 */
+  long estimatedBytes();
+
+  /** 在升序区间 [from, to) 中二分查找 key，返回值的含义与 {@link Arrays#binarySearch} 相同。 */
+  default int binarySearch(int from, int to, int key) {
+    int lo = from;
+    int hi = to - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      int value = get(mid);
+      if (value < key) {
+        lo = mid + 1;
+      } else if (value > key) {
+        hi = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(lo + 1);
+  }
+
+  /** 把 [from, from + count) 复制到 dest 中 destPos 起的位置。 */
+  default void copyTo(int from, int[] dest, int destPos, int count) {
+    for (int i = 0; i < count; i++) {
+      dest[destPos + i] = get(from + i);
+    }
+  }
+
+  /** 包装堆上的 int[]，不复制。 */
+  static IntArray wrap(int[] values) {
+    return new Heap(values);
+  }
+
+  /** 堆上的实现。 */
+  final class Heap implements IntArray {
+    private final int[] values;
+
+    Heap(int[] values) {
+      this.values = values;
+    }
+
+    @Override
+    public int get(int index) {
+      return values[index];
+    }
+
+    @Override
+    public int length() {
+      return values.length;
+    }
+
+    @Override
+    public long estimatedBytes() {
+      return WordDictionary.align(16 + 4L * values.length);
+    }
+
+    @Override
+    public int binarySearch(int from, int to, int key) {
+      return Arrays.binarySearch(values, from, to, key);
+    }
+
+    @Override
+    public void copyTo(int from, int[] dest, int destPos, int count) {
+      System.arraycopy(values, from, dest, destPos, count);
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package sjq;
+
+import java.util.Arrays;
+
+/**
+ * ALT 算法的地标：预先计算若干地标到各顶点、各顶点到地标的最短距离，
+ * 由三角不等式给出任意顶点到目标距离的下界。
+ * 地标按“离已选地标最远”的贪心规则选取，第一个地标取出度最大的顶点。
+ */
+final class Landmarks {
+  private static final int INF = ShortestPathEngine.INF;
+
+  private final int[][] from; // from[i][v]：地标 i 到 v 的距离
+  private final int[][] to; // to[i][v]：v 到地标 i 的距离
+
+  private Landmarks(int[][] from, int[][] to) {
+    this.from = from;
+    this.to = to;
+  }
+
+  /** 选取至多 count 个地标并计算距离表，内存约为 2 × count × 顶点数 个 int。 */
+  static Landmarks select(CsrGraph graph, int count) {
+    int n = graph.vertexCount();
+    count = Math.min(count, n);
+    int[][] from = new int[count][];
+    int[][] to = new int[count][];
+    ShortestPathEngine forward = new ShortestPathEngine(graph, false);
+    ShortestPathEngine backward = new ShortestPathEngine(graph, true);
+    int[] nearest = new int[n]; // 到已选地标的最小距离（取两个方向中较近者）
+    Arrays.fill(nearest, INF);
+
+    int landmark = 0;
+    for (int v = 1; v < n; v++) {
+      if (graph.outDegree(v) > graph.outDegree(landmark)) {
+        landmark = v;
+      }
+    }
+    for (int i = 0; i < count; i++) {
+      from[i] = distances(forward, landmark, n);
+      to[i] = distances(backward, landmark, n);
+      int next = -1;
+      for (int v = 0; v < n; v++) {
+        long d = Math.min((long) from[i][v], (long) to[i][v]);
+        nearest[v] = (int) Math.min(nearest[v], d);
+        if (nearest[v] != 0 && nearest[v] != INF && (next < 0 || nearest[v] > nearest[next])) {
+          next = v;
+        }
+      }
+      if (next < 0) {
+        // 剩余顶点都与已选地标不连通，改用其中出度最大的
+        for (int v = 0; v < n; v++) {
+          if (nearest[v] == INF && (next < 0 || graph.outDegree(v) > graph.outDegree(next))) {
+            next = v;
+          }
+        }
+      }
+      if (next < 0) {
+        return new Landmarks(Arrays.copyOf(from, i + 1),
+            Arrays.copyOf(to, i + 1));
+      }
+      landmark = next;
+    }
+    return new Landmarks(from, to);
+  }
+
+  int count() {
+    return from.length;
+  }
+
+  /**
+   * v 到 target 的距离下界；可以断定 v 到不了 target 时返回 INF。
+   * 该下界满足一致性，可直接作为 A* 的势函数。
+   */
+  int lowerBound(int v, int target) {
+    int best = 0;
+    for (int i = 0; i < from.length; i++) {
+      int toV = to[i][v];
+      int toT = to[i][target];
+      if (toT != INF) {
+        if (toV == INF) {
+          return INF; // target 能到达地标而 v 不能，说明 v 到不了 target
+        }
+        best = Math.max(best, toV - toT);
+      }
+      int fromV = from[i][v];
+      int fromT = from[i][target];
+      if (fromV != INF && fromT != INF) {
+        best = Math.max(best, fromT - fromV);
+      }
+    }
+    return best;
+  }
+
+  private static int[] distances(ShortestPathEngine engine, int source, int n) {
+    engine.run(source, -1);
+    int[] result = new int[n];
+    for (int v = 0; v < n; v++) {
+      result[v] = engine.distance(v);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,80 @@
+package sjq;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 对数-线性分桶的直方图（与 HdrHistogram 的分桶方式相同）：每个 2 的幂区间再均分为 64 个桶，
+ * 相对误差不超过 1/64，固定 3712 个桶覆盖全部非负 long 值。记录操作无锁，可被多个线程同时调用。
+ */
+final class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 7;
+  private static final int HALF_COUNT = 1 << (SUB_BUCKET_BITS - 1); // 每个区间的桶数
+  private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * HALF_COUNT + HALF_COUNT;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+  private final LongAdder total = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  /** 记录一个值，负数按 0 计。 */
+  void record(long value) {
+    long v = Math.max(0, value);
+    counts.incrementAndGet(indexOf(v));
+    total.increment();
+    sum.add(v);
+    max.accumulate(v);
+  }
+
+  // 值小于 128 时桶号即值本身，之后每翻一倍右移一位，保留最高的 7 位
+  static int indexOf(long value) {
+    int shift = Math.max(0, 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+    return shift * HALF_COUNT + (int) (value >>> shift);
+  }
+
+  // 桶中最大的值，即该桶代表的所有值的上界
+  static long highestValueIn(int index) {
+    int shift = index < 2 * HALF_COUNT ? 0 : index / HALF_COUNT - 1;
+    long sub = index - (long) shift * HALF_COUNT;
+    return ((sub + 1) << shift) - 1;
+  }
+
+  long count() {
+    return total.sum();
+  }
+
+  long max() {
+    return max.get();
+  }
+
+  double mean() {
+    long n = total.sum();
+    return n == 0 ? 0 : (double) sum.sum() / n;
+  }
+
+  /**
+   * 第 percentile 百分位（0~100）的值，以所在桶的上界表示；没有记录时返回 0。
+   * 与记录并发调用时结果是近似的。
+   */
+  long valueAtPercentile(double percentile) {
+    long[] snapshot = new long[BUCKET_COUNT];
+    long n = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      snapshot[i] = counts.get(i);
+      n += snapshot[i];
+    }
+    if (n == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * n));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        return Math.min(highestValueIn(i), max());
+      }
+    }
+    return max();
+  }
+}
@@ -1,8 +1,25 @@
 package sjq;
 
-import java.util.Map;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
-import org.graphstream.graph.Edge;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
 import org.graphstream.graph.Graph;
 import org.graphstream.graph.implementations.SingleGraph;
 import org.graphstream.ui.view.Viewer;
@@ -15,18 +32,83 @@ import org.graphstream.ui.view.Viewer;
  * @since 2024.6.11
  */
 public class Main {
+  private static final int PAGE_SIZE = 50; // 命令行展示时每页的单词数
+  private static final int NGRAM_WALK_STEPS = 100;
+  private static final int MAX_RENDERED_EDGES = 20_000; // 超过时默认只显示一部分单词
+  private static final int DEFAULT_TOP_K = 1000;
+  private static final int MAX_EDGE_LABELS = 5_000; // 超过时隐藏边的权重标签
+  private static final String STYLESHEET = "node { text-size: 20px; text-color: blue; } "
+      + "edge { text-size: 20px; text-color: red; arrow-size: 10px; }";
+  private static final String UNLABELED_EDGES = " edge { text-mode: hidden; }";
+  private static final String INVALID_NUMBER = "无效输入！请输入整数";
+
   /**
    * .
    * 主函数入口，显示交互界面。
    */
   public static void main(String[] args) {
-    if (args.length != 1) {
-      System.out.println("Usage: java Main <file_path>");
+    List<String> positional = new ArrayList<>();
+    String queryPath = null;
+    String outputPath = null;
+    String servePort = null;
+    String orderArg = null;
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("--batch") && i + 1 < args.length) {
+        queryPath = args[++i];
+      } else if (args[i].equals("--output") && i + 1 < args.length) {
+        outputPath = args[++i];
+      } else if (args[i].equals("--serve") && i + 1 < args.length) {
+        servePort = args[++i];
+      } else if (args[i].equals("--order") && i + 1 < args.length) {
+        orderArg = args[++i];
+      } else {
+        positional.add(args[i]);
+      }
+    }
+    if (positional.isEmpty() || positional.size() > 3) {
+      System.out.println(
+          "Usage: java Main <file_path> [sequential|parallel|mapped] [heap|off-heap]"
+              + " [--order <n>] [--batch <query_file|-> [--output <file>] | --serve <port>]");
       return;
     }
 
-    String filePath = args[0];
-    TextGraphAnalyzer analyzer = new TextGraphAnalyzer(filePath);
+    String filePath = positional.get(0);
+    IngestMode mode;
+    try {
+      mode = positional.size() > 1 ? IngestMode.parse(positional.get(1)) : IngestMode.SEQUENTIAL;
+    } catch (IllegalArgumentException e) {
+      System.out.println("Unknown ingest mode: " + positional.get(1));
+      return;
+    }
+    GraphStorage storage;
+    try {
+      storage = positional.size() > 2 ? GraphStorage.parse(positional.get(2)) : GraphStorage.HEAP;
+    } catch (IllegalArgumentException e) {
+      System.out.println("Unknown storage: " + positional.get(2));
+      return;
+    }
+    // 同时统计的 n 元模型的阶数，0 表示不统计
+    int ngramOrder;
+    try {
+      ngramOrder = orderArg == null ? 0 : Integer.parseInt(orderArg);
+    } catch (NumberFormatException e) {
+      ngramOrder = -1;
+    }
+    if (ngramOrder < 0 || ngramOrder == 1) {
+      System.out.println("Invalid n-gram order: " + orderArg);
+      return;
+    }
+    // 有未过期的快照时直接载入，否则解析文本并保存快照
+    TextGraphAnalyzer analyzer =
+        TextGraphAnalyzer.open(filePath, mode, storage, ngramOrder, metrics());
+    if (queryPath != null) {
+      runBatch(analyzer, queryPath, outputPath);
+      return;
+    }
+    if (servePort != null) {
+      serve(analyzer, servePort);
+      return;
+    }
     System.out.println("文件读入，有向图已生成！");
     Scanner scanner = new Scanner(System.in, "ISO-8859-1");
     while (true) {
@@ -41,6 +123,10 @@ public class Main {
       System.out.println("5.计算两单词间最短路径");
       System.out.println("6.计算某一单词最短路径");
       System.out.println("7.随机游走");
+      System.out.println("8.批量生成随机游走语料");
+      System.out.println("9.单词重要性排名");
+      System.out.println("10.n 元模型桥接词与随机游走");
+      System.out.println("11.有界最短路径与前 k 条最短路径");
       System.out.println("-----------------------------------");
       System.out.println("请输入您选择的功能序号：");
       int choice = scanner.nextInt();
@@ -51,10 +137,14 @@ public class Main {
           break;
         case 1:
           System.out.println("有向图的节点边文字描述为：");
-          analyzer.printGraph();
+          pageGraph(analyzer, scanner);
           break;
         case 2:
-          showDirectedGraph(analyzer.getGraph());
+          System.out.println("显示范围（all、degree K、weight K 或 hop 单词 K），直接回车显示全部（图较大时只显示一部分）：");
+          String spec = scanner.nextLine();
+          System.out.println("导出文件（.dot 或 .graphml），直接回车则打开窗口：");
+          String exportPath = scanner.nextLine().trim();
+          visualize(analyzer.freeze().graph(), spec, exportPath);
           break;
         case 3:
           System.out.println("第一个单词：");
@@ -88,61 +178,292 @@ public class Main {
           String randomPath = analyzer.randomWalk();
           System.out.println("随机游走路径:\"" + randomPath + "\"已写入文件");
           break;
+        case 8:
+          int walksPerWord;
+          int maxSteps;
+          long seed;
+          String corpusPath;
+          int shards;
+          try {
+            System.out.println("每个单词的游走次数：");
+            walksPerWord = Integer.parseInt(scanner.nextLine().trim());
+            System.out.println("最大步数（0 表示不限）：");
+            maxSteps = Integer.parseInt(scanner.nextLine().trim());
+            System.out.println("随机种子：");
+            seed = Long.parseLong(scanner.nextLine().trim());
+            System.out.println("输出文件：");
+            corpusPath = scanner.nextLine().trim();
+            System.out.println("分片数：");
+            shards = Integer.parseInt(scanner.nextLine().trim());
+          } catch (NumberFormatException e) {
+            System.out.println(INVALID_NUMBER);
+            break;
+          }
+          WalkCorpusGenerator.Result corpus =
+              analyzer.generateWalkCorpus(corpusPath, walksPerWord, maxSteps, seed, shards);
+          if (corpus != null) {
+            System.out.println("随机游走语料已生成：" + corpus);
+          }
+          break;
+        case 9:
+          System.out.println("排名依据（pagerank、in-degree、out-degree、in-weight、out-weight）：");
+          String measureName = scanner.nextLine();
+          System.out.println("显示前几名：");
+          int topK;
+          try {
+            topK = Integer.parseInt(scanner.nextLine().trim());
+          } catch (NumberFormatException e) {
+            System.out.println(INVALID_NUMBER);
+            break;
+          }
+          WordRanking.Measure measure;
+          try {
+            measure = WordRanking.Measure.parse(measureName);
+          } catch (IllegalArgumentException e) {
+            System.out.println("无效的排名依据：" + measureName);
+            break;
+          }
+          WordRanking.Result ranking = analyzer.rankWords(measure, topK);
+          if (ranking != null) {
+            System.out.print(ranking);
+          }
+          break;
+        case 10:
+          FrozenTextGraph snapshot = analyzer.freeze();
+          NgramModel model = snapshot.ngramModel();
+          if (model == null) {
+            System.out.println("未启用 n 元模型，请以 --order <阶数> 启动");
+            break;
+          }
+          System.out.printf("%d 阶模型：上下文 %d 个，转移 %d 个，约占 %.1f MB%n", model.order(),
+              model.contextCount(), model.transitionCount(), model.estimatedBytes() / 1048576.0);
+          System.out.println("第一个单词（直接回车跳过桥接词查询）：");
+          String prefix = scanner.nextLine().trim();
+          if (!prefix.isEmpty()) {
+            System.out.println("第二个单词：");
+            String suffix = scanner.nextLine().trim();
+            System.out.println(snapshot.describeNgramBridgeWords(prefix, suffix));
+          }
+          System.out.println("随机游走最大步数（0 表示不限），直接回车为 " + NGRAM_WALK_STEPS + "：");
+          String stepsInput = scanner.nextLine().trim();
+          int walkSteps;
+          try {
+            walkSteps = stepsInput.isEmpty() ? NGRAM_WALK_STEPS : Integer.parseInt(stepsInput);
+          } catch (NumberFormatException e) {
+            System.out.println(INVALID_NUMBER);
+            break;
+          }
+          System.out.println("随机游走路径：" + snapshot.ngramRandomWalk(walkSteps));
+          break;
+        case 11:
+          System.out.println("第一个单词：");
+          String from = scanner.nextLine().trim();
+          System.out.println("第二个单词：");
+          String to = scanner.nextLine().trim();
+          System.out.println("路径条数 k：");
+          int k;
+          try {
+            k = Integer.parseInt(scanner.nextLine().trim());
+          } catch (NumberFormatException e) {
+            System.out.println(INVALID_NUMBER);
+            break;
+          }
+          System.out.println("界限（如 weight=10 hops=4 nodes=100000 ms=50），直接回车不限：");
+          String boundSpec = scanner.nextLine();
+          PathBounds bounds;
+          try {
+            bounds = PathBounds.parse(boundSpec);
+          } catch (IllegalArgumentException e) {
+            System.out.println("无效的界限：" + boundSpec);
+            break;
+          }
+          if (k < 1) {
+            System.out.println("路径条数至少为 1");
+            break;
+          }
+          String paths = analyzer.calcKShortestPaths(from, to, k, bounds);
+          if (paths != null) {
+            System.out.println(paths);
+          }
+          break;
         default:
-          System.out.println("无效输入！请输入0~6的数字");
+          System.out.println("无效输入！请输入0~11的数字");
       }
     }
 
 
   }
 
-  static void showDirectedGraph(Map<String, Map<String, Integer>> graph) {
-    System.setProperty("org.graphstream.ui", "swing");
-
-    // 创建有向图对象
-    Graph directedGraph = new SingleGraph("Directed Graph");
+  /**
+   * 分页显示图，每页 {@value #PAGE_SIZE} 个单词；每页之后可继续、返回，
+   * 或输入文件名把整个图直接写入文件（.tsv、.jsonl 为机器可读格式）。
+   */
+  private static void pageGraph(TextGraphAnalyzer analyzer, Scanner scanner) {
+    GraphExporter exporter =
+        analyzer.graphExporter(GraphExporter.Format.TEXT, GraphExporter.Order.INSERTION);
+    Writer out = new OutputStreamWriter(System.out, Charset.defaultCharset());
+    int cursor = printPage(exporter, out, 0);
+    while (cursor >= 0) {
+      System.out.println("回车显示下一页，q 返回，或输入文件名（.txt/.tsv/.jsonl）导出全部：");
+      String input = scanner.nextLine().trim();
+      if (input.equalsIgnoreCase("q")) {
+        return;
+      }
+      if (!input.isEmpty()) {
+        if (analyzer.exportGraph(input)) {
+          System.out.println("已导出到 " + input);
+        }
+        return;
+      }
+      cursor = printPage(exporter, out, cursor);
+    }
+  }
 
-    // 添加节点和边到图中
-    for (Map.Entry<String, Map<String, Integer>> entrySource : graph.entrySet()) {
-      String source = entrySource.getKey();
-      Map<String, Integer> targets = entrySource.getValue();
+  // 打印从第 offset 个单词起的一页，返回下一页的 offset，已到末尾或出错时返回 -1
+  private static int printPage(GraphExporter exporter, Writer out, int offset) {
+    try {
+      return exporter.write(out, offset, PAGE_SIZE);
+    } catch (IOException e) {
+      System.err.println("Error writing graph: " + e.getMessage());
+      return -1;
+    }
+  }
 
-      // 添加源节点（如果不存在）
-      if (directedGraph.getNode(source) == null) {
-        directedGraph.addNode(source).setAttribute("ui.label", source);
-        directedGraph.getNode(source)
-            .setAttribute("ui.style", "text-size: 20px; text-color: blue;");
-      }
+  /**
+   * 批量查询（见 {@link BatchQueryRunner}）：从 queryPath 读入查询，"-" 表示标准输入；
+   * 结果按输入顺序写入 outputPath，未指定时写到标准输出。统计信息写到标准错误，不混入结果。
+   */
+  @SuppressFBWarnings("PATH_TRAVERSAL_IN")
+  private static void runBatch(TextGraphAnalyzer analyzer, String queryPath, String outputPath) {
+    long startTime = System.nanoTime();
+    int parallelism = Runtime.getRuntime().availableProcessors();
+    ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+    try (BufferedReader in = queryPath.equals("-")
+            ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+            : Files.newBufferedReader(Paths.get(queryPath), StandardCharsets.UTF_8);
+        Writer out = outputPath == null
+            ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8),
+                1 << 16)
+            : Files.newBufferedWriter(Paths.get(outputPath), StandardCharsets.UTF_8)) {
+      long count = new BatchQueryRunner(analyzer.freeze(), pool, parallelism).run(in, out);
+      System.err.printf("%d queries in %d ms%n", count,
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+    } catch (IOException e) {
+      System.err.println("Error running batch queries: " + e.getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      System.err.println("Batch queries interrupted");
+    } finally {
+      pool.shutdown();
+    }
+  }
 
-      // 遍历目标节点并添加节点和边
-      for (Map.Entry<String, Integer> entryTarget : targets.entrySet()) {
-        String target = entryTarget.getKey();
-        int weight = entryTarget.getValue();
+  /**
+   * 在本机回环地址的 port 端口上启动 HTTP 查询服务（见 {@link GraphHttpServer}），
+   * 之后由服务线程继续运行，直到进程结束。
+   */
+  private static void serve(TextGraphAnalyzer analyzer, String port) {
+    try {
+      GraphHttpServer server = GraphHttpServer.start(analyzer.freeze(),
+          new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(port)));
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1)));
+      System.err.println("Listening on http://localhost:" + server.port() + "/");
+    } catch (NumberFormatException e) {
+      System.err.println("Invalid port: " + port);
+    } catch (IOException e) {
+      System.err.println("Error starting server: " + e.getMessage());
+    }
+  }
 
-        // 添加目标节点（如果不存在）
-        if (directedGraph.getNode(target) == null) {
-          directedGraph.addNode(target).setAttribute("ui.label", target);
-          directedGraph.getNode(target)
-              .setAttribute("ui.style", "text-size: 20px; text-color: blue;");
-        }
+  /**
+   * 指定 -Dsjq.metrics=N 时启用度量：注册 JMX MBean，N 大于 0 时每 N 秒向标准错误输出一次报告。
+   * 未指定时不做任何记录。
+   */
+  private static GraphMetrics metrics() {
+    String period = System.getProperty("sjq.metrics");
+    if (period == null) {
+      return GraphMetrics.disabled();
+    }
+    TextGraphMetrics metrics = new TextGraphMetrics();
+    try {
+      metrics.register(TextGraphMetrics.DEFAULT_OBJECT_NAME);
+    } catch (JMException e) {
+      System.err.println("Error registering metrics MBean: " + e.getMessage());
+    }
+    try {
+      long seconds = Long.parseLong(period.trim());
+      if (seconds > 0) {
+        metrics.startReporting(seconds, TimeUnit.SECONDS, System.err::print);
+      }
+    } catch (NumberFormatException e) {
+      System.err.println("Invalid metrics period: " + period);
+    }
+    return metrics;
+  }
 
-        // 添加边（如果不存在）
-        String edgeId = source + "_" + target;
-        if (directedGraph.getEdge(edgeId) == null) {
-          Edge edge = directedGraph.addEdge(edgeId, source, target, true);
-          edge.setAttribute("weight", weight);
-          edge.setAttribute("ui.style", "text-size: 20px; text-color: red; arrow-size: 10px;");
-        }
+  /**
+   * 按 spec 选出子图（见 {@link GraphView#parse}）：exportPath 非空时不打开窗口，直接写成 DOT 或
+   * GraphML；否则打开窗口显示。spec 为空且图较大时只显示度数最高的 {@value #DEFAULT_TOP_K} 个单词。
+   */
+  @SuppressFBWarnings("PATH_TRAVERSAL_IN")
+  static void visualize(CsrGraph graph, String spec, String exportPath) {
+    GraphView view;
+    try {
+      if (spec.isBlank() && exportPath.isEmpty() && graph.edgeCount() > MAX_RENDERED_EDGES) {
+        System.out.println("图较大，只显示度数最高的 " + DEFAULT_TOP_K + " 个单词");
+        view = GraphView.topByDegree(graph, DEFAULT_TOP_K);
+      } else {
+        view = GraphView.parse(graph, spec);
       }
+    } catch (IllegalArgumentException e) {
+      System.out.println("无效的显示范围：" + spec);
+      return;
+    }
+    if (view == null) {
+      System.out.println("The word is not in the graph!");
+      return;
+    }
+    if (exportPath.isEmpty()) {
+      showDirectedGraph(view);
+      return;
     }
+    try {
+      view.export(Paths.get(exportPath).toAbsolutePath().normalize());
+      System.out.println("已导出 " + view.vertexCount() + " 个单词、" + view.edgeCount()
+          + " 条边到 " + exportPath);
+    } catch (IOException e) {
+      System.err.println("Error exporting graph: " + e.getMessage());
+    }
+  }
+
+  /**
+   * 显示子图。样式由整个图共用的一份样式表给出，每个元素只设置标签；
+   * 先打开窗口，再把顶点和边逐个加入，由查看器线程的代理管道陆续接收并布局。
+   * 边较多时隐藏边上的权重标签。
+   */
+  static void showDirectedGraph(GraphView view) {
+    System.setProperty("org.graphstream.ui", "swing");
+    CsrGraph graph = view.graph();
+    int edgeCount = view.edgeCount();
 
-    // 设置边标签
-    directedGraph.edges()
-        .forEach(edge -> edge.setAttribute("ui.label", edge.getAttribute("weight")));
+    // 创建有向图对象，按子图规模预留容量
+    Graph directedGraph = new SingleGraph("Directed Graph", false, false,
+        Math.max(1, view.vertexCount()), Math.max(1, edgeCount));
+    directedGraph.setAttribute("ui.stylesheet",
+        edgeCount > MAX_EDGE_LABELS ? STYLESHEET + UNLABELED_EDGES : STYLESHEET);
 
     // 显示图形
     Viewer viewer = directedGraph.display();
     viewer.setCloseFramePolicy(Viewer.CloseFramePolicy.HIDE_ONLY);
+
+    // 添加节点和边到图中，边的标签为权重
+    for (int v : view.vertices()) {
+      directedGraph.addNode(graph.word(v)).setAttribute("ui.label", graph.word(v));
+    }
+    int[] edgeId = {0};
+    view.forEachEdge((from, to, weight) -> directedGraph
+        .addEdge(Integer.toString(edgeId[0]++), graph.word(from), graph.word(to), true)
+        .setAttribute("ui.label", weight));
   }
 }
 
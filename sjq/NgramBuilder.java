@@ -0,0 +1,148 @@
+package sjq;
+
+import java.util.Arrays;
+
+/**
+ * n 元（order-k）模型的构建器：按顺序接收单词 ID，以最近的 k - 1 个单词为上下文，
+ * 统计每个上下文之后各单词出现的次数，最后冻结为 {@link NgramModel}。
+ * 单词由 {@link GraphBuilder} 分词编号后逐个送入，与单词图共用字典，
+ * 因此各种读入方式、分块并行构图和追加文本都同样得到 n 元模型；k = 2 时与单词图的边完全对应。
+ */
+final class NgramBuilder {
+  private final int order;
+  private final ContextTable contexts;
+  private final EdgeCounter transitions = new EdgeCounter(); // (上下文 ID, 下一个单词) 的次数
+  private final int[] head; // 最先的 order - 1 个单词，与前一段文本合并时用于拼接
+  private int headLength;
+  private final int[] window; // 最近的 order - 1 个单词
+  private int filled;
+
+  NgramBuilder(int order) {
+    this(order, 16);
+  }
+
+  /**
+   * 增量构建：在 base 的统计之上继续接收紧随其后的单词，上下文编号与 base 相同；base 本身不变。
+   * 与单词图的追加一样是写时复制，需要复制 base 的上下文与转移。
+   */
+  NgramBuilder(NgramModel base) {
+    this(base.order(), base.contextCount());
+    base.copyTo(contexts, transitions);
+    int[] tail = base.tail();
+    System.arraycopy(tail, 0, window, 0, tail.length);
+    filled = tail.length;
+  }
+
+  private NgramBuilder(int order, int expectedContexts) {
+    if (order < 2) {
+      throw new IllegalArgumentException("Order must be at least 2: " + order);
+    }
+    this.order = order;
+    this.contexts = new ContextTable(order - 1, expectedContexts);
+    this.head = new int[order - 1];
+    this.window = new int[order - 1];
+  }
+
+  int order() {
+    return order;
+  }
+
+  /** 接收下一个单词的 ID。 */
+  void accept(int word) {
+    if (headLength < head.length) {
+      head[headLength++] = word;
+    }
+    int width = window.length;
+    if (filled < width) {
+      window[filled++] = word;
+      return;
+    }
+    transitions.add(contexts.intern(window, 0), word, 1);
+    System.arraycopy(window, 1, window, 0, width - 1);
+    window[width - 1] = word;
+  }
+
+  /**
+   * 把紧随其后的一段文本的统计合并进来，remap 把对方的单词 ID 换成本方的。
+   * 先重放对方开头的单词得到拼接处的上下文，再按对方首次出现的顺序并入其余上下文，
+   * 因此上下文编号与顺序构建完全相同。
+   */
+  void append(NgramBuilder next, int[] remap) {
+    for (int i = 0; i < next.headLength; i++) {
+      accept(remap[next.head[i]]);
+    }
+    int width = window.length;
+    int[] contextOf = new int[next.contexts.size()];
+    int[] tuple = new int[width];
+    for (int c = 0; c < contextOf.length; c++) {
+      for (int i = 0; i < width; i++) {
+        tuple[i] = remap[next.contexts.word(c, i)];
+      }
+      contextOf[c] = contexts.intern(tuple, 0);
+    }
+    next.transitions.forEach((context, word, count) ->
+        transitions.add(contextOf[context], remap[word], count));
+    if (next.filled == width) {
+      for (int i = 0; i < width; i++) {
+        window[i] = remap[next.window[i]];
+      }
+    }
+  }
+
+  /**
+   * 冻结为模型，dictionary 为单词图的字典（ID 相同）。上下文按首个单词分组重新编号
+   * （组内保持首次出现的顺序），每个上下文之后的单词按 ID 升序排列。
+   */
+  NgramModel build(Vocabulary dictionary) {
+    int width = order - 1;
+    int contextCount = contexts.size();
+    int[] firstOffsets = new int[dictionary.size() + 1];
+    for (int c = 0; c < contextCount; c++) {
+      firstOffsets[contexts.word(c, 0) + 1]++;
+    }
+    for (int w = 0; w < dictionary.size(); w++) {
+      firstOffsets[w + 1] += firstOffsets[w];
+    }
+    // 计数排序：按首个单词分组后的新编号
+    int[] next = firstOffsets.clone();
+    int[] oldOf = new int[contextCount];
+    int[] newOf = new int[contextCount];
+    for (int c = 0; c < contextCount; c++) {
+      int id = next[contexts.word(c, 0)]++;
+      oldOf[id] = c;
+      newOf[c] = id;
+    }
+    ContextTable sorted = new ContextTable(width, contextCount);
+    int[] tuple = new int[width];
+    for (int id = 0; id < contextCount; id++) {
+      for (int i = 0; i < width; i++) {
+        tuple[i] = contexts.word(oldOf[id], i);
+      }
+      sorted.intern(tuple, 0);
+    }
+    sorted.trim();
+
+    long[] keys = new long[transitions.size()];
+    int[] n = {0};
+    transitions.forEach((context, word, count) ->
+        keys[n[0]++] = EdgeCounter.key(newOf[context], word));
+    Arrays.sort(keys);
+    int[] offsets = new int[contextCount + 1];
+    int[] nextWords = new int[keys.length];
+    int[] cumulative = new int[keys.length];
+    for (int e = 0; e < keys.length; e++) {
+      int context = EdgeCounter.from(keys[e]);
+      int word = EdgeCounter.to(keys[e]);
+      offsets[context + 1]++;
+      nextWords[e] = word;
+      int count = transitions.get(EdgeCounter.key(oldOf[context], word));
+      boolean rowStart = e == 0 || EdgeCounter.from(keys[e - 1]) != context;
+      cumulative[e] = rowStart ? count : cumulative[e - 1] + count;
+    }
+    for (int c = 0; c < contextCount; c++) {
+      offsets[c + 1] += offsets[c];
+    }
+    return new NgramModel(order, dictionary, sorted, firstOffsets, offsets, nextWords,
+        cumulative, Arrays.copyOf(window, filled));
+  }
+}
@@ -0,0 +1,298 @@
+package sjq;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * n 元（order-k）单词模型：顶点是由 k - 1 个单词组成的上下文，边是上下文之后出现的下一个单词，
+ * 权重为出现次数。上下文以单词 ID 元组的形式存放在 {@link ContextTable} 中，
+ * 转移按上下文排成 CSR：上下文 c 的后继单词位于 [offsets[c], offsets[c + 1])，按 ID 升序，
+ * 同一区间内保存累计次数，按权重抽样时二分查找。单词 ID 与单词图相同，字典与之共用。
+ * 创建后只读，可被多个线程共享。
+ */
+final class NgramModel {
+  private final int order;
+  private final Vocabulary dictionary; // 单词图的字典
+  private final ContextTable contexts; // 上下文按首个单词分组编号
+  private final int[] firstOffsets; // 首个单词为 w 的上下文位于 [firstOffsets[w], firstOffsets[w + 1])
+  private final int[] offsets;
+  private final int[] nextWords;
+  private final int[] cumulative; // 行内到第 e 个后继为止的累计次数
+  private final int[] tail; // 文本最后的至多 k - 1 个单词，追加文本时与之相连
+
+  NgramModel(int order, Vocabulary dictionary, ContextTable contexts, int[] firstOffsets,
+      int[] offsets, int[] nextWords, int[] cumulative, int[] tail) {
+    this.order = order;
+    this.dictionary = dictionary;
+    this.contexts = contexts;
+    this.firstOffsets = firstOffsets;
+    this.offsets = offsets;
+    this.nextWords = nextWords;
+    this.cumulative = cumulative;
+    this.tail = tail;
+  }
+
+  /** 由一段文本构建 order 阶模型。 */
+  static NgramModel fromText(CharSequence text, int order) {
+    GraphBuilder builder = new GraphBuilder(order);
+    builder.accept(text);
+    return builder.buildNgram(builder.dictionary());
+  }
+
+  int order() {
+    return order;
+  }
+
+  Vocabulary dictionary() {
+    return dictionary;
+  }
+
+  /** 文本最后的至多 k - 1 个单词的 ID。 */
+  int[] tail() {
+    return tail.clone();
+  }
+
+  int contextCount() {
+    return contexts.size();
+  }
+
+  /** 第 c 个上下文的第 i 个单词。 */
+  String contextWord(int c, int i) {
+    return dictionary.word(contexts.word(c, i));
+  }
+
+  /** 不同的（上下文, 下一个单词）对的数量。 */
+  int transitionCount() {
+    return nextWords.length;
+  }
+
+  /**
+   * 估算模型占用的堆内存（字节），含上下文表与转移数组，不含与单词图共用的字典。
+   * 每个上下文约占 4(k - 1) 字节元组、两个哈希槽位和一个行偏移，每个转移 8 字节。
+   */
+  long estimatedBytes() {
+    return contexts.estimatedBytes()
+        + intArrayBytes(firstOffsets.length) + intArrayBytes(offsets.length)
+        + intArrayBytes(nextWords.length) + intArrayBytes(cumulative.length);
+  }
+
+  private static long intArrayBytes(int length) {
+    return WordDictionary.align(16 + 4L * length);
+  }
+
+  /** k - 1 个单词组成的上下文之后 word 出现的次数，上下文不存在或单词不在其后时返回 0。 */
+  int count(String[] context, String word) {
+    if (context.length != order - 1) {
+      throw new IllegalArgumentException("Context must have " + (order - 1) + " words");
+    }
+    int[] ids = new int[context.length];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = dictionary.idOf(context[i]);
+      if (ids[i] < 0) {
+        return 0;
+      }
+    }
+    int c = contexts.idOf(ids, 0);
+    int w = dictionary.idOf(word);
+    if (c < 0 || w < 0) {
+      return 0;
+    }
+    int e = Arrays.binarySearch(nextWords, offsets[c], offsets[c + 1], w);
+    return e < 0 ? 0 : transitionCount(c, e);
+  }
+
+  // 上下文 c 的第 e 个转移的次数
+  private int transitionCount(int c, int e) {
+    return cumulative[e] - (e == offsets[c] ? 0 : cumulative[e - 1]);
+  }
+
+  /** 把上下文（按 ID 顺序）及各转移的次数复制到空的 target 与 counts 中，供增量构建继续累计。 */
+  void copyTo(ContextTable target, EdgeCounter counts) {
+    int[] tuple = new int[order - 1];
+    for (int c = 0; c < contexts.size(); c++) {
+      for (int i = 0; i < tuple.length; i++) {
+        tuple[i] = contexts.word(c, i);
+      }
+      target.intern(tuple, 0);
+      for (int e = offsets[c]; e < offsets[c + 1]; e++) {
+        counts.add(c, nextWords[e], transitionCount(c, e));
+      }
+    }
+  }
+
+  /**
+   * 查询桥接词：文本中以 “word1 b word2” 形式连续出现过的单词 b，多个以 ", " 分隔，按首次出现的顺序；
+   * 有单词不在模型中时返回 ""，没有桥接词时返回 " "，与 {@link TextGraphAnalyzer#queryBridgeWords} 一致。
+   * k = 2 时与单词图的桥接词相同；k 大于 3 时，文本最后 k - 3 个单词开头的三元组不计在内。
+   */
+  String queryBridgeWords(String word1, String word2) {
+    int from = dictionary.idOf(word1);
+    int to = dictionary.idOf(word2);
+    if (from < 0 || to < 0) {
+      return "";
+    }
+    int width = order - 1;
+    int[] bridges = new int[16];
+    int count = 0;
+    if (width == 1) {
+      int[] single = {from};
+      int c = contexts.idOf(single, 0);
+      for (int e = c < 0 ? 0 : offsets[c]; c >= 0 && e < offsets[c + 1]; e++) {
+        single[0] = nextWords[e];
+        int b = contexts.idOf(single, 0);
+        if (b >= 0 && Arrays.binarySearch(nextWords, offsets[b], offsets[b + 1], to) >= 0) {
+          bridges = append(bridges, count++, nextWords[e]);
+        }
+      }
+    } else {
+      // 首个单词为 word1 的上下文中，第二个单词即候选桥接词，其后紧跟 word2 即为桥接词
+      for (int c = firstOffsets[from]; c < firstOffsets[from + 1]; c++) {
+        boolean followed = width == 2
+            ? Arrays.binarySearch(nextWords, offsets[c], offsets[c + 1], to) >= 0
+            : contexts.word(c, 2) == to;
+        if (followed) {
+          bridges = append(bridges, count++, contexts.word(c, 1));
+        }
+      }
+    }
+    if (count == 0) {
+      return " ";
+    }
+    Arrays.sort(bridges, 0, count);
+    StringBuilder joinResult = new StringBuilder(dictionary.word(bridges[0]));
+    for (int i = 1; i < count; i++) {
+      if (bridges[i] != bridges[i - 1]) {
+        joinResult.append(", ").append(dictionary.word(bridges[i]));
+      }
+    }
+    return joinResult.toString();
+  }
+
+  private static int[] append(int[] array, int index, int value) {
+    int[] result = index == array.length ? Arrays.copyOf(array, index * 2) : array;
+    result[index] = value;
+    return result;
+  }
+
+  /** 按次数比例抽取上下文 c 之后的一个转移，没有后继时返回 -1。 */
+  int sampleTransition(int c, RandomGenerator random) {
+    int begin = offsets[c];
+    int end = offsets[c + 1];
+    if (begin == end) {
+      return -1;
+    }
+    int r = random.nextInt(cumulative[end - 1]);
+    // 第一个累计次数大于 r 的位置
+    int lo = begin;
+    int hi = end - 1;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (cumulative[mid] > r) {
+        hi = mid;
+      } else {
+        lo = mid + 1;
+      }
+    }
+    return lo;
+  }
+
+  /**
+   * 随机游走：从随机上下文出发，按次数比例选择下一个单词并滑动上下文，
+   * 走到重复的转移、没有后继或达到 maxSteps 步（不大于 0 表示不限）为止。模型为空时返回 ""。
+   */
+  String randomWalk(int maxSteps, RandomGenerator random) {
+    if (contexts.size() == 0) {
+      return "";
+    }
+    Walk walk = newWalk();
+    walk.reset(random.nextInt(contexts.size()));
+    walk.run(random, maxSteps);
+    return walk.appendTo(new StringBuilder()).toString();
+  }
+
+  /** 新建一个可重复使用的游走状态；每个线程使用各自的实例。 */
+  Walk newWalk() {
+    return new Walk();
+  }
+
+  /** 一次游走的状态，与 {@link RandomWalker.Walk} 相同，以位图记录走过的转移。 */
+  final class Walk {
+    private final long[] visited = new long[(nextWords.length + 63) >>> 6];
+    private final int[] window = new int[order - 1];
+    private int[] touched = new int[16];
+    private int touchedCount;
+    private int[] words = new int[16];
+    private int length;
+    private int context; // 当前上下文，走到文本末尾的上下文时为 -1
+
+    /** 从上下文 start 开始新的一次游走，上下文中的单词即游走的开头。 */
+    void reset(int start) {
+      for (int i = 0; i < touchedCount; i++) {
+        visited[touched[i]] = 0;
+      }
+      touchedCount = 0;
+      length = 0;
+      context = start;
+      for (int i = 0; i < window.length; i++) {
+        window[i] = contexts.word(start, i);
+        append(window[i]);
+      }
+    }
+
+    /** 走一步；没有后继或选中的转移已走过时返回 false，游走结束。 */
+    boolean step(RandomGenerator random) {
+      int e = context < 0 ? -1 : sampleTransition(context, random);
+      if (e < 0) {
+        return false;
+      }
+      int word = e >>> 6;
+      long bit = 1L << e;
+      if ((visited[word] & bit) != 0) {
+        return false; // 转移重复，结束
+      }
+      if (visited[word] == 0) {
+        if (touchedCount == touched.length) {
+          touched = Arrays.copyOf(touched, touchedCount * 2);
+        }
+        touched[touchedCount++] = word;
+      }
+      visited[word] |= bit;
+      append(nextWords[e]);
+      System.arraycopy(window, 1, window, 0, window.length - 1);
+      window[window.length - 1] = nextWords[e];
+      context = contexts.idOf(window, 0);
+      return true;
+    }
+
+    /** 连续游走直到结束或达到 maxSteps 步（不大于 0 表示不限）。 */
+    void run(RandomGenerator random, int maxSteps) {
+      int steps = 0;
+      while ((maxSteps <= 0 || steps < maxSteps) && step(random)) {
+        steps++;
+      }
+    }
+
+    /** 走过的单词数（包括起始上下文）。 */
+    int length() {
+      return length;
+    }
+
+    /** 把走过的单词以空格分隔追加到 out。 */
+    StringBuilder appendTo(StringBuilder out) {
+      for (int i = 0; i < length; i++) {
+        if (i > 0) {
+          out.append(' ');
+        }
+        out.append(dictionary.word(words[i]));
+      }
+      return out;
+    }
+
+    private void append(int word) {
+      if (length == words.length) {
+        words = Arrays.copyOf(words, length * 2);
+      }
+      words[length++] = word;
+    }
+  }
+}
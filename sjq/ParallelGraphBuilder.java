@@ -0,0 +1,137 @@
+package sjq;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * 并行构图：把文件按字节区间切块，各块在 ForkJoinPool 上各自构图，再按顺序合并。
+ * 切分点总是落在非字母字节之后，不会切断单词，块与块之间的单词对在合并时拼接，
+ * 因此结果（包括可选的 n 元模型）与顺序构图完全一致。
+ */
+final class ParallelGraphBuilder {
+  private static final int MIN_CHUNK_SIZE = 1 << 20; // 1MB
+  private static final int MAX_CHUNK_SIZE = 64 << 20; // 64MB，限制每个任务的缓冲区大小
+  private static final int SCAN_BUFFER_SIZE = 8192;
+
+  private final ForkJoinPool pool;
+  private final int chunkSize; // 固定的块大小（字节），0 表示按文件大小和并行度计算
+
+  ParallelGraphBuilder(ForkJoinPool pool) {
+    this(pool, 0);
+  }
+
+  /** 按固定的块大小切分，便于用很小的块验证块与块之间的拼接。 */
+  ParallelGraphBuilder(ForkJoinPool pool, int chunkSize) {
+    if (chunkSize < 0) {
+      throw new IllegalArgumentException("Negative chunk size: " + chunkSize);
+    }
+    this.pool = pool;
+    this.chunkSize = chunkSize;
+  }
+
+  /** 并行读取文件并构图。 */
+  GraphBuilder build(Path file) throws IOException {
+    return build(file, 0);
+  }
+
+  /** 并行读取文件并构图，同时统计 ngramOrder 阶的 n 元模型，0 表示不统计。 */
+  GraphBuilder build(Path file, int ngramOrder) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long[] bounds = splitAtSeparators(channel, chunkSize(channel.size()));
+      List<Callable<GraphBuilder>> tasks = new ArrayList<>();
+      for (int i = 0; i + 1 < bounds.length; i++) {
+        long start = bounds[i];
+        int length = (int) (bounds[i + 1] - start);
+        tasks.add(() -> buildChunk(channel, start, length, ngramOrder));
+      }
+
+      // 按块的先后顺序合并，保证单词编号与顺序构图一致
+      GraphBuilder result = new GraphBuilder(ngramOrder);
+      for (Future<GraphBuilder> future : pool.invokeAll(tasks)) {
+        result.append(future.get());
+      }
+      return result;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Graph building interrupted");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private int chunkSize(long fileSize) {
+    if (chunkSize > 0) {
+      return chunkSize;
+    }
+    long perTask = fileSize / (pool.getParallelism() * 4L);
+    return (int) Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, perTask));
+  }
+
+  /** 计算切分点：从每个预定位置向后找到下一个非字母字节，切在其后。 */
+  private static long[] splitAtSeparators(FileChannel channel, int chunkSize) throws IOException {
+    long size = channel.size();
+    List<Long> bounds = new ArrayList<>();
+    bounds.add(0L);
+    ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+    long position = chunkSize;
+    while (position < size) {
+      long boundary = size;
+      scan:
+      while (position < size) {
+        buffer.clear();
+        int n = channel.read(buffer, position);
+        if (n <= 0) {
+          break;
+        }
+        for (int i = 0; i < n; i++) {
+          if (!WordTokenizer.isAsciiLetter(buffer.get(i) & 0xFF)) {
+            boundary = position + i + 1;
+            break scan;
+          }
+        }
+        position += n;
+      }
+      if (boundary < size) {
+        bounds.add(boundary);
+      }
+      position = boundary + chunkSize;
+    }
+    bounds.add(size);
+    long[] result = new long[bounds.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = bounds.get(i);
+      if (i > 0 && result[i] - result[i - 1] > Integer.MAX_VALUE - 8) {
+        throw new IOException("Word too long to split at offset " + result[i - 1]);
+      }
+    }
+    return result;
+  }
+
+  private static GraphBuilder buildChunk(FileChannel channel, long start, int length,
+      int ngramOrder) throws IOException {
+    byte[] bytes = new byte[length];
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, start + buffer.position()) < 0) {
+        break;
+      }
+    }
+    // 直接按字节分词，无需解码为字符
+    GraphBuilder builder = new GraphBuilder(ngramOrder);
+    builder.accept(bytes, 0, buffer.position());
+    return builder;
+  }
+}
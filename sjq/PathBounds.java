@@ -0,0 +1,133 @@
+package sjq;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 最短路径查询的界限：路径总权重、路径边数，以及搜索预算（出队的顶点数、耗时）。
+ * 前两者限定答案，超出的路径视为不存在；预算只限制搜索本身，用完时答案未知。
+ * 不可变，默认 {@link #NONE} 不设任何限制。
+ */
+final class PathBounds {
+  static final int UNBOUNDED = Integer.MAX_VALUE;
+  static final PathBounds NONE = new PathBounds(UNBOUNDED, UNBOUNDED, Long.MAX_VALUE,
+      Long.MAX_VALUE);
+
+  private final int maxWeight;
+  private final int maxHops;
+  private final long maxSettled;
+  private final long timeoutNanos;
+
+  private PathBounds(int maxWeight, int maxHops, long maxSettled, long timeoutNanos) {
+    this.maxWeight = maxWeight;
+    this.maxHops = maxHops;
+    this.maxSettled = maxSettled;
+    this.timeoutNanos = timeoutNanos;
+  }
+
+  /** 路径总权重不超过 maxWeight。 */
+  PathBounds withMaxWeight(int maxWeight) {
+    return new PathBounds(requireNonNegative(maxWeight, "weight"), maxHops, maxSettled,
+        timeoutNanos);
+  }
+
+  /** 路径至多 maxHops 条边。 */
+  PathBounds withMaxHops(int maxHops) {
+    return new PathBounds(maxWeight, requireNonNegative(maxHops, "hops"), maxSettled,
+        timeoutNanos);
+  }
+
+  /** 搜索中至多出队 maxSettled 个顶点（k 条路径时为各次搜索之和）。 */
+  PathBounds withMaxSettled(long maxSettled) {
+    return new PathBounds(maxWeight, maxHops, requireNonNegative(maxSettled, "nodes"),
+        timeoutNanos);
+  }
+
+  /** 搜索至多耗时 timeout。 */
+  PathBounds withTimeout(long timeout, TimeUnit unit) {
+    return new PathBounds(maxWeight, maxHops, maxSettled,
+        unit.toNanos(requireNonNegative(timeout, "timeout")));
+  }
+
+  private static int requireNonNegative(int value, String name) {
+    return (int) requireNonNegative((long) value, name);
+  }
+
+  private static long requireNonNegative(long value, String name) {
+    if (value < 0) {
+      throw new IllegalArgumentException("Negative " + name + ": " + value);
+    }
+    return value;
+  }
+
+  int maxWeight() {
+    return maxWeight;
+  }
+
+  int maxHops() {
+    return maxHops;
+  }
+
+  long maxSettled() {
+    return maxSettled;
+  }
+
+  long timeoutNanos() {
+    return timeoutNanos;
+  }
+
+  /**
+   * 解析以空白分隔的 name=value 列表：weight（总权重）、hops（边数）、nodes（出队顶点数）、
+   * ms（毫秒）。空串即 {@link #NONE}；名称未知或数值无效时抛出 IllegalArgumentException。
+   */
+  static PathBounds parse(String spec) {
+    PathBounds bounds = NONE;
+    for (String option : spec.trim().split("\\s+")) {
+      if (option.isEmpty()) {
+        continue;
+      }
+      int equals = option.indexOf('=');
+      if (equals < 0) {
+        throw new IllegalArgumentException("Invalid bound: " + option);
+      }
+      String name = option.substring(0, equals).toLowerCase(Locale.ROOT);
+      String value = option.substring(equals + 1);
+      switch (name) {
+        case "weight":
+          bounds = bounds.withMaxWeight(Integer.parseInt(value));
+          break;
+        case "hops":
+          bounds = bounds.withMaxHops(Integer.parseInt(value));
+          break;
+        case "nodes":
+          bounds = bounds.withMaxSettled(Long.parseLong(value));
+          break;
+        case "ms":
+          bounds = bounds.withTimeout(Long.parseLong(value), TimeUnit.MILLISECONDS);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown bound: " + name);
+      }
+    }
+    return bounds;
+  }
+
+  /** 与 {@link #parse} 相同的形式，只列出设置了的项。 */
+  @Override
+  public String toString() {
+    StringBuilder spec = new StringBuilder();
+    if (maxWeight != UNBOUNDED) {
+      spec.append(" weight=").append(maxWeight);
+    }
+    if (maxHops != UNBOUNDED) {
+      spec.append(" hops=").append(maxHops);
+    }
+    if (maxSettled != Long.MAX_VALUE) {
+      spec.append(" nodes=").append(maxSettled);
+    }
+    if (timeoutNanos != Long.MAX_VALUE) {
+      spec.append(" ms=").append(TimeUnit.NANOSECONDS.toMillis(timeoutNanos));
+    }
+    return spec.toString().trim();
+  }
+}
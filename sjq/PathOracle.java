@@ -0,0 +1,141 @@
+package sjq;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * 最短路径预计算缓存：对一批起点并行地做全图 Dijkstra，保存各自的最短路径树，
+ * 之后以这些单词为起点的路径查询只需沿前驱回溯。
+ * 起点按度数（出度加入度）从高到低选取，数量受内存预算限制；未缓存的起点由调用方现算。
+ * 创建后不再修改，可以被多个线程共享。
+ */
+final class PathOracle {
+  private final int[] slotOf; // 顶点在 trees 中的下标，-1 表示未缓存
+  private final ShortestPathTree[] trees;
+
+  private PathOracle(int[] slotOf, ShortestPathTree[] trees) {
+    this.slotOf = slotOf;
+    this.trees = trees;
+  }
+
+  /**
+   * 预计算最短路径树。
+   *
+   * @param maxSources 最多缓存的起点数，不大于 0 表示全部顶点
+   * @param memoryBudget 缓存可用的内存（字节），每棵树约占 8 × 顶点数 字节
+   */
+  static PathOracle precompute(CsrGraph graph, int maxSources, long memoryBudget,
+      ForkJoinPool pool) throws InterruptedException {
+    int n = graph.vertexCount();
+    long byBudget = n == 0 ? 0 : memoryBudget / (8L * n);
+    int count = (int) Math.min(maxSources > 0 ? Math.min(maxSources, n) : n, byBudget);
+    int[] sources = topByDegree(graph, count);
+
+    ShortestPathTree[] trees = new ShortestPathTree[count];
+    int workers = Math.max(1, Math.min(pool.getParallelism(), count));
+    List<Callable<Void>> tasks = new ArrayList<>();
+    for (int w = 0; w < workers; w++) {
+      int first = w;
+      tasks.add(() -> {
+        // 每个任务使用自己的引擎，按步长分配起点
+        ShortestPathEngine engine = new ShortestPathEngine(graph);
+        for (int i = first; i < count; i += workers) {
+          engine.run(sources[i], -1);
+          trees[i] = ShortestPathTree.of(engine, sources[i], n);
+        }
+        return null;
+      });
+    }
+    try {
+      for (Future<Void> future : pool.invokeAll(tasks)) {
+        future.get();
+      }
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+
+    int[] slotOf = new int[n];
+    Arrays.fill(slotOf, -1);
+    for (int i = 0; i < count; i++) {
+      slotOf[sources[i]] = i;
+    }
+    return new PathOracle(slotOf, trees);
+  }
+
+  // 度数最高的 count 个顶点，度数相同时 ID 小者优先
+  private static int[] topByDegree(CsrGraph graph, int count) {
+    int n = graph.vertexCount();
+    if (count >= n) {
+      int[] all = new int[n];
+      Arrays.setAll(all, v -> v);
+      return all;
+    }
+    long[] keyed = new long[n];
+    for (int v = 0; v < n; v++) {
+      long degree = graph.outDegree(v) + (long) graph.inDegree(v);
+      keyed[v] = (-degree << 32) | v; // 度数取负，升序排序即按度数降序
+    }
+    Arrays.sort(keyed);
+    int[] result = new int[count];
+    for (int i = 0; i < count; i++) {
+      result[i] = (int) keyed[i];
+    }
+    return result;
+  }
+
+  /**
+   * 图追加文本后保留仍然有效的树：changedSources 是出边新增或权重改变的顶点，
+   * 从起点到不了其中任何一个的树不受影响，扩展到 vertexCount 个顶点后保留，其余丢弃。
+   */
+  PathOracle retain(int[] changedSources, int vertexCount) {
+    List<ShortestPathTree> kept = new ArrayList<>();
+    for (ShortestPathTree tree : trees) {
+      boolean affected = false;
+      for (int v : changedSources) {
+        if (v < tree.vertexCount() && tree.isReachable(v)) {
+          affected = true;
+          break;
+        }
+      }
+      if (!affected) {
+        kept.add(tree.resize(vertexCount));
+      }
+    }
+    int[] newSlotOf = new int[vertexCount];
+    Arrays.fill(newSlotOf, -1);
+    for (int i = 0; i < kept.size(); i++) {
+      newSlotOf[kept.get(i).source()] = i;
+    }
+    return new PathOracle(newSlotOf, kept.toArray(new ShortestPathTree[0]));
+  }
+
+  /** 是否缓存了以 source 为起点的最短路径树。 */
+  boolean covers(int source) {
+    return slotOf[source] >= 0;
+  }
+
+  /** 以 source 为起点的最短路径树，未缓存时返回 null。 */
+  ShortestPathTree tree(int source) {
+    int slot = slotOf[source];
+    return slot < 0 ? null : trees[slot];
+  }
+
+  /** 缓存的起点数。 */
+  int sourceCount() {
+    return trees.length;
+  }
+
+  /** 缓存占用的内存（字节）。 */
+  long memoryBytes() {
+    long total = 4L * slotOf.length;
+    for (ShortestPathTree tree : trees) {
+      total += tree.memoryBytes();
+    }
+    return total;
+  }
+}
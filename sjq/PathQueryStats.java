@@ -0,0 +1,43 @@
+package sjq;
+
+/**
+ * 一次两点间最短路径查询的统计信息。
+ */
+final class PathQueryStats {
+  private final PathSearchMode mode;
+  private final long elapsedNanos;
+  private final int settledCount;
+  private final int distance;
+
+  PathQueryStats(PathSearchMode mode, long elapsedNanos, int settledCount, int distance) {
+    this.mode = mode;
+    this.elapsedNanos = elapsedNanos;
+    this.settledCount = settledCount;
+    this.distance = distance;
+  }
+
+  public PathSearchMode getMode() {
+    return mode;
+  }
+
+  /** 查询耗时（纳秒），不含参数检查和结果字符串拼接。 */
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  /** 搜索中确定了最短距离的顶点数。 */
+  public int getSettledCount() {
+    return settledCount;
+  }
+
+  /** 最短路径长度，不可达时为 -1。 */
+  public int getDistance() {
+    return distance;
+  }
+
+  @Override
+  public String toString() {
+    return mode + ": " + elapsedNanos / 1000 + "us, settled " + settledCount
+        + ", distance " + distance;
+  }
+}
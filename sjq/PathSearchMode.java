@@ -0,0 +1,13 @@
+package sjq;
+
+/**
+ * 两点间最短路径的搜索方式，各方式返回的路径和长度完全相同，只是访问的顶点数不同。
+ */
+enum PathSearchMode {
+  /** 从起点出发的单向 Dijkstra。 */
+  DIJKSTRA,
+  /** 起点沿出边、终点沿入边同时搜索，在中间相遇。 */
+  BIDIRECTIONAL,
+  /** 以预先计算的地标距离为下界的 A* 搜索（ALT）。 */
+  ALT
+}
@@ -0,0 +1,186 @@
+package sjq;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * 两点间最短路径搜索：单向 Dijkstra、双向 Dijkstra 与 ALT（地标 A*）。
+ * 三种方式返回完全相同的路径：存在多条等长路径时，都取单向 Dijkstra 会选出的那一条
+ * （每个顶点的前驱取出队最早者，即距离最小、其次单词字典序最小）。
+ * 实例不是线程安全的。
+ */
+final class PointToPointSearch {
+  static final int DEFAULT_LANDMARKS = 8;
+  private static final int INF = ShortestPathEngine.INF;
+
+  private final CsrGraph graph;
+  private final ShortestPathEngine forward;
+  private final ShortestPathEngine backward;
+  private final ShortestPathEngine completion; // 双向搜索结束后补算反向区域内的正向距离
+  private final Supplier<Landmarks> landmarkSource;
+  private Landmarks landmarks; // 首次使用 ALT 时取得
+  private int distance = INF;
+  private int settledCount;
+
+  PointToPointSearch(CsrGraph graph, int landmarkCount) {
+    this(graph, () -> Landmarks.select(graph, landmarkCount));
+  }
+
+  /** 地标由 landmarks 提供（首次 ALT 搜索时取用一次），可在多个搜索实例间共享。 */
+  PointToPointSearch(CsrGraph graph, Supplier<Landmarks> landmarks) {
+    this.graph = graph;
+    this.forward = new ShortestPathEngine(graph, false);
+    this.backward = new ShortestPathEngine(graph, true);
+    this.completion = new ShortestPathEngine(graph, false);
+    this.landmarkSource = landmarks;
+  }
+
+  /** 以指定方式搜索 source 到 target 的最短路径，返回顶点序列，不可达时返回 null。 */
+  int[] search(int source, int target, PathSearchMode mode) {
+    switch (mode) {
+      case BIDIRECTIONAL:
+        return bidirectional(source, target);
+      case ALT:
+        return alt(source, target);
+      default:
+        return dijkstra(source, target);
+    }
+  }
+
+  /** 最近一次搜索得到的最短距离，不可达时为 INF。 */
+  int distance() {
+    return distance;
+  }
+
+  /** 最近一次搜索中确定了距离的顶点总数。 */
+  int settledCount() {
+    return settledCount;
+  }
+
+  /** 预先计算地标（ALT 搜索首次使用时也会自动计算）。 */
+  void prepareLandmarks() {
+    if (landmarks == null) {
+      landmarks = landmarkSource.get();
+    }
+  }
+
+  private int[] dijkstra(int source, int target) {
+    forward.run(source, target);
+    settledCount = forward.settledCount();
+    distance = forward.distance(target);
+    return forward.path(target);
+  }
+
+  private int[] alt(int source, int target) {
+    prepareLandmarks();
+    Landmarks bounds = landmarks;
+    forward.start(target, v -> bounds.lowerBound(v, target), null);
+    forward.seed(source, 0);
+    while (!forward.isEmpty()) {
+      if (forward.settleNext() == target) {
+        break;
+      }
+    }
+    settledCount = forward.settledCount();
+    distance = forward.distance(target);
+    return forward.path(target);
+  }
+
+  private int[] bidirectional(int source, int target) {
+    if (source == target) {
+      settledCount = 0;
+      distance = 0;
+      return new int[] {source};
+    }
+    forward.start(-1, null, null);
+    forward.seed(source, 0);
+    backward.start(-1, null, null);
+    backward.seed(target, 0);
+    long best = INF; // 目前找到的最短 source→target 距离
+
+    // 两侧堆顶距离之和严格大于 best 时停止，此时每条最短路径上的顶点都已在某一侧出队
+    while (!forward.isEmpty() && !backward.isEmpty()
+        && (long) forward.peekDistance() + backward.peekDistance() <= best) {
+      boolean forwardSide = forward.peekDistance() <= backward.peekDistance();
+      ShortestPathEngine side = forwardSide ? forward : backward;
+      ShortestPathEngine other = forwardSide ? backward : forward;
+      int u = side.settleNext();
+      if (other.distance(u) != INF) {
+        best = Math.min(best, (long) side.distance(u) + other.distance(u));
+      }
+    }
+    settledCount = forward.settledCount() + backward.settledCount();
+    distance = (int) best;
+    if (best == INF) {
+      return null;
+    }
+    completeForwardDistances();
+    settledCount += completion.settledCount();
+    return canonicalPath(source, target);
+  }
+
+  /**
+   * 只在反向出队、正向未出队的顶点之间，从正向的临时距离出发再做一次 Dijkstra。
+   * 最短路径上的顶点经此都能得到准确的正向距离。
+   */
+  private void completeForwardDistances() {
+    completion.start(-1, null, v -> backward.isSettled(v) && !forward.isSettled(v));
+    for (int i = 0; i < backward.settledCount(); i++) {
+      int v = backward.settledVertex(i);
+      if (!forward.isSettled(v) && forward.distance(v) != INF) {
+        completion.seed(v, forward.distance(v));
+      }
+    }
+    while (!completion.isEmpty()) {
+      completion.settleNext();
+    }
+  }
+
+  // 从起点到 u 的已知最短距离上界；对最短路径上的顶点它就是准确值
+  private int forwardUpperBound(int u) {
+    if (forward.isSettled(u)) {
+      return forward.distance(u);
+    }
+    return Math.min(forward.distance(u), completion.distance(u));
+  }
+
+  /**
+   * 从终点沿入边回溯：前驱 u 需满足 dist(u) + w = dist(v)，
+   * 多个候选时取 dist(u) 最小（即 w 最大）、其次字典序最小者，与单向 Dijkstra 的选择一致。
+   */
+  private int[] canonicalPath(int source, int target) {
+    int[] rank = graph.lexRank();
+    int[] reversed = new int[16];
+    int length = 0;
+    int v = target;
+    int dv = distance;
+    reversed[length++] = v;
+    while (v != source) {
+      int best = -1;
+      int bestWeight = 0;
+      for (int i = graph.inBegin(v); i < graph.inEnd(v); i++) {
+        int u = graph.source(i);
+        int w = graph.inWeight(i);
+        if (w <= dv && forwardUpperBound(u) == dv - w
+            && (best < 0 || w > bestWeight || (w == bestWeight && rank[u] < rank[best]))) {
+          best = u;
+          bestWeight = w;
+        }
+      }
+      if (best < 0) {
+        throw new IllegalStateException("Broken shortest path at " + graph.word(v));
+      }
+      v = best;
+      dv -= bestWeight;
+      if (length == reversed.length) {
+        reversed = Arrays.copyOf(reversed, length * 2);
+      }
+      reversed[length++] = v;
+    }
+    int[] path = new int[length];
+    for (int i = 0; i < length; i++) {
+      path[i] = reversed[length - 1 - i];
+    }
+    return path;
+  }
+}
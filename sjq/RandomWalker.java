@@ -0,0 +1,177 @@
+package sjq;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * 随机游走引擎：按边的权重比例选择下一跳，每个顶点预先建好 Walker/Vose 别名表，
+ * 每一步只需两次随机数和两次数组访问。别名表与 CSR 的边一一对应，共两个 int[]。
+ * 已走过的边以边下标记录在位图中，遇到重复的边或没有出边时游走结束。
+ * 别名表创建后只读，可被多个线程共享；位图等游走状态由 {@link Walk} 持有，每个线程各用一个。
+ */
+final class RandomWalker {
+  private static final long SCALE = 1L << 31; // 概率放大到 [0, 2^31) 的整数
+
+  private final CsrGraph graph;
+  private final int[] threshold; // 随机数小于该值时取本条边，否则取别名边
+  private final int[] alias; // 别名边在本行内的偏移
+
+  RandomWalker(CsrGraph graph) {
+    this.graph = graph;
+    this.threshold = new int[graph.edgeCount()];
+    this.alias = new int[graph.edgeCount()];
+    int maxDegree = 0;
+    for (int v = 0; v < graph.vertexCount(); v++) {
+      maxDegree = Math.max(maxDegree, graph.outDegree(v));
+    }
+    long[] scaled = new long[maxDegree];
+    int[] small = new int[maxDegree];
+    int[] large = new int[maxDegree];
+    for (int v = 0; v < graph.vertexCount(); v++) {
+      buildRow(v, scaled, small, large);
+    }
+  }
+
+  /**
+   * Vose 算法：把每条边的权重乘以出度，与总权重比较分为“小”“大”两组，
+   * 每次用一条大边补满一条小边；分组与补差都用整数计算，只有最后换算阈值时用浮点。
+   */
+  private void buildRow(int v, long[] scaled, int[] small, int[] large) {
+    int begin = graph.begin(v);
+    int degree = graph.outDegree(v);
+    long total = 0;
+    for (int i = 0; i < degree; i++) {
+      total += graph.weight(begin + i);
+    }
+    int smallCount = 0;
+    int largeCount = 0;
+    for (int i = 0; i < degree; i++) {
+      scaled[i] = (long) graph.weight(begin + i) * degree;
+      if (scaled[i] < total) {
+        small[smallCount++] = i;
+      } else {
+        large[largeCount++] = i;
+      }
+    }
+    while (smallCount > 0 && largeCount > 0) {
+      int s = small[--smallCount];
+      int l = large[largeCount - 1];
+      threshold[begin + s] = (int) ((double) scaled[s] / total * SCALE);
+      alias[begin + s] = l;
+      scaled[l] -= total - scaled[s];
+      if (scaled[l] < total) {
+        largeCount--;
+        small[smallCount++] = l;
+      }
+    }
+    // 剩余的边（包括舍入误差造成的）总是取自身
+    while (largeCount > 0) {
+      int l = large[--largeCount];
+      threshold[begin + l] = Integer.MAX_VALUE;
+      alias[begin + l] = l;
+    }
+    while (smallCount > 0) {
+      int s = small[--smallCount];
+      threshold[begin + s] = Integer.MAX_VALUE;
+      alias[begin + s] = s;
+    }
+  }
+
+  /** 按权重比例随机选择 v 的一条出边，返回边下标；没有出边时返回 -1。 */
+  int sampleEdge(int v, RandomGenerator random) {
+    int degree = graph.outDegree(v);
+    if (degree == 0) {
+      return -1;
+    }
+    int e = graph.begin(v) + random.nextInt(degree);
+    return random.nextInt(Integer.MAX_VALUE) < threshold[e] ? e : graph.begin(v) + alias[e];
+  }
+
+  /** 新建一份游走状态，可反复用于多次游走。 */
+  Walk newWalk() {
+    return new Walk();
+  }
+
+  /**
+   * 一次游走的状态：当前顶点、走过的顶点序列和走过的边的位图。
+   * 位图只清除本次置过的位，重新开始一次游走的代价与上次的步数成正比。
+   */
+  final class Walk {
+    private final long[] visited = new long[(graph.edgeCount() + 63) >>> 6];
+    private int[] touched = new int[16]; // 置过位的 long 下标
+    private int touchedCount;
+    private int[] vertices = new int[16];
+    private int length;
+
+    /** 从 start 开始新的一次游走。 */
+    void reset(int start) {
+      for (int i = 0; i < touchedCount; i++) {
+        visited[touched[i]] = 0;
+      }
+      touchedCount = 0;
+      length = 0;
+      append(start);
+    }
+
+    /** 走一步；没有出边或选中的边已走过时返回 false，游走结束。 */
+    boolean step(RandomGenerator random) {
+      int e = sampleEdge(vertices[length - 1], random);
+      if (e < 0) {
+        return false;
+      }
+      int word = e >>> 6;
+      long bit = 1L << e;
+      if ((visited[word] & bit) != 0) {
+        return false; // 边重复，结束
+      }
+      if (visited[word] == 0) {
+        if (touchedCount == touched.length) {
+          touched = Arrays.copyOf(touched, touchedCount * 2);
+        }
+        touched[touchedCount++] = word;
+      }
+      visited[word] |= bit;
+      append(graph.target(e));
+      return true;
+    }
+
+    /** 连续游走直到结束或达到 maxSteps 步（不大于 0 表示不限）。 */
+    void run(RandomGenerator random, int maxSteps) {
+      while ((maxSteps <= 0 || length - 1 < maxSteps) && step(random)) {
+        // 继续游走
+      }
+    }
+
+    /** 当前所在的顶点。 */
+    int current() {
+      return vertices[length - 1];
+    }
+
+    /** 走过的顶点数（包括起点）。 */
+    int length() {
+      return length;
+    }
+
+    int vertex(int i) {
+      return vertices[i];
+    }
+
+    /** 把走过的单词以空格分隔追加到 out。 */
+    StringBuilder appendTo(StringBuilder out) {
+      for (int i = 0; i < length; i++) {
+        if (i > 0) {
+          out.append(' ');
+        }
+        out.append(graph.word(vertices[i]));
+      }
+      return out;
+    }
+
+    private void append(int v) {
+      if (length == vertices.length) {
+        vertices = Arrays.copyOf(vertices, length * 2);
+      }
+      vertices[length++] = v;
+    }
+  }
+}
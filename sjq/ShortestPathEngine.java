@@ -0,0 +1,282 @@
+package sjq;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Dijkstra 最短路径引擎，运行在 CSR 图的 int 顶点 ID 上。
+ * 优先队列是按顶点索引的 4 叉堆，支持原地降低键值；顶点在第一次被松弛时才入堆，
+ * 指定目标时目标出队即停止。距离相同的顶点按单词字典序出队，保证路径结果稳定。
+ * dist/prev 数组在多次查询间复用，通过代数标记惰性重置，单次查询的开销只与访问到的顶点有关。
+ *
+ * <p>除 {@link #run} 外也可以逐步推进（{@link #start}、{@link #seed}、{@link #settleNext}），
+ * 供双向搜索和带势函数的 A* 搜索使用；reverse 为 true 时沿入边搜索。
+ * 实例不是线程安全的。
+ */
+final class ShortestPathEngine {
+  static final int INF = Integer.MAX_VALUE; // 不可达
+  private static final int ARITY = 4;
+  private static final long TARGET_LAST = 1L << 31; // 估值相同时目标最后出队
+
+  private final CsrGraph graph;
+  private final boolean reverse;
+  private final int[] rank; // 单词的字典序名次，作为距离相同时的次序
+  private final int[] dist;
+  private final int[] prev;
+  private final int[] bound; // 势函数值（A* 中到目标距离的下界）
+  private final int[] stamp; // stamp[v] == generation 时 dist/prev/bound 有效
+  private final int[] settledStamp; // settledStamp[v] == generation 时 v 已出队
+  private final int[] settled; // 按出队顺序记录的顶点
+  private final int[] heap; // 堆中的顶点
+  private final int[] heapIndex; // 顶点在堆中的位置，-1 表示不在堆中
+  private int heapSize;
+  private int generation;
+  private int settledCount;
+  private int target = -1;
+  private IntUnaryOperator potential; // 为 null 时即普通 Dijkstra
+  private IntPredicate allowed; // 为 null 时不限制可松弛的顶点
+
+  ShortestPathEngine(CsrGraph graph) {
+    this(graph, false);
+  }
+
+  ShortestPathEngine(CsrGraph graph, boolean reverse) {
+    int n = graph.vertexCount();
+    this.graph = graph;
+    this.reverse = reverse;
+    this.rank = graph.lexRank();
+    this.dist = new int[n];
+    this.prev = new int[n];
+    this.bound = new int[n];
+    this.stamp = new int[n];
+    this.settledStamp = new int[n];
+    this.settled = new int[n];
+    this.heap = new int[n];
+    this.heapIndex = new int[n];
+    Arrays.fill(heapIndex, -1);
+  }
+
+  /**
+   * 从 source 出发计算最短路径。
+   * target 为 -1 时计算到所有顶点的最短路径，否则在 target 出队时停止。
+   */
+  void run(int source, int target) {
+    start(target, null, null);
+    seed(source, 0);
+    while (heapSize > 0) {
+      if (settleNext() == target) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * 开始一次新的搜索，之后用 {@link #seed} 放入起点。
+   *
+   * @param target 目标顶点，-1 表示没有目标
+   * @param potential 顶点到目标距离的一致下界，返回 INF 表示该顶点到不了目标；null 表示不用
+   * @param allowed 只松弛满足条件的顶点；null 表示不限制
+   */
+  void start(int target, IntUnaryOperator potential, IntPredicate allowed) {
+    for (int i = 0; i < heapSize; i++) {
+      heapIndex[heap[i]] = -1;
+    }
+    heapSize = 0;
+    settledCount = 0;
+    if (++generation == 0) { // 代数回绕时清空标记
+      Arrays.fill(stamp, 0);
+      Arrays.fill(settledStamp, 0);
+      generation = 1;
+    }
+    this.target = target;
+    this.potential = potential;
+    this.allowed = allowed;
+  }
+
+  /** 以给定距离放入一个起点（多源搜索时可放入多个）。 */
+  void seed(int v, int distance) {
+    if (distance < distance(v) && touch(v)) {
+      dist[v] = distance;
+      prev[v] = -1;
+      push(v);
+    }
+  }
+
+  boolean isEmpty() {
+    return heapSize == 0;
+  }
+
+  /** 堆顶顶点的距离，堆为空时为 INF。 */
+  int peekDistance() {
+    return heapSize == 0 ? INF : dist[heap[0]];
+  }
+
+  /** 取出堆顶顶点，确定其最短距离并松弛它的边，返回该顶点。 */
+  int settleNext() {
+    int current = poll();
+    settledStamp[current] = generation;
+    settled[settledCount++] = current;
+    int base = dist[current];
+    int begin = reverse ? graph.inBegin(current) : graph.begin(current);
+    int end = reverse ? graph.inEnd(current) : graph.end(current);
+    for (int e = begin; e < end; e++) {
+      int neighbor = reverse ? graph.source(e) : graph.target(e);
+      if (allowed != null && !allowed.test(neighbor)) {
+        continue;
+      }
+      int newDist = base + (reverse ? graph.inWeight(e) : graph.weight(e));
+      int oldDist = distance(neighbor);
+      if (newDist < oldDist) {
+        if (!touch(neighbor)) {
+          continue; // 势函数判定到不了目标
+        }
+        dist[neighbor] = newDist;
+        prev[neighbor] = current;
+        push(neighbor);
+      } else if (newDist == oldDist && prev[neighbor] >= 0 && precedes(current, prev[neighbor])) {
+        // 多条等长路径时取出队次序最早的前驱，使结果与普通 Dijkstra 一致
+        prev[neighbor] = current;
+      }
+    }
+    return current;
+  }
+
+  /** 距离 v 的最短距离（或当前估计），未到达时为 INF。 */
+  int distance(int v) {
+    return stamp[v] == generation ? dist[v] : INF;
+  }
+
+  /** 最短路径上 v 的前驱，起点或未到达时为 -1。 */
+  int previous(int v) {
+    return stamp[v] == generation ? prev[v] : -1;
+  }
+
+  /** v 的最短距离是否已经确定。 */
+  boolean isSettled(int v) {
+    return settledStamp[v] == generation;
+  }
+
+  /** 最近一次查询中出队（确定最短距离）的顶点数。 */
+  int settledCount() {
+    return settledCount;
+  }
+
+  /** 最近一次查询中第 i 个出队的顶点。 */
+  int settledVertex(int i) {
+    return settled[i];
+  }
+
+  /** 从起点到 target 的顶点序列，未到达时返回 null。 */
+  int[] path(int target) {
+    if (distance(target) == INF) {
+      return null;
+    }
+    int length = 1;
+    for (int v = previous(target); v >= 0; v = previous(v)) {
+      length++;
+    }
+    int[] path = new int[length];
+    for (int v = target, i = length - 1; v >= 0; v = previous(v), i--) {
+      path[i] = v;
+    }
+    return path;
+  }
+
+  // 首次访问顶点时记录标记和势函数值；势函数为 INF 时返回 false
+  private boolean touch(int v) {
+    if (stamp[v] == generation) {
+      return true;
+    }
+    int h = potential == null ? 0 : potential.applyAsInt(v);
+    if (h == INF) {
+      return false;
+    }
+    stamp[v] = generation;
+    bound[v] = h;
+    dist[v] = INF;
+    prev[v] = -1;
+    return true;
+  }
+
+  // 普通 Dijkstra 中 u 是否先于 p 出队：距离小者优先，距离相同按字典序
+  private boolean precedes(int u, int p) {
+    return dist[u] < dist[p] || (dist[u] == dist[p] && rank[u] < rank[p]);
+  }
+
+  private void push(int v) {
+    if (heapIndex[v] < 0) {
+      heap[heapSize] = v;
+      heapIndex[v] = heapSize++;
+    }
+    siftUp(heapIndex[v]);
+  }
+
+  // 键值：估值（距离加势函数，最大约 2^32）占高 32 位，其后是“是否为目标”和字典序名次，按无符号比较
+  private long key(int v) {
+    long estimate = (long) dist[v] + bound[v];
+    return (estimate << 32) | (v == target ? TARGET_LAST : 0) | rank[v];
+  }
+
+  private static boolean less(long a, long b) {
+    return Long.compareUnsigned(a, b) < 0;
+  }
+
+  private int poll() {
+    int top = heap[0];
+    heapIndex[top] = -1;
+    int last = heap[--heapSize];
+    if (heapSize > 0) {
+      heap[0] = last;
+      heapIndex[last] = 0;
+      siftDown(0);
+    }
+    return top;
+  }
+
+  private void siftUp(int i) {
+    int v = heap[i];
+    long k = key(v);
+    while (i > 0) {
+      int parent = (i - 1) / ARITY;
+      int p = heap[parent];
+      if (!less(k, key(p))) {
+        break;
+      }
+      heap[i] = p;
+      heapIndex[p] = i;
+      i = parent;
+    }
+    heap[i] = v;
+    heapIndex[v] = i;
+  }
+
+  private void siftDown(int i) {
+    int v = heap[i];
+    long k = key(v);
+    while (true) {
+      int first = i * ARITY + 1;
+      if (first >= heapSize) {
+        break;
+      }
+      int best = first;
+      long bestKey = key(heap[first]);
+      int last = Math.min(first + ARITY, heapSize);
+      for (int c = first + 1; c < last; c++) {
+        long ck = key(heap[c]);
+        if (less(ck, bestKey)) {
+          best = c;
+          bestKey = ck;
+        }
+      }
+      if (!less(bestKey, k)) {
+        break;
+      }
+      heap[i] = heap[best];
+      heapIndex[heap[i]] = i;
+      i = best;
+    }
+    heap[i] = v;
+    heapIndex[v] = i;
+  }
+}
@@ -0,0 +1,85 @@
+package sjq;
+
+import java.util.Arrays;
+
+/**
+ * 单源最短路径树：从起点到各顶点的最短距离和前驱，查询一条路径的代价与路径长度成正比。
+ * 创建后不再修改，可以被多个线程共享。
+ */
+final class ShortestPathTree {
+  private final int source;
+  private final int[] dist; // 不可达为 ShortestPathEngine.INF
+  private final int[] prev; // 起点或不可达为 -1
+
+  ShortestPathTree(int source, int[] dist, int[] prev) {
+    this.source = source;
+    this.dist = dist;
+    this.prev = prev;
+  }
+
+  /** 复制引擎最近一次全图搜索的结果。 */
+  static ShortestPathTree of(ShortestPathEngine engine, int source, int vertexCount) {
+    int[] dist = new int[vertexCount];
+    int[] prev = new int[vertexCount];
+    for (int v = 0; v < vertexCount; v++) {
+      dist[v] = engine.distance(v);
+      prev[v] = engine.previous(v);
+    }
+    return new ShortestPathTree(source, dist, prev);
+  }
+
+  /** 扩展到 vertexCount 个顶点，新增的顶点不可达；顶点数不变时返回自身。 */
+  ShortestPathTree resize(int vertexCount) {
+    if (vertexCount == dist.length) {
+      return this;
+    }
+    int[] newDist = Arrays.copyOf(dist, vertexCount);
+    int[] newPrev = Arrays.copyOf(prev, vertexCount);
+    Arrays.fill(newDist, dist.length, vertexCount, ShortestPathEngine.INF);
+    Arrays.fill(newPrev, prev.length, vertexCount, -1);
+    return new ShortestPathTree(source, newDist, newPrev);
+  }
+
+  int source() {
+    return source;
+  }
+
+  int vertexCount() {
+    return dist.length;
+  }
+
+  /** 到 v 的最短距离，不可达时为 ShortestPathEngine.INF。 */
+  int distance(int v) {
+    return dist[v];
+  }
+
+  boolean isReachable(int v) {
+    return dist[v] != ShortestPathEngine.INF;
+  }
+
+  /** 最短路径上 v 的前驱，起点或不可达时为 -1。 */
+  int previous(int v) {
+    return prev[v];
+  }
+
+  /** 从起点到 target 的顶点序列，不可达时返回 null。 */
+  int[] path(int target) {
+    if (!isReachable(target)) {
+      return null;
+    }
+    int length = 1;
+    for (int v = prev[target]; v >= 0; v = prev[v]) {
+      length++;
+    }
+    int[] path = new int[length];
+    for (int v = target, i = length - 1; v >= 0; v = prev[v], i--) {
+      path[i] = v;
+    }
+    return path;
+  }
+
+  /** 占用的内存（字节），只计两个数组的内容。 */
+  long memoryBytes() {
+    return 8L * dist.length;
+  }
+}
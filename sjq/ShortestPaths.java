@@ -0,0 +1,139 @@
+package sjq;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 从一个单词出发的全部最短路径（单源最短路径树）。
+ * 距离和前驱可以直接查询，每条路径按需以迭代器逐个给出单词，
+ * 调用方只需取用关心的目标，无需为每个顶点拼接路径字符串。
+ * 实例不是线程安全的（写出路径时复用内部缓冲区）。
+ */
+final class ShortestPaths {
+  private final CsrGraph graph;
+  private final ShortestPathTree tree;
+  private int[] chain = new int[16]; // 写出路径时复用的顶点缓冲区
+
+  ShortestPaths(CsrGraph graph, ShortestPathTree tree) {
+    this.graph = graph;
+    this.tree = tree;
+  }
+
+  /** 起点单词。 */
+  public String source() {
+    return graph.word(tree.source());
+  }
+
+  /** 到 target 的最短距离，target 不在图中或不可达时返回 -1。 */
+  public int distance(String target) {
+    int v = graph.idOf(target);
+    return v < 0 || !tree.isReachable(v) ? -1 : tree.distance(v);
+  }
+
+  /** 最短路径上 target 的前一个单词，target 是起点、不在图中或不可达时返回 null。 */
+  public String previous(String target) {
+    int v = graph.idOf(target);
+    int p = v < 0 ? -1 : tree.previous(v);
+    return p < 0 ? null : graph.word(p);
+  }
+
+  /** 从起点到 target 的路径上的单词，按需逐个给出；不可达时为空迭代器。 */
+  public Iterator<String> path(String target) {
+    int v = graph.idOf(target);
+    return v < 0 ? new PathIterator(new int[0], 0) : pathIterator(v);
+  }
+
+  /** 依次把除起点外的每个单词交给 consumer，路径以惰性迭代器给出。 */
+  public void forEach(PathConsumer consumer) {
+    int source = tree.source();
+    for (int v = 0; v < tree.vertexCount(); v++) {
+      if (v != source) {
+        consumer.accept(graph.word(v), tree.isReachable(v) ? tree.distance(v) : -1,
+            pathIterator(v));
+      }
+    }
+  }
+
+  /**
+   * 按控制台格式写出到所有单词的最短路径，每行一条；不可达的单词只写其自身。
+   * 路径直接追加到 out，不创建中间字符串。
+   */
+  public void writeTo(Appendable out) throws IOException {
+    String source = source();
+    for (int v = 0; v < tree.vertexCount(); v++) {
+      if (v != tree.source()) {
+        String target = graph.word(v);
+        out.append("最短路径从 ").append(source).append(" 到 ").append(target).append(": ");
+        if (tree.isReachable(v)) {
+          appendPath(out, v);
+        } else {
+          out.append(target);
+        }
+        out.append(System.lineSeparator());
+      }
+    }
+  }
+
+  /** 把到 target 的路径以 a→b→c 形式追加到 out。 */
+  void appendPath(Appendable out, int target) throws IOException {
+    int length = 0;
+    for (int v = target; v >= 0; v = tree.previous(v)) {
+      if (length == chain.length) {
+        chain = Arrays.copyOf(chain, length * 2);
+      }
+      chain[length++] = v;
+    }
+    out.append(graph.word(chain[length - 1]));
+    for (int i = length - 2; i >= 0; i--) {
+      out.append("→").append(graph.word(chain[i]));
+    }
+  }
+
+  private Iterator<String> pathIterator(int target) {
+    if (!tree.isReachable(target)) {
+      return new PathIterator(new int[0], 0);
+    }
+    return new PathIterator(null, target);
+  }
+
+  /** 接收一条最短路径。 */
+  interface PathConsumer {
+    /**
+     * 处理到 target 的最短路径。
+     *
+     * @param distance 最短距离，不可达时为 -1
+     * @param path 路径上的单词（从起点开始），不可达时为空
+     */
+    void accept(String target, int distance, Iterator<String> path);
+  }
+
+  // 首次取值时才沿前驱回溯出顶点序列，单词按需转换
+  private final class PathIterator implements Iterator<String> {
+    private int[] vertices;
+    private final int target;
+    private int next;
+
+    PathIterator(int[] vertices, int target) {
+      this.vertices = vertices;
+      this.target = target;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (vertices == null) {
+        vertices = tree.path(target);
+      }
+      return next < vertices.length;
+    }
+
+    @Override
+    public String next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return graph.word(vertices[next++]);
+    }
+  }
+}
@@ -8,74 +8,208 @@ import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.security.SecureRandom;
-import java.util.AbstractMap;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Scanner;
-import java.util.Set;
-import java.util.TreeSet;
-import java.util.regex.Pattern;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
 import org.apache.commons.codec.binary.Hex;
 
 class TextGraphAnalyzer {
-  private final Pattern nonLetterPattern = Pattern.compile("[^a-zA-Z\\s]");
-  private final Map<String, Map<String, Integer>> graph;
-  SecureRandom random = new SecureRandom();
+  private static final long MAP_WINDOW_SIZE = 256L << 20; // 每次映射 256MB
+  // 当前的只读快照；查询无锁地读取它，追加文本和预计算路径在锁内整体替换它
+  private volatile FrozenTextGraph frozen;
+  private final GraphMetrics metrics;
+  private volatile PathQueryStats lastPathQueryStats;
 
   public TextGraphAnalyzer(String filePath) {
-    this.graph = buildGraphFromFile(filePath);
+    this(filePath, IngestMode.SEQUENTIAL);
   }
 
+  public TextGraphAnalyzer(String filePath, IngestMode mode) {
+    this(filePath, mode, GraphMetrics.disabled());
+  }
+
+  /** 构图，并把图的数组和单词表放入 storage（见 {@link GraphStorage}）。 */
+  public TextGraphAnalyzer(String filePath, IngestMode mode, GraphStorage storage) {
+    this(filePath, mode, storage, GraphMetrics.disabled());
+  }
+
+  /** 构图，并把构图耗时、图的规模和之后各项操作的耗时记入 metrics。 */
+  TextGraphAnalyzer(String filePath, IngestMode mode, GraphMetrics metrics) {
+    this(filePath, mode, GraphStorage.HEAP, metrics);
+  }
+
+  TextGraphAnalyzer(String filePath, IngestMode mode, GraphStorage storage,
+      GraphMetrics metrics) {
+    this(filePath, mode, storage, 0, metrics);
+  }
+
+  /**
+   * 构图的同时以同一遍读入统计 ngramOrder 阶（不小于 2，0 表示不统计）的 n 元模型，
+   * 模型与图共用字典，之后追加的文本同样并入模型，可查询 n 元桥接词和随机游走。
+   */
+  public TextGraphAnalyzer(String filePath, IngestMode mode, GraphStorage storage,
+      int ngramOrder) {
+    this(filePath, mode, storage, ngramOrder, GraphMetrics.disabled());
+  }
+
+  TextGraphAnalyzer(String filePath, IngestMode mode, GraphStorage storage, int ngramOrder,
+      GraphMetrics metrics) {
+    this.metrics = metrics;
+    long startTime = metrics.enabled() ? System.nanoTime() : 0;
+    GraphBuilder builder = readFile(filePath, mode, ngramOrder);
+    CsrGraph graph = builder.build(storage);
+    this.frozen = new FrozenTextGraph(graph, builder.buildNgram(graph.dictionary()), metrics);
+    recordBuild(startTime, graph);
+  }
+
+  TextGraphAnalyzer(CsrGraph graph) {
+    this(graph, GraphMetrics.disabled());
+  }
+
+  TextGraphAnalyzer(CsrGraph graph, GraphMetrics metrics) {
+    this.metrics = metrics;
+    this.frozen = new FrozenTextGraph(graph, metrics);
+  }
+
+  // 记录一次完整构图，单词数按相邻单词对的个数加一计算
+  private void recordBuild(long startTime, CsrGraph graph) {
+    if (metrics.enabled()) {
+      long tokens = graph.vertexCount() == 0 ? 0 : graph.totalWeight() + 1;
+      metrics.recordGraph(GraphMetrics.Operation.BUILD, System.nanoTime() - startTime, tokens,
+          graph);
+    }
+  }
 
+  /**
+   * 并发读入多篇相互独立的文档：各文档在公共线程池上同时分词，
+   * 边的权重分条带累加（见 {@link ConcurrentGraphBuilder}）。文档之间不相连。
+   */
   @SuppressFBWarnings("PATH_TRAVERSAL_IN")
-  private Map<String, Map<String, Integer>> buildGraphFromFile(String filePath) {
-    Map<String, Map<String, Integer>> graph = new HashMap<>(); // 初始化图
-    Path normalPath = Paths.get(filePath).toAbsolutePath().normalize();
-    try (BufferedReader br = new BufferedReader(new
-        InputStreamReader(new FileInputStream(normalPath.toFile()), "UTF-8"))) {
-      String line;
-      String previousWord = null; // 保存上一行最后一个单词
-
-      // 逐行读取文件
-      while ((line = br.readLine()) != null) {
-        // 将非字母字符替换为空格，转换为小写并按空格分割
-        String[] words = nonLetterPattern
-            .matcher(line.toLowerCase()).replaceAll(" ").trim().split("\\s+");
-
-        // 如果有前一行的最后一个单词，将其与当前行的第一个单词相连
-        if (previousWord != null && words.length > 0) {
-          graph.computeIfAbsent(previousWord, k -> new HashMap<>())
-              .merge(words[0], 1, Integer::sum);
+  public static TextGraphAnalyzer fromDocuments(Collection<String> filePaths) {
+    ConcurrentGraphBuilder builder = new ConcurrentGraphBuilder();
+    List<Callable<Void>> tasks = new ArrayList<>();
+    for (String filePath : filePaths) {
+      tasks.add(() -> {
+        try (BufferedReader reader = Files.newBufferedReader(
+            Paths.get(filePath).toAbsolutePath().normalize(), StandardCharsets.UTF_8)) {
+          builder.add(reader);
+        } catch (IOException e) {
+          System.err.println("Error reading file: " + e.getMessage());
         }
+        return null;
+      });
+    }
+    try {
+      for (Future<Void> future : ForkJoinPool.commonPool().invokeAll(tasks)) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      System.err.println("Document ingestion interrupted");
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+    return new TextGraphAnalyzer(builder.build());
+  }
 
-        // 遍历当前行的单词，构建图的边
-        for (int i = 0; i < words.length - 1; i++) {
-          String wordFrom = words[i];
-          String wordTo = words[i + 1];
-          graph.computeIfAbsent(wordFrom, k -> new HashMap<>())
-              .merge(wordTo, 1, Integer::sum); // 更新边的权重
-        }
+  /**
+   * 当前图的只读快照，可交给任意多个线程并发查询；之后追加的文本不影响已取得的快照。
+   */
+  public FrozenTextGraph freeze() {
+    return frozen;
+  }
 
-        // 保存当前行的最后一个单词，以便与下一行的第一个单词相连
-        if (words.length > 0) {
-          previousWord = words[words.length - 1];
-        }
+  /**
+   * 打开文本对应的图：同目录下存在未过期的快照（文件名后加 .graph）时直接内存映射载入，
+   * 否则按 mode 解析文本构图，并写出快照供下次启动使用。
+   */
+  public static TextGraphAnalyzer open(String filePath, IngestMode mode) {
+    return open(filePath, mode, GraphMetrics.disabled());
+  }
+
+  /** 同 {@link #open(String, IngestMode)}，载入快照或构图的耗时及之后的各项操作记入 metrics。 */
+  static TextGraphAnalyzer open(String filePath, IngestMode mode, GraphMetrics metrics) {
+    return open(filePath, mode, GraphStorage.HEAP, metrics);
+  }
+
+  /** 同 {@link #open(String, IngestMode, GraphMetrics)}，图的数组和单词表放入 storage。 */
+  static TextGraphAnalyzer open(String filePath, IngestMode mode, GraphStorage storage,
+      GraphMetrics metrics) {
+    return open(filePath, mode, storage, 0, metrics);
+  }
+
+  /**
+   * 同 {@link #open(String, IngestMode, GraphStorage, GraphMetrics)}，并统计 ngramOrder 阶的
+   * n 元模型（0 表示不统计）。快照中只有图，统计模型时总是读文本构图，构图后照常写出快照。
+   */
+  @SuppressFBWarnings("PATH_TRAVERSAL_IN")
+  static TextGraphAnalyzer open(String filePath, IngestMode mode, GraphStorage storage,
+      int ngramOrder, GraphMetrics metrics) {
+    Path source = Paths.get(filePath).toAbsolutePath().normalize();
+    Path snapshot = GraphSnapshot.pathFor(source);
+    if (ngramOrder == 0 && GraphSnapshot.isUpToDate(snapshot, source)) {
+      try {
+        long startTime = metrics.enabled() ? System.nanoTime() : 0;
+        TextGraphAnalyzer analyzer =
+            new TextGraphAnalyzer(GraphSnapshot.load(snapshot, storage), metrics);
+        analyzer.recordBuild(startTime, analyzer.frozen.graph());
+        return analyzer;
+      } catch (IOException e) {
+        System.err.println("Error reading snapshot: " + e.getMessage());
       }
-      // 确保最后一个单词被加入到图中
-      if (previousWord != null && !graph.containsKey(previousWord)) {
-        graph.put(previousWord, new HashMap<>());
+    }
+
+    long sourceLength;
+    long sourceModified;
+    try {
+      sourceLength = Files.size(source);
+      sourceModified = Files.getLastModifiedTime(source).toMillis();
+    } catch (IOException e) {
+      // 源文件不可读，按原有方式报错并得到空图
+      return new TextGraphAnalyzer(filePath, mode, storage, ngramOrder, metrics);
+    }
+    TextGraphAnalyzer analyzer =
+        new TextGraphAnalyzer(filePath, mode, storage, ngramOrder, metrics);
+    try {
+      GraphSnapshot.save(analyzer.frozen.graph(), snapshot, sourceLength, sourceModified);
+    } catch (IOException e) {
+      System.err.println("Error writing snapshot: " + e.getMessage());
+    }
+    return analyzer;
+  }
+
+
+  @SuppressFBWarnings("PATH_TRAVERSAL_IN")
+  private static GraphBuilder readFile(String filePath, IngestMode mode, int ngramOrder) {
+    GraphBuilder builder = new GraphBuilder(ngramOrder); // 初始化图
+    Path normalPath = Paths.get(filePath).toAbsolutePath().normalize();
+    try {
+      if (mode == IngestMode.PARALLEL) {
+        builder = new ParallelGraphBuilder(ForkJoinPool.commonPool())
+            .build(normalPath, ngramOrder);
+      } else if (mode == IngestMode.MAPPED) {
+        readMapped(normalPath, builder);
+      } else {
+        readText(normalPath, builder);
       }
     } catch (FileNotFoundException e) {
       // 处理文件读取错误
@@ -88,235 +222,285 @@ class TextGraphAnalyzer {
       System.err.println("Error reading file: " + e.getMessage());
     }
 
-    return graph; // 返回构建好的图
+    return builder; // 返回读完文本的构图器
   }
 
+  private static void readText(Path path, GraphBuilder builder) throws IOException {
+    try (BufferedReader br = new BufferedReader(new
+        InputStreamReader(new FileInputStream(path.toFile()), "UTF-8"))) {
+      readText(br, builder);
+    }
+  }
 
-  public Map<String, Map<String, Integer>> getGraph() {
-    //printGraph();
-    return graph;
+  private static void readText(Reader reader, GraphBuilder builder) throws IOException {
+    char[] buffer = new char[8192];
+    int n;
+    // 按块读取文本，跨行、跨块的单词由 builder 相连
+    while ((n = reader.read(buffer)) != -1) {
+      builder.accept(buffer, 0, n);
+    }
   }
 
-  public void printGraph() {
-    for (Map.Entry<String, Map<String, Integer>> entry : graph.entrySet()) {
-      System.out.print(entry.getKey() + " -> {");
-      List<String> edges;
-      edges = new ArrayList<>();
-      for (Map.Entry<String, Integer> neighborEntry : entry.getValue().entrySet()) {
-        edges.add(neighborEntry.getKey() + "(" + neighborEntry.getValue() + ")");
+
+  // 逐个窗口内存映射文件，文件大小不受堆大小限制
+  private static void readMapped(Path path, GraphBuilder builder) throws IOException {
+    readMapped(path, builder, MAP_WINDOW_SIZE);
+  }
+
+  // 窗口大小可调，便于用很小的窗口验证跨窗口的单词
+  static void readMapped(Path path, GraphBuilder builder, long windowSize) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      for (long position = 0; position < size; position += windowSize) {
+        long length = Math.min(windowSize, size - position);
+        builder.accept(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
       }
-      System.out.println(String.join(", ", edges) + "}");
     }
   }
 
-  public String queryBridgeWords(String word1, String word2) {
 
-    if (!graph.containsKey(word1) || !graph.containsKey(word2)) {
-      return "";
+  /**
+   * 追加一个文本文件，接在已读入的文本之后：原文本的最后一个单词与新文件的第一个单词相连。
+   * 读取失败时图保持不变。
+   */
+  @SuppressFBWarnings("PATH_TRAVERSAL_IN")
+  public synchronized void appendFile(String filePath) {
+    long startTime = metrics.enabled() ? System.nanoTime() : 0;
+    GraphBuilder update = newUpdate();
+    try {
+      readText(Paths.get(filePath).toAbsolutePath().normalize(), update);
+    } catch (IOException e) {
+      System.err.println("Error reading file: " + e.getMessage());
+      return;
     }
+    append(update, startTime);
+  }
 
-    List<String> bridgeWords = new ArrayList<>();
-    for (Map.Entry<String, Map<String, Integer>> entry : graph.entrySet()) {
-      String node = entry.getKey();
-      Map<String, Integer> neighbors = entry.getValue();
+  /** 追加一段文本，接在已读入的文本之后。 */
+  public synchronized void appendText(String text) {
+    long startTime = metrics.enabled() ? System.nanoTime() : 0;
+    GraphBuilder update = newUpdate();
+    update.accept(text);
+    append(update, startTime);
+  }
 
-      if (graph.get(word1).containsKey(node) && neighbors.containsKey(word2)) {
-        bridgeWords.add(node);
-      }
+  /** 读完 reader 并把其中的文本追加到已读入的文本之后；读取失败时图保持不变。 */
+  public synchronized void appendText(Reader reader) {
+    long startTime = metrics.enabled() ? System.nanoTime() : 0;
+    GraphBuilder update = newUpdate();
+    try {
+      readText(reader, update);
+    } catch (IOException e) {
+      System.err.println("Error reading text: " + e.getMessage());
+      return;
     }
+    append(update, startTime);
+  }
+
+  // 在当前快照的图和 n 元模型之上继续统计的构图器
+  private GraphBuilder newUpdate() {
+    FrozenTextGraph current = frozen;
+    return new GraphBuilder(current.graph(), current.ngramModel());
+  }
 
-    String joinResult;
-    if (bridgeWords.isEmpty()) {
-      //System.out.println("No bridge words from " + word1 + " to " + word2 + "!");
-      return " ";
-    } else {
-      joinResult = String.join(", ", bridgeWords);
+  // 换上并入了新文本的快照；新文本的单词数即新增的相邻单词对的个数
+  private void append(GraphBuilder update, long startTime) {
+    frozen = frozen.append(update);
+    if (metrics.enabled()) {
+      metrics.recordGraph(GraphMetrics.Operation.APPEND, System.nanoTime() - startTime,
+          update.edges().totalCount(), frozen.graph());
     }
-    return joinResult; // 直接返回所有桥接词，以逗号分隔
   }
 
-  public void showBridgeWords(String word1, String word2) {
-    String result = queryBridgeWords(word1, word2);
-    if (result.isEmpty()) {
-      if (graph.containsKey(word1)) {
-        System.out.printf("No %s in the graph!", word2);
-      } else if (graph.containsKey(word2)) {
-        System.out.printf("No %s in the graph!", word1);
-      } else {
-        System.out.printf("No %s and %s in the graph!", word1, word2);
-      }
-    } else if (result.equals(" ")) {
-      System.out.println("No bridge words from " + word1 + " to " + word2 + "!");
-    } else {
-      System.out.println("The bridge words from " + word1 + " to " + word2 + " are: " + result);
+  /**
+   * 以 Map 形式返回图，仅供可视化等需要逐个访问单词的场景使用。
+   * 视图在首次调用时由 CSR 构建并缓存，之后不可修改。
+   */
+  public Map<String, Map<String, Integer>> getGraph() {
+    //printGraph();
+    return frozen.mapView();
+  }
+
+  public void printGraph() {
+    Writer out = new OutputStreamWriter(System.out, Charset.defaultCharset());
+    try {
+      graphExporter(GraphExporter.Format.TEXT, GraphExporter.Order.INSERTION).write(out, 0, 0);
+    } catch (IOException e) {
+      System.err.println("Error writing graph: " + e.getMessage());
     }
   }
 
-  public String generateNewText(String inputText) {
-    // 使用正则表达式分割输入文本为单词列表
-    String[] words = inputText.toLowerCase().split("\\s+");
-    /*SecureRandom random = new SecureRandom();*/
-
-    List<String> newText = new ArrayList<>();
-
-    for (int i = 0; i < words.length - 1; i++) {
-      // 尝试查询桥接词
-      String result = queryBridgeWords(words[i].toLowerCase(), words[i + 1].toLowerCase());
-
-      // 如果找到了桥接词，随机选择一个插入；否则直接添加原单词对
-      if (!result.isEmpty() && !result.equals(" ")) {
-        String[] bridgeWords = result.split(",");
-        int randomIndex = random.nextInt(bridgeWords.length);
-        String chosenBridgeWord = bridgeWords[randomIndex];
-        newText.add(words[i]);
-        newText.add(chosenBridgeWord);
-      } else {
-        newText.add(words[i]);
-      }
+  /**
+   * 在当前快照上创建按指定格式和顺序分页写出图的导出器（见 {@link GraphExporter}）。
+   * 一次分页的各页都经同一个导出器写出，复用其缓冲区和排列顺序；之后追加的文本不影响它，
+   * 因此各页前后一致。
+   */
+  public GraphExporter graphExporter(GraphExporter.Format format, GraphExporter.Order order) {
+    return new GraphExporter(frozen.graph(), format, order);
+  }
+
+  /** 把整个图写入文件，格式按扩展名选择（.tsv、.jsonl，其余为文字描述），按 ID 顺序。 */
+  @SuppressFBWarnings("PATH_TRAVERSAL_IN")
+  public boolean exportGraph(String outputPath) {
+    GraphExporter.Format format = GraphExporter.Format.forFileName(outputPath);
+    try {
+      new GraphExporter(frozen.graph(), format, GraphExporter.Order.INSERTION)
+          .export(Paths.get(outputPath).toAbsolutePath().normalize());
+      return true;
+    } catch (IOException e) {
+      System.err.println("Error writing graph: " + e.getMessage());
+      return false;
     }
+  }
 
-    // 添加最后一个单词到结果列表
-    newText.add(words[words.length - 1]);
+  public String queryBridgeWords(String word1, String word2) {
+    return frozen.queryBridgeWords(word1, word2);
+  }
 
-    // 将列表转换回字符串并返回
-    return String.join(" ", newText);
+  public void showBridgeWords(String word1, String word2) {
+    System.out.println(frozen.describeBridgeWords(word1, word2));
+  }
+
+  /**
+   * 在 n 元模型上查询桥接词，返回值的约定同 {@link #queryBridgeWords}；
+   * 未启用 n 元模型时返回 null。
+   */
+  public String queryNgramBridgeWords(String word1, String word2) {
+    return frozen.queryNgramBridgeWords(word1, word2);
+  }
+
+  /** 当前的 n 元模型，未启用时为 null。 */
+  NgramModel ngramModel() {
+    return frozen.ngramModel();
+  }
+
+  /** 根据桥接词生成新文本；随机数取自调用线程自己的生成器，可被多个线程同时调用。 */
+  public String generateNewText(String inputText) {
+    return frozen.generateNewText(inputText);
   }
 
   public String calcShortestPath(String word1, String word2) {
+    return calcShortestPath(word1, word2, PathSearchMode.DIJKSTRA);
+  }
+
+  /**
+   * 以指定方式计算两单词间的最短路径，各方式的返回结果相同。
+   * 耗时和访问的顶点数可通过 {@link #lastPathQueryStats()} 查看。
+   */
+  public String calcShortestPath(String word1, String word2, PathSearchMode mode) {
     // 检查word1和word2是否在图中
-    if (!graph.containsKey(word1) || !graph.containsKey(word2)) {
+    FrozenTextGraph.PathResult result = frozen.shortestPath(word1, word2, mode);
+    if (result == null) {
       System.out.println("Either word1 or word2 is not in the graph!");
       return null;
     }
+    lastPathQueryStats = result.stats();
 
-    final int Inf = Integer.MAX_VALUE; // 定义一个无穷大值，用于初始化距离
-    Map<String, Integer> dist = new HashMap<>(); // 存储从word1到各节点的最短距离
-    Map<String, String> prev = new HashMap<>(); // 存储最短路径上的前驱节点
-    Comparator<Map.Entry<String, Integer>> comparator = Comparator
-        .comparingInt(Map.Entry::getValue);
-    // 使用TreeSet实现优先队列，以便在更新距离时能够删除旧的条目
-    TreeSet<Map.Entry<String, Integer>> pq = new TreeSet<>(comparator
-        .thenComparing(Map.Entry::getKey));
-
-    // 初始化dist和prev，并将所有节点加入优先队列
-    for (String vertex : graph.keySet()) {
-      int distance = vertex.equals(word1) ? 0 : Inf; // 起点距离为0，其他点为无穷大
-      dist.put(vertex, distance); // 初始化距离表
-      prev.put(vertex, null); // 初始化前驱节点表
-      pq.add(new AbstractMap.SimpleEntry<>(vertex, distance)); // 将节点加入优先队列
+    // 如果没有找到路径，返回提示信息
+    if (result.path() == null) {
+      return "No path found from " + word1 + " to " + word2;
     }
+    System.out.println("Shortest Path Length: " + result.stats().getDistance());
+    return result.path(); // 返回路径字符串
+  }
 
-    // 主循环，直到优先队列为空
-    while (!pq.isEmpty()) {
-      // 取出优先队列中最小距离的节点
-      Map.Entry<String, Integer> entry = pq.pollFirst();
-      String currentNode = null;
-      if (entry != null) {
-        currentNode = entry.getKey();
-      }
-
-      // 如果当前节点是目标节点，重建路径并返回
-      if (currentNode != null && currentNode.equals(word2)) {
-        StringBuilder path = new StringBuilder(word2); // 从目标节点开始
-        int totalDistance = dist.get(word2); // 获取最短路径的总距离
-
-        // 通过前驱节点表重建路径
-        while (prev.get(currentNode) != null) {
-          path.insert(0, "→").insert(0, prev.get(currentNode));
-          currentNode = prev.get(currentNode);
-        }
-        System.out.println("Shortest Path Length: " + totalDistance);
-        return path.toString(); // 返回路径字符串
-      }
+  /**
+   * 有界的两单词间最短路径（见 {@link PathBounds}），超出总权重或边数的路径视为不存在，
+   * 预算用完即停止：返回 a→b→c 形式的路径，界内无路径时返回 "No path within bound ..."，
+   * 预算用完时返回 "Search budget exhausted ..."。有单词不在图中时返回 null。
+   */
+  public String calcShortestPath(String word1, String word2, PathBounds bounds) {
+    return calcKShortestPaths(word1, word2, 1, bounds);
+  }
 
-      // 遍历当前节点的所有邻居节点
-      for (Map.Entry<String, Integer> neighborEntry
-          : graph.getOrDefault(currentNode, Collections.emptyMap()).entrySet()) {
-        String neighbor = neighborEntry.getKey();
-        int edgeWeight = neighborEntry.getValue(); // 获取边的权值
-
-        // 计算从currentNode到neighbor的新距离
-        int newDist = dist.get(currentNode) + edgeWeight;
-        // 如果新距离更短，更新dist和prev，并更新优先队列
-        if (newDist < dist.get(neighbor)) {
-          pq.remove(new AbstractMap.SimpleEntry<>(neighbor, dist.get(neighbor))); // 移除旧的距离条目
-          dist.put(neighbor, newDist); // 更新距离表
-          prev.put(neighbor, currentNode); // 更新前驱节点表
-          pq.add(new AbstractMap.SimpleEntry<>(neighbor, newDist)); // 添加新的距离条目到优先队列
-        }
-      }
+  /**
+   * 两单词间至多 k 条最短无环路径（Yen 算法），界限与 {@link #calcShortestPath(String, String,
+   * PathBounds)} 相同，每条一行，形如 "1. a→b→c (3)"。有单词不在图中时返回 null。
+   */
+  public String calcKShortestPaths(String word1, String word2, int k, PathBounds bounds) {
+    String result = frozen.describeBoundedPaths(word1, word2, k, bounds);
+    if (result == null) {
+      System.out.println("Either word1 or word2 is not in the graph!");
     }
+    return result;
+  }
 
-    // 如果没有找到路径，返回提示信息
-    return "No path found from " + word1 + " to " + word2;
+  /** 最近一次 calcShortestPath 的耗时和访问顶点数，尚未查询时为 null。 */
+  public PathQueryStats lastPathQueryStats() {
+    return lastPathQueryStats;
+  }
+
+  /** 预先计算 ALT 搜索所需的地标距离，避免首次 ALT 查询时的等待。 */
+  public void prepareLandmarks() {
+    frozen.prepareLandmarks();
   }
 
   public void calcShortestMulPaths(String startWord) {
     // 检查 startWord 是否在图中
-    if (!graph.containsKey(startWord)) {
+    ShortestPaths paths = shortestPathsFrom(startWord);
+    if (paths == null) {
       System.out.println("The word is not in the graph!");
       return;
     }
 
-    final int Inf = Integer.MAX_VALUE; // 定义一个无穷大值，用于初始化距离
-    Map<String, Integer> dist = new HashMap<>(); // 存储从 startWord 到各节点的最短距离
-    Map<String, String> prev = new HashMap<>(); // 存储最短路径上的前驱节点
-    Comparator<Map.Entry<String, Integer>> comparator
-        = Comparator.comparingInt(Map.Entry::getValue);
-    // 使用 TreeSet 实现优先队列，以便在更新距离时能够删除旧的条目
-    TreeSet<Map.Entry<String, Integer>> pq
-        = new TreeSet<>(comparator.thenComparing(Map.Entry::getKey));
-
-    // 初始化 dist 和 prev，并将所有节点加入优先队列
-    for (String vertex : graph.keySet()) {
-      int distance = vertex.equals(startWord) ? 0 : Inf; // 起点距离为 0，其他点为无穷大
-      dist.put(vertex, distance); // 初始化距离表
-      prev.put(vertex, null); // 初始化前驱节点表
-      pq.add(new AbstractMap.SimpleEntry<>(vertex, distance)); // 将节点加入优先队列
+    // 打印从 startWord 到所有其他节点的路径，经同一个缓冲区写出
+    Writer out = new BufferedWriter(new OutputStreamWriter(System.out, Charset.defaultCharset()));
+    try {
+      paths.writeTo(out);
+      out.flush();
+    } catch (IOException e) {
+      System.err.println("Error writing paths: " + e.getMessage());
     }
+  }
 
-    // 主循环，直到优先队列为空
-    while (!pq.isEmpty()) {
-      // 取出优先队列中最小距离的节点
-      Map.Entry<String, Integer> entry = pq.pollFirst();
-      String currentNode = null;
-      if (entry != null) {
-        currentNode = entry.getKey();
-      }
+  /**
+   * 计算从 startWord 出发到所有单词的最短路径树，startWord 不在图中时返回 null。
+   * 结果可按需查询距离、前驱和单条路径，或逐条流式交给调用方处理。
+   */
+  public ShortestPaths shortestPathsFrom(String startWord) {
+    return frozen.shortestPathsFrom(startWord);
+  }
 
-      if (currentNode != null) {
-        // 更新邻居节点的距离
-        Map<String, Integer> neighbors = graph.get(currentNode);
-        for (Map.Entry<String, Integer> neighbor : neighbors.entrySet()) {
-          String neighborNode = neighbor.getKey();
-          int weight = neighbor.getValue();
-          int newDist = dist.get(currentNode) + weight;
-
-          // 如果找到更短的路径，则更新优先队列和距离表
-          if (newDist < dist.get(neighborNode)) {
-            pq.remove(new AbstractMap.SimpleEntry<>(neighborNode, dist.get(neighborNode)));
-            dist.put(neighborNode, newDist);
-            prev.put(neighborNode, currentNode);
-            pq.add(new AbstractMap.SimpleEntry<>(neighborNode, newDist));
-          }
-        }
+  /**
+   * 预计算最短路径：为度数最高的至多 maxSources 个单词（不大于 0 表示全部单词）
+   * 在所有核上并行计算最短路径树，总内存不超过 memoryBudgetBytes。
+   * 之后以这些单词为起点的 calcShortestPath/calcShortestMulPaths 直接回溯缓存，其余照常现算。
+   *
+   * @return 实际缓存的起点数
+   */
+  public synchronized int precomputeShortestPaths(int maxSources, long memoryBudgetBytes) {
+    long startTime = metrics.enabled() ? System.nanoTime() : 0;
+    try {
+      PathOracle oracle = PathOracle.precompute(frozen.graph(), maxSources, memoryBudgetBytes,
+          ForkJoinPool.commonPool());
+      frozen = frozen.withOracle(oracle);
+      if (metrics.enabled()) {
+        metrics.recordLatency(GraphMetrics.Operation.PRECOMPUTE, System.nanoTime() - startTime);
       }
+      return oracle.sourceCount();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      System.err.println("Path precomputation interrupted");
+      return 0;
     }
+  }
 
-    // 打印从 startWord 到所有其他节点的路径
-    for (String vertex : graph.keySet()) {
-      if (!vertex.equals(startWord)) {
-        StringBuilder path = new StringBuilder(vertex);
-        String currentNode = vertex;
-
-        // 通过前驱节点表重建路径
-        while (prev.get(currentNode) != null) {
-          path.insert(0, "→").insert(0, prev.get(currentNode));
-          currentNode = prev.get(currentNode);
-        }
-
-        System.out.println("最短路径从 " + startWord + " 到 " + vertex + ": " + path);
+  /**
+   * 按 measure 排名前 k 的单词：PageRank（加权，首次调用时在所有核上并行迭代至收敛），
+   * 或入度、出度、入边权重、出边权重。被中断时返回 null。
+   */
+  public WordRanking.Result rankWords(WordRanking.Measure measure, int k) {
+    long startTime = metrics.enabled() ? System.nanoTime() : 0;
+    try {
+      WordRanking.Result result = frozen.rankWords(measure, k, ForkJoinPool.commonPool());
+      if (metrics.enabled()) {
+        metrics.recordLatency(GraphMetrics.Operation.RANK_WORDS, System.nanoTime() - startTime);
       }
+      return result;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      System.err.println("Word ranking interrupted");
+      return null;
     }
   }
 
@@ -324,27 +508,14 @@ class TextGraphAnalyzer {
   public String randomWalk() {
     Random random = new Random();
     Scanner scanner = new Scanner(System.in);
-    String startNode = getRandomNode(graph.keySet()); // 假设这是获取图中随机起点的函数
-    Set<String> visitedEdges = new HashSet<>();
-    StringBuilder walkStringBuilder = new StringBuilder(startNode);
-
-    while (!startNode.isEmpty()) {
-      // 获取当前节点的所有出边，如果没有出边则结束
-      Map<String, Integer> edges = graph.getOrDefault(startNode, Collections.emptyMap());
-      if (edges.isEmpty()) {
-        break;
-      }
-      // 随机选择一个出边的目标节点
-      List<String> neighborNodes = new ArrayList<>(edges.keySet());
-      String nextNode = neighborNodes.get(random.nextInt(neighborNodes.size()));
-      String edge = startNode + "→" + nextNode;
-      // 检查是否重复，如果是则结束
-      if (!visitedEdges.add(edge)) {
-        break;
-      }
-      // 记录节点和边
-      walkStringBuilder.append(" ").append(nextNode);
-      startNode = nextNode; // 移动到下一个节点
+    int startNode = getRandomNode(); // 获取图中的随机起点
+    if (startNode < 0) {
+      return "";
+    }
+    // 按边权重比例选择下一跳，走到重复的边或没有出边时结束
+    RandomWalker.Walk walk = frozen.walker().newWalk();
+    walk.reset(startNode);
+    while (walk.step(random)) {
       // 提示用户是否停止遍历
       System.out.println("键入“q”停止遍历：");
       String input = scanner.nextLine();
@@ -352,22 +523,57 @@ class TextGraphAnalyzer {
         break;
       }
     }
+    String walkString = walk.appendTo(new StringBuilder()).toString();
     // 写入文件
-    writeWalkToFile(walkStringBuilder.toString());
+    writeWalkToFile(walkString);
 
-    return walkStringBuilder.toString();
+    return walkString;
   }
 
-  // 获取图中的随机节点
-  private String getRandomNode(Set<String> nodes) {
-    /*SecureRandom random = new SecureRandom();*/
-    //产生随机数
-    int index = random.nextInt(nodes.size());
-    Iterator<String> iterator = nodes.iterator();
-    for (int i = 0; i < index; i++) {
-      iterator.next();
+  /**
+   * 非交互式随机游走：不读取标准输入，也不写文件，一直走到重复的边、没有出边
+   * 或达到 maxSteps 步（不大于 0 表示不限）为止。
+   */
+  public String randomWalk(int maxSteps) {
+    return frozen.randomWalk(maxSteps);
+  }
+
+  /**
+   * 在 n 元模型上随机游走，走到重复的转移、没有后继或达到 maxSteps 步（不大于 0 表示不限）为止；
+   * 未启用 n 元模型时返回 null。
+   */
+  public String ngramRandomWalk(int maxSteps) {
+    return frozen.ngramRandomWalk(maxSteps);
+  }
+
+  /**
+   * 批量生成随机游走语料：从每个单词出发各游走 walksPerVertex 次，在所有核上并行生成，
+   * 每行一条游走写入 outputPath（shards 大于 1 时写入多个分片文件）。相同的 seed 得到相同的文件。
+   *
+   * @return 生成结果与吞吐量，写文件失败时返回 null
+   */
+  public WalkCorpusGenerator.Result generateWalkCorpus(String outputPath, int walksPerVertex,
+      int maxSteps, long seed, int shards) {
+    try {
+      FrozenTextGraph current = frozen;
+      return new WalkCorpusGenerator(current.graph(), current.walker()).generate(
+          Paths.get(outputPath), walksPerVertex, maxSteps, seed, shards,
+          ForkJoinPool.commonPool());
+    } catch (IOException e) {
+      System.err.println("Error writing walk corpus: " + e.getMessage());
+      return null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      System.err.println("Walk corpus generation interrupted");
+      return null;
     }
-    return iterator.next();
+  }
+
+  // 获取图中的随机节点，图为空时返回 -1
+  private int getRandomNode() {
+    //产生随机数，取自当前线程的生成器
+    int count = frozen.graph().vertexCount();
+    return count == 0 ? -1 : ThreadLocalRandom.current().nextInt(count);
   }
 
   // 将游走结果写入文件
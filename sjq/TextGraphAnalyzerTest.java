@@ -1,11 +1,41 @@
 package sjq;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TextGraphAnalyzerTest {
-  String path="E://soft_engineering//lab1//lab1//sjq//input.txt";
+  // 相对项目根目录（Maven 运行测试时的工作目录），可用 -Dsjq.input 指定其他文件
+  String path = System.getProperty("sjq.input", "sjq/input.txt");
   private final TextGraphAnalyzer analyzer = new TextGraphAnalyzer(path);
   @org.junit.jupiter.api.Test
   void  calcShortestPathCase1() {
@@ -128,4 +158,691 @@ class TextGraphAnalyzerTest {
     assertEquals(expectedPath, result, "The bridge words does not match the expected words.");
   }
 
-}
\ No newline at end of file
+  @org.junit.jupiter.api.Test
+  void parallelBuildMatchesSequential() throws IOException {
+    TextGraphAnalyzer parallel = new TextGraphAnalyzer(path, IngestMode.PARALLEL);
+    // 并行构图的结果（包括单词顺序）应与顺序构图完全一致
+    assertEquals(analyzer.getGraph().toString(), parallel.getGraph().toString());
+    // 16 字节的块使几乎每个单词对都跨块，拼接后的 CSR 应与顺序构图逐项相同
+    GraphBuilder chunked = new ParallelGraphBuilder(ForkJoinPool.commonPool(), 16)
+        .build(Paths.get(path));
+    assertSameGraph(analyzer.freeze().graph(), chunked.build());
+  }
+
+  @org.junit.jupiter.api.Test
+  void tokenizerSplitsOnNonLetters() {
+    GraphBuilder builder = new GraphBuilder();
+    // 标点、数字、制表符和非 ASCII 字符都是分隔符；没有字母的行不产生空串顶点；
+    // 单词序列跨越换行继续，单词本身可以跨越两次 feed 调用
+    builder.accept("Seek--out,new\tworlds!!\n123 ... \n\n\u00e9\u4e16\nNEW wor");
+    builder.accept("#lds; seek\r\nout".toCharArray(), 1, 14);
+    builder.accept("  42\n".getBytes(StandardCharsets.UTF_8), 0, 5);
+    CsrGraph graph = builder.build();
+    assertEquals(4, graph.vertexCount());
+    assertEquals(-1, graph.idOf(""));
+    assertEquals("out", graph.word(graph.lastWord()));
+    String[][] edges = {
+        {"seek", "out"}, {"out", "new"}, {"new", "worlds"}, {"worlds", "new"},
+        {"worlds", "seek"}};
+    assertEquals(edges.length, graph.edgeCount());
+    for (String[] edge : edges) {
+      assertTrue(graph.hasEdge(graph.idOf(edge[0]), graph.idOf(edge[1])), edge[0] + edge[1]);
+    }
+    assertEquals(2, graph.weight(graph.edgeIndex(graph.idOf("seek"), graph.idOf("out"))));
+
+    GraphBuilder letterless = new GraphBuilder();
+    letterless.accept("\n 1, 2; 3 \n\n");
+    assertEquals(0, letterless.build().vertexCount());
+  }
+
+  @org.junit.jupiter.api.Test
+  void mappedBuildMatchesSequential() throws IOException {
+    TextGraphAnalyzer mapped = new TextGraphAnalyzer(path, IngestMode.MAPPED);
+    assertEquals(analyzer.getGraph().toString(), mapped.getGraph().toString());
+    // 7 字节的窗口使许多单词被切在两个窗口之间
+    GraphBuilder windowed = new GraphBuilder();
+    TextGraphAnalyzer.readMapped(Paths.get(path), windowed, 7);
+    assertSameGraph(analyzer.freeze().graph(), windowed.build());
+  }
+
+  @org.junit.jupiter.api.Test
+  void snapshotRoundTrip() throws IOException {
+    Path dir = Files.createTempDirectory("graph");
+    Path input = Files.copy(Paths.get(path), dir.resolve("input.txt"));
+    Path snapshot = dir.resolve("input.txt" + GraphSnapshot.SUFFIX);
+    try {
+      TextGraphAnalyzer built = TextGraphAnalyzer.open(input.toString(), IngestMode.SEQUENTIAL);
+      assertTrue(GraphSnapshot.isUpToDate(snapshot, input));
+      // 第二次打开时从快照载入
+      TextGraphAnalyzer loaded = TextGraphAnalyzer.open(input.toString(), IngestMode.SEQUENTIAL);
+      assertEquals(built.getGraph().toString(), loaded.getGraph().toString());
+      assertEquals("life, civilizations", loaded.queryBridgeWords("new", "and"));
+      CsrGraph offHeap = GraphSnapshot.load(snapshot, GraphStorage.OFF_HEAP);
+      assertEquals(GraphStorage.OFF_HEAP, offHeap.storage());
+      assertSameGraph(built.freeze().graph(), offHeap);
+    } finally {
+      Files.deleteIfExists(snapshot);
+      Files.deleteIfExists(input);
+      Files.deleteIfExists(dir);
+    }
+  }
+
+  @org.junit.jupiter.api.Test
+  void calcShortestPathModesAgree() {
+    for (PathSearchMode mode : PathSearchMode.values()) {
+      assertEquals("after→morning→light→the", analyzer.calcShortestPath("after", "the", mode));
+      assertEquals(3, analyzer.lastPathQueryStats().getDistance());
+      assertEquals("to→explore", analyzer.calcShortestPath("to", "explore", mode));
+    }
+  }
+
+  @org.junit.jupiter.api.Test
+  void precomputedPathsMatchOnDemand() {
+    TextGraphAnalyzer cached = new TextGraphAnalyzer(path);
+    assertTrue(cached.precomputeShortestPaths(0, Long.MAX_VALUE) > 0);
+    assertEquals("after→morning→light→the", cached.calcShortestPath("after", "the"));
+    assertEquals(0, cached.lastPathQueryStats().getSettledCount());
+  }
+
+  @org.junit.jupiter.api.Test
+  void shortestPathsFromStreamsTree() {
+    ShortestPaths paths = analyzer.shortestPathsFrom("after");
+    assertEquals(3, paths.distance("the"));
+    assertEquals("light", paths.previous("the"));
+    StringBuilder route = new StringBuilder();
+    paths.path("the").forEachRemaining(word -> route.append(word).append(' '));
+    assertEquals("after morning light the ", route.toString());
+    assertEquals(null, analyzer.shortestPathsFrom("hate"));
+  }
+
+  @org.junit.jupiter.api.Test
+  void nonInteractiveRandomWalkFollowsEdges() {
+    String[] words = analyzer.randomWalk(0).split(" ");
+    for (int i = 0; i + 1 < words.length; i++) {
+      assertTrue(analyzer.getGraph().get(words[i]).containsKey(words[i + 1]));
+    }
+    assertTrue(analyzer.randomWalk(3).split(" ").length <= 4);
+  }
+
+  @org.junit.jupiter.api.Test
+  void walkCorpusIsReproducible() throws IOException {
+    Path dir = Files.createTempDirectory("walks");
+    try {
+      WalkCorpusGenerator.Result single =
+          analyzer.generateWalkCorpus(dir.resolve("a.txt").toString(), 3, 5, 42L, 1);
+      analyzer.generateWalkCorpus(dir.resolve("b.txt").toString(), 3, 5, 42L, 1);
+      List<String> lines = Files.readAllLines(dir.resolve("a.txt"));
+      assertEquals(analyzer.getGraph().size() * 3L, single.walks());
+      assertEquals(lines.size(), single.walks());
+      assertEquals(lines, Files.readAllLines(dir.resolve("b.txt")));
+      for (String line : lines) {
+        String[] words = line.split(" ");
+        assertTrue(words.length <= 6);
+        for (int i = 0; i + 1 < words.length; i++) {
+          assertTrue(analyzer.getGraph().get(words[i]).containsKey(words[i + 1]));
+        }
+      }
+    } finally {
+      Files.deleteIfExists(dir.resolve("a.txt"));
+      Files.deleteIfExists(dir.resolve("b.txt"));
+      Files.deleteIfExists(dir);
+    }
+  }
+
+  @org.junit.jupiter.api.Test
+  void appendedTextMatchesFullBuild() throws IOException {
+    String extra = "the new morning after\nlife ends with zebra and aardvark";
+    Path combined = Files.createTempFile("combined", ".txt");
+    Files.write(combined, (new String(Files.readAllBytes(Paths.get(path)), "UTF-8") + "\n" + extra)
+        .getBytes("UTF-8"));
+    TextGraphAnalyzer expected = new TextGraphAnalyzer(combined.toString());
+
+    TextGraphAnalyzer updated = new TextGraphAnalyzer(path);
+    updated.getGraph();
+    updated.precomputeShortestPaths(0, Long.MAX_VALUE);
+    updated.appendText(extra);
+    assertEquals(expected.getGraph(), updated.getGraph());
+    assertEquals(expected.calcShortestPath("after", "the"), updated.calcShortestPath("after", "the"));
+    assertEquals(expected.calcShortestPath("the", "ends"), updated.calcShortestPath("the", "ends"));
+    assertEquals(expected.queryBridgeWords("new", "after"), updated.queryBridgeWords("new", "after"));
+    // 逐行归并得到的正反两份 CSR 和沿用的字典序名次与完整构图逐项相同
+    CsrGraph merged = updated.freeze().graph();
+    assertSameGraph(expected.freeze().graph(), merged);
+    assertArrayEquals(expected.freeze().graph().lexRank(), merged.lexRank());
+    CsrGraph offHeap = new TextGraphAnalyzer(path, IngestMode.SEQUENTIAL, GraphStorage.OFF_HEAP)
+        .freeze().graph();
+    GraphBuilder offHeapUpdate = new GraphBuilder(offHeap);
+    offHeapUpdate.accept("\n" + extra);
+    assertSameGraph(expected.freeze().graph(), offHeapUpdate.build());
+    Files.deleteIfExists(combined);
+  }
+
+  @org.junit.jupiter.api.Test
+  void frozenGraphAnswersConcurrentQueries() throws Exception {
+    FrozenTextGraph frozen = analyzer.freeze();
+    List<String> words = new ArrayList<>(analyzer.getGraph().keySet());
+    List<String> expected = new ArrayList<>();
+    for (String from : words) {
+      for (String to : words) {
+        expected.add(frozen.calcShortestPath(from, to) + "|" + frozen.queryBridgeWords(from, to));
+      }
+    }
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<List<String>>> results = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        results.add(pool.submit(() -> {
+          List<String> answers = new ArrayList<>();
+          for (String from : words) {
+            for (String to : words) {
+              answers.add(frozen.calcShortestPath(from, to) + "|"
+                  + frozen.queryBridgeWords(from, to));
+            }
+          }
+          return answers;
+        }));
+      }
+      for (Future<List<String>> result : results) {
+        assertEquals(expected, result.get());
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @org.junit.jupiter.api.Test
+  void concurrentDocumentsAddWeights() {
+    TextGraphAnalyzer twice = TextGraphAnalyzer.fromDocuments(List.of(path, path));
+    Map<String, Map<String, Integer>> single = analyzer.getGraph();
+    assertEquals(single.keySet(), twice.getGraph().keySet());
+    for (String word : single.keySet()) {
+      for (Map.Entry<String, Integer> edge : single.get(word).entrySet()) {
+        assertEquals(Integer.valueOf(2 * edge.getValue()), twice.getGraph().get(word).get(edge.getKey()));
+      }
+    }
+  }
+
+  @org.junit.jupiter.api.Test
+  void generateNewTextInsertsBridgeWordsInOnePass() {
+    FrozenTextGraph frozen = analyzer.freeze();
+    assertEquals("explore strange new", frozen.generateNewText("  Explore\tNEW ",
+        new SplittableRandom(1)));
+    String text = frozen.generateNewText("seek new and unknown", new SplittableRandom(7));
+    assertTrue(text.equals("seek out new life and unknown")
+        || text.equals("seek out new civilizations and unknown"), text);
+  }
+
+  @org.junit.jupiter.api.Test
+  void bridgeIndexMatchesDirectIntersection() {
+    CsrGraph graph = analyzer.freeze().graph();
+    BridgeIndex partial = new BridgeIndex(graph, 40, 8);
+    assertTrue(partial.precomputedSourceCount() > 0);
+    for (int from = 0; from < graph.vertexCount(); from++) {
+      for (int to = 0; to < graph.vertexCount(); to++) {
+        assertArrayEquals(graph.bridgeWords(from, to), partial.bridges(from, to));
+      }
+    }
+  }
+
+  @org.junit.jupiter.api.Test
+  void metricsRecordBuildAndQueries() throws Exception {
+    TextGraphMetrics metrics = new TextGraphMetrics();
+    TextGraphAnalyzer measured = new TextGraphAnalyzer(path, IngestMode.SEQUENTIAL, metrics);
+    assertEquals(analyzer.getGraph().size(), metrics.getVertexCount());
+    assertTrue(metrics.getEstimatedMemoryBytes() > 0);
+    assertEquals(1, metrics.latency(GraphMetrics.Operation.BUILD).count());
+    measured.calcShortestPath("after", "the");
+    measured.queryBridgeWords("seek", "new");
+    assertEquals(1, metrics.operationCount("SHORTEST_PATH"));
+    assertEquals(1, metrics.operationCount("BRIDGE_WORDS"));
+    assertTrue(metrics.getSettledVertices() > 0);
+    measured.appendText("after the");
+    assertEquals(1, metrics.latency(GraphMetrics.Operation.APPEND).count());
+
+    // 各百分位落在所记录值的 1/64 相对误差之内
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long v = 1; v <= 100_000; v++) {
+      histogram.record(v * 1000);
+    }
+    assertTrue(Math.abs(histogram.valueAtPercentile(50) - 50_000_000) <= 50_000_000 / 64);
+    assertTrue(Math.abs(histogram.valueAtPercentile(99) - 99_000_000) <= 99_000_000 / 64);
+    assertEquals(100_000_000, histogram.valueAtPercentile(100));
+
+    javax.management.ObjectName name = metrics.register("sjq:type=TextGraphMetrics,name=test");
+    javax.management.MBeanServer server =
+        java.lang.management.ManagementFactory.getPlatformMBeanServer();
+    assertEquals(metrics.getVertexCount(), server.getAttribute(name, "VertexCount"));
+    server.unregisterMBean(name);
+  }
+
+  @org.junit.jupiter.api.Test
+  void graphViewSelectsAndExportsSubgraphs() throws IOException {
+    CsrGraph graph = analyzer.freeze().graph();
+    GraphView top = GraphView.parse(graph, "degree 5");
+    assertEquals(5, top.vertexCount());
+    int minimum = Integer.MAX_VALUE;
+    for (int v : top.vertices()) {
+      minimum = Math.min(minimum, graph.outDegree(v) + graph.inDegree(v));
+    }
+    for (int v = 0; v < graph.vertexCount(); v++) {
+      if (Arrays.binarySearch(top.vertices(), v) < 0) {
+        assertTrue(graph.outDegree(v) + graph.inDegree(v) <= minimum);
+      }
+    }
+
+    // after 的一跳邻域：其后继 morning 及前驱，边只保留两端都在邻域中的
+    GraphView hop = GraphView.parse(graph, "hop after 1");
+    StringWriter dot = new StringWriter();
+    hop.writeDot(dot);
+    assertTrue(dot.toString().contains("\"after\" -> \"morning\" [label=1, weight=1];"),
+        dot.toString());
+    assertEquals(hop.edgeCount(), dot.toString().split("->", -1).length - 1);
+    assertEquals(null, GraphView.parse(graph, "hop nothing 2"));
+
+    StringWriter graphMl = new StringWriter();
+    GraphView.all(graph).writeGraphMl(graphMl);
+    assertEquals(graph.edgeCount(), graphMl.toString().split("<edge ", -1).length - 1);
+  }
+
+  @org.junit.jupiter.api.Test
+  void pagedExportMatchesFullExport() throws IOException {
+    CsrGraph graph = analyzer.freeze().graph();
+    StringBuilder expected = new StringBuilder();
+    for (int v = 0; v < graph.vertexCount(); v++) {
+      List<String> edges = new ArrayList<>();
+      for (int e = graph.begin(v); e < graph.end(v); e++) {
+        edges.add(graph.word(graph.target(e)) + "(" + graph.weight(e) + ")");
+      }
+      expected.append(graph.word(v)).append(" -> {").append(String.join(", ", edges))
+          .append("}").append(System.lineSeparator());
+    }
+    StringWriter full = new StringWriter();
+    assertEquals(-1, analyzer.graphExporter(GraphExporter.Format.TEXT,
+        GraphExporter.Order.INSERTION).write(full, 0, 0));
+    assertEquals(expected.toString(), full.toString());
+
+    for (GraphExporter.Format format : GraphExporter.Format.values()) {
+      StringWriter whole = new StringWriter();
+      analyzer.graphExporter(format, GraphExporter.Order.ALPHABETICAL).write(whole, 0, 0);
+      // 同一个导出器写出各页
+      GraphExporter exporter = analyzer.graphExporter(format, GraphExporter.Order.ALPHABETICAL);
+      StringWriter paged = new StringWriter();
+      int cursor = 0;
+      while (cursor >= 0) {
+        cursor = exporter.write(paged, cursor, 7);
+      }
+      assertEquals(whole.toString(), paged.toString());
+    }
+
+    StringWriter tsv = new StringWriter();
+    analyzer.graphExporter(GraphExporter.Format.TSV, GraphExporter.Order.ALPHABETICAL)
+        .write(tsv, 0, 0);
+    String[] rows = tsv.toString().split("\n");
+    assertEquals(graph.edgeCount() + 1, rows.length);
+    for (int i = 2; i < rows.length; i++) {
+      assertTrue(rows[i - 1].split("\t")[0].compareTo(rows[i].split("\t")[0]) <= 0);
+    }
+    StringWriter jsonl = new StringWriter();
+    analyzer.graphExporter(GraphExporter.Format.JSONL, GraphExporter.Order.INSERTION)
+        .write(jsonl, 0, 1);
+    assertTrue(jsonl.toString().startsWith("{\"word\":\"" + graph.word(0) + "\",\"edges\":{\""),
+        jsonl.toString());
+  }
+
+  @org.junit.jupiter.api.Test
+  void pageRankMatchesSequentialIteration() throws InterruptedException {
+    CsrGraph graph = analyzer.freeze().graph();
+    int n = graph.vertexCount();
+    double[] parallel = WordRanking.pageRank(graph, 0.85, 1e-12, 200,
+        java.util.concurrent.ForkJoinPool.commonPool());
+
+    // 直接按定义逐轮推送，作为对照
+    double[] rank = new double[n];
+    Arrays.fill(rank, 1.0 / n);
+    for (int iteration = 0; iteration < 200; iteration++) {
+      double[] next = new double[n];
+      double dangling = 0;
+      for (int u = 0; u < n; u++) {
+        long out = 0;
+        for (int e = graph.begin(u); e < graph.end(u); e++) {
+          out += graph.weight(e);
+        }
+        if (out == 0) {
+          dangling += rank[u];
+        }
+        for (int e = graph.begin(u); e < graph.end(u); e++) {
+          next[graph.target(e)] += 0.85 * rank[u] * graph.weight(e) / out;
+        }
+      }
+      for (int v = 0; v < n; v++) {
+        next[v] += 0.15 / n + 0.85 * dangling / n;
+      }
+      rank = next;
+    }
+    double total = 0;
+    for (int v = 0; v < n; v++) {
+      assertEquals(rank[v], parallel[v], 1e-9);
+      total += parallel[v];
+    }
+    assertEquals(1.0, total, 1e-9);
+
+    WordRanking.Result top = analyzer.rankWords(WordRanking.Measure.PAGERANK, 5);
+    assertEquals(5, top.size());
+    for (int i = 1; i < top.size(); i++) {
+      assertTrue(top.score(i - 1) >= top.score(i));
+    }
+    WordRanking.Result inWeight = analyzer.rankWords(WordRanking.Measure.parse("in-weight"), n);
+    assertEquals(graph.totalWeight(), (long) Arrays.stream(WordRanking.scores(graph,
+        WordRanking.Measure.IN_WEIGHT)).sum());
+    for (int i = 1; i < inWeight.size(); i++) {
+      assertTrue(inWeight.score(i - 1) > inWeight.score(i) || (inWeight.score(i - 1)
+          == inWeight.score(i) && graph.idOf(inWeight.word(i - 1)) < graph.idOf(inWeight.word(i))));
+    }
+  }
+
+  @org.junit.jupiter.api.Test
+  void ngramModelGeneralizesTheWordGraph() throws IOException {
+    CsrGraph graph = analyzer.freeze().graph();
+    NgramModel bigram =
+        new TextGraphAnalyzer(path, IngestMode.SEQUENTIAL, GraphStorage.HEAP, 2).ngramModel();
+    assertEquals(graph.vertexCount(), bigram.contextCount() + (graph.outDegree(graph.lastWord())
+        == 0 ? 1 : 0));
+    assertEquals(graph.edgeCount(), bigram.transitionCount());
+    for (int u = 0; u < graph.vertexCount(); u++) {
+      for (int v = 0; v < graph.vertexCount(); v++) {
+        assertEquals(analyzer.queryBridgeWords(graph.word(u), graph.word(v)),
+            bigram.queryBridgeWords(graph.word(u), graph.word(v)));
+      }
+    }
+    assertNull(analyzer.queryNgramBridgeWords("new", "and"));
+    assertNull(analyzer.ngramRandomWalk(3));
+
+    // 各种读入方式得到相同的模型，分块并行时块与块之间的上下文同样拼接
+    TextGraphAnalyzer trigram =
+        new TextGraphAnalyzer(path, IngestMode.SEQUENTIAL, GraphStorage.HEAP, 3);
+    GraphBuilder chunked = new ParallelGraphBuilder(ForkJoinPool.commonPool(), 16)
+        .build(Paths.get(path), 3);
+    assertSameModel(trigram.ngramModel(), chunked.buildNgram(chunked.build().dictionary()));
+    assertSameModel(trigram.ngramModel(),
+        new TextGraphAnalyzer(path, IngestMode.MAPPED, GraphStorage.OFF_HEAP, 3).ngramModel());
+
+    String text = "a b c a d c a b e b c d";
+    for (int order = 3; order <= 4; order++) {
+      NgramModel model = NgramModel.fromText(text, order);
+      assertEquals("b, d", model.queryBridgeWords("a", "c"));
+      assertEquals(" ", model.queryBridgeWords("c", "a"));
+      assertEquals("", model.queryBridgeWords("a", "z"));
+      // 游走中每 order 个相邻单词都在原文中出现过
+      String walk = model.randomWalk(0, new SplittableRandom(order));
+      String[] words = walk.split(" ");
+      assertTrue(words.length >= order - 1, walk);
+      for (int i = 0; i + order <= words.length; i++) {
+        String gram = String.join(" ", Arrays.copyOfRange(words, i, i + order));
+        assertTrue(text.contains(gram), gram);
+      }
+    }
+    NgramModel model = NgramModel.fromText(text, 3);
+    assertEquals(1, model.count(new String[] {"a", "b"}, "c"));
+    assertEquals(1, model.count(new String[] {"a", "b"}, "e"));
+    assertEquals(0, model.count(new String[] {"a", "z"}, "c"));
+
+    // 追加的文本并入模型，与整段文本一次构建的结果相同
+    GraphBuilder builder = new GraphBuilder(3);
+    builder.accept("a b c a");
+    CsrGraph head = builder.build();
+    FrozenTextGraph frozen =
+        new FrozenTextGraph(head, builder.buildNgram(head.dictionary()), GraphMetrics.disabled());
+    GraphBuilder update = new GraphBuilder(frozen.graph(), frozen.ngramModel());
+    update.accept("d c a b e b c d");
+    frozen = frozen.append(update);
+    assertSameModel(model, frozen.ngramModel());
+    assertEquals("The bridge words from a to c are: b, d",
+        frozen.describeNgramBridgeWords("a", "c"));
+    StringBuilder out = new BatchQueryRunner(frozen, null, 1)
+        .execute("nbridge c a", new StringBuilder());
+    assertEquals("No bridge words from c to a!" + System.lineSeparator(), out.toString());
+    out = new BatchQueryRunner(analyzer.freeze(), null, 1)
+        .execute("nwalk 3", new StringBuilder());
+    assertEquals(FrozenTextGraph.NGRAM_DISABLED + System.lineSeparator(), out.toString());
+  }
+
+  @org.junit.jupiter.api.Test
+  void offHeapStorageMatchesHeap() {
+    TextGraphAnalyzer offHeap =
+        new TextGraphAnalyzer(path, IngestMode.SEQUENTIAL, GraphStorage.OFF_HEAP);
+    CsrGraph graph = offHeap.freeze().graph();
+    assertEquals(GraphStorage.OFF_HEAP, graph.storage());
+    assertSameGraph(analyzer.freeze().graph(), graph);
+    assertEquals(analyzer.getGraph().toString(), offHeap.getGraph().toString());
+    List<String> words = new ArrayList<>(analyzer.getGraph().keySet());
+    words.add("hate");
+    for (String word1 : words) {
+      assertEquals(analyzer.freeze().graph().idOf(word1), graph.idOf(word1));
+      for (String word2 : words) {
+        assertEquals(analyzer.queryBridgeWords(word1, word2),
+            offHeap.queryBridgeWords(word1, word2));
+        assertEquals(analyzer.calcShortestPath(word1, word2),
+            offHeap.calcShortestPath(word1, word2));
+      }
+    }
+
+    // 追加文本后仍在堆外，且与堆上的结果一致
+    TextGraphAnalyzer onHeap = new TextGraphAnalyzer(path);
+    onHeap.appendText("the new morning after\nlife ends");
+    offHeap.appendText("the new morning after\nlife ends");
+    assertEquals(GraphStorage.OFF_HEAP, offHeap.freeze().graph().storage());
+    assertEquals(onHeap.getGraph(), offHeap.getGraph());
+    assertEquals(onHeap.calcShortestPath("the", "ends"), offHeap.calcShortestPath("the", "ends"));
+    CsrGraph copied = offHeap.freeze().graph().withStorage(GraphStorage.HEAP);
+    assertEquals(GraphStorage.HEAP, copied.storage());
+    assertSameGraph(onHeap.freeze().graph(), copied);
+    assertEquals(onHeap.getGraph(), new TextGraphAnalyzer(copied).getGraph());
+  }
+
+  @org.junit.jupiter.api.Test
+  void batchQueriesAnswerInInputOrder() throws Exception {
+    FrozenTextGraph frozen = analyzer.freeze();
+    List<String> words = new ArrayList<>(analyzer.getGraph().keySet());
+    StringBuilder queries = new StringBuilder("# comment\n\n");
+    StringBuilder expected = new StringBuilder();
+    String newLine = System.lineSeparator();
+    for (int i = 0; i < 3 * BatchQueryRunner.CHUNK_SIZE; i++) {
+      String word1 = words.get(i % words.size());
+      String word2 = words.get(i * 7 % words.size());
+      if (i % 2 == 0) {
+        queries.append("bridge ").append(word1).append(' ').append(word2).append('\n');
+        expected.append(frozen.describeBridgeWords(word1, word2)).append(newLine);
+      } else {
+        queries.append("path  ").append(word1).append('\t').append(word2).append('\n');
+        expected.append(frozen.calcShortestPath(word1, word2)).append(newLine);
+      }
+    }
+    queries.append("path hate the\nfly me\npaths after\nwalk 3\n");
+    expected.append("Either word1 or word2 is not in the graph!").append(newLine)
+        .append("Unknown query: fly me").append(newLine);
+    StringBuilder paths = new StringBuilder();
+    frozen.shortestPathsFrom("after").writeTo(paths);
+    expected.append(paths);
+
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    try {
+      StringWriter out = new StringWriter();
+      long count = new BatchQueryRunner(frozen, pool, 4)
+          .run(new BufferedReader(new StringReader(queries.toString())), out);
+      assertEquals(3 * BatchQueryRunner.CHUNK_SIZE + 4, count);
+      String output = out.toString();
+      assertTrue(output.startsWith(expected.toString()));
+      String walk = output.substring(expected.length(), output.length() - newLine.length());
+      assertTrue(walk.split(" ").length <= 4, walk);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @org.junit.jupiter.api.Test
+  void httpServerAnswersQueries() throws Exception {
+    GraphHttpServer server = GraphHttpServer.start(analyzer.freeze(),
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    try {
+      HttpClient client = HttpClient.newHttpClient();
+      String base = "http://localhost:" + server.port();
+      HttpResponse<String> bridge = client.send(
+          HttpRequest.newBuilder(URI.create(base + "/bridge?from=new&to=and")).build(),
+          HttpResponse.BodyHandlers.ofString());
+      assertEquals(200, bridge.statusCode());
+      assertEquals("The bridge words from new to and are: life, civilizations\n", bridge.body());
+      HttpResponse<String> path = client.send(
+          HttpRequest.newBuilder(URI.create(base + "/path?from=after&to=the")).build(),
+          HttpResponse.BodyHandlers.ofString());
+      assertEquals("after→morning→light→the\n", path.body());
+      assertEquals(404, client.send(
+          HttpRequest.newBuilder(URI.create(base + "/paths?from=hate")).build(),
+          HttpResponse.BodyHandlers.ofString()).statusCode());
+      assertEquals(400, client.send(
+          HttpRequest.newBuilder(URI.create(base + "/bridge?from=new")).build(),
+          HttpResponse.BodyHandlers.ofString()).statusCode());
+      // 不合法的 % 转义得到 400 而不是断开连接；URI 不接受这样的转义，直接写出请求行
+      assertThrows(IllegalArgumentException.class, () -> GraphHttpServer.parse("from=%zz"));
+      try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.port())) {
+        socket.getOutputStream().write(("GET /bridge?from=%zz&to=and HTTP/1.1\r\n"
+            + "Host: localhost\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        String status = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+            StandardCharsets.UTF_8)).readLine();
+        assertEquals("HTTP/1.1 400 Bad Request", status);
+      }
+      byte[] oversized = new byte[(1 << 20) + 1];
+      Arrays.fill(oversized, (byte) 'a');
+      assertEquals(413, client.send(HttpRequest.newBuilder(URI.create(base + "/generate"))
+          .POST(HttpRequest.BodyPublishers.ofByteArray(oversized)).build(),
+          HttpResponse.BodyHandlers.ofString()).statusCode());
+      assertEquals(405, client.send(HttpRequest.newBuilder(URI.create(base + "/walk"))
+          .POST(HttpRequest.BodyPublishers.ofString("")).build(),
+          HttpResponse.BodyHandlers.ofString()).statusCode());
+      HttpResponse<String> generated = client.send(
+          HttpRequest.newBuilder(URI.create(base + "/generate"))
+              .POST(HttpRequest.BodyPublishers.ofString("explore new worlds")).build(),
+          HttpResponse.BodyHandlers.ofString());
+      assertEquals(analyzer.generateNewText("explore new worlds") + "\n", generated.body());
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  @org.junit.jupiter.api.Test
+  void boundedAndKShortestPaths() {
+    FrozenTextGraph frozen = analyzer.freeze();
+    CsrGraph graph = frozen.graph();
+    int source = graph.idOf("after");
+    int target = graph.idOf("the");
+    assertEquals("after→morning→light→the", analyzer.calcShortestPath("after", "the",
+        PathBounds.NONE));
+    BoundedPathSearch.Result shortest = frozen.boundedPaths("after", "the", 1, PathBounds.NONE);
+    int distance = shortest.distance(0);
+    assertEquals(BoundedPathSearch.Status.FOUND,
+        frozen.boundedPaths("after", "the", 1, PathBounds.parse("weight=" + distance)).status());
+    assertEquals("No path within bound from after to the (weight=" + (distance - 1) + ")",
+        analyzer.calcShortestPath("after", "the", PathBounds.parse("weight=" + (distance - 1))));
+    assertEquals(BoundedPathSearch.Status.BUDGET_EXHAUSTED,
+        frozen.boundedPaths("after", "the", 3, PathBounds.parse("nodes=1")).status());
+    assertEquals(null, analyzer.calcKShortestPaths("hate", "the", 2, PathBounds.NONE));
+
+    // 与穷举全部简单路径的结果比较：条数和各条总权重一致，路径无环且互不相同
+    List<int[]> all = new ArrayList<>();
+    simplePaths(graph, target, new int[] {source}, all);
+    for (String spec : new String[] {"", "hops=3", "hops=4 weight=6", "weight=5"}) {
+      PathBounds bounds = PathBounds.parse(spec);
+      List<Integer> expected = new ArrayList<>();
+      for (int[] path : all) {
+        int weight = 0;
+        for (int i = 0; i + 1 < path.length; i++) {
+          weight += graph.weight(graph.edgeIndex(path[i], path[i + 1]));
+        }
+        if (weight <= bounds.maxWeight() && path.length - 1 <= bounds.maxHops()) {
+          expected.add(weight);
+        }
+      }
+      expected.sort(null);
+      BoundedPathSearch.Result result = frozen.boundedPaths("after", "the", 8, bounds);
+      int count = Math.min(8, expected.size());
+      assertEquals(count, result.size(), spec);
+      List<String> seen = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+        int[] path = result.path(i);
+        assertEquals(expected.get(i), result.distance(i), spec);
+        assertTrue(path.length - 1 <= bounds.maxHops(), spec);
+        assertEquals(path.length, Arrays.stream(path).distinct().count(), spec);
+        assertTrue(!seen.contains(Arrays.toString(path)), spec);
+        seen.add(Arrays.toString(path));
+      }
+    }
+
+    StringBuilder out = new StringBuilder();
+    try {
+      BatchQueryRunner runner = new BatchQueryRunner(frozen, null, 1);
+      runner.execute("kpaths after the 2 hops=9", out);
+      runner.execute("path after the hops=-1", out);
+    } catch (IOException e) {
+      throw new AssertionError(e);
+    }
+    String newLine = System.lineSeparator();
+    assertEquals(frozen.describeBoundedPaths("after", "the", 2, PathBounds.parse("hops=9"))
+        + newLine + "Unknown query: path after the hops=-1" + newLine, out.toString());
+  }
+
+  private static void simplePaths(CsrGraph graph, int target, int[] prefix, List<int[]> out) {
+    int v = prefix[prefix.length - 1];
+    if (v == target) {
+      out.add(prefix);
+      return;
+    }
+    for (int e = graph.begin(v); e < graph.end(v); e++) {
+      int w = graph.target(e);
+      if (Arrays.stream(prefix).noneMatch(u -> u == w)) {
+        int[] next = Arrays.copyOf(prefix, prefix.length + 1);
+        next[prefix.length] = w;
+        simplePaths(graph, target, next, out);
+      }
+    }
+  }
+
+  // 两张图的单词表、正反两份 CSR 和末词逐项相同
+  private static void assertSameGraph(CsrGraph expected, CsrGraph actual) {
+    assertEquals(expected.vertexCount(), actual.vertexCount());
+    assertEquals(expected.edgeCount(), actual.edgeCount());
+    assertEquals(expected.lastWord(), actual.lastWord());
+    for (int v = 0; v < expected.vertexCount(); v++) {
+      assertEquals(expected.word(v), actual.word(v));
+      assertEquals(expected.begin(v), actual.begin(v));
+      assertEquals(expected.inBegin(v), actual.inBegin(v));
+    }
+    for (int e = 0; e < expected.edgeCount(); e++) {
+      assertEquals(expected.target(e), actual.target(e));
+      assertEquals(expected.weight(e), actual.weight(e));
+      assertEquals(expected.source(e), actual.source(e));
+      assertEquals(expected.inWeight(e), actual.inWeight(e));
+    }
+  }
+
+  // 两个模型的上下文编号、转移及其次数都相同
+  private static void assertSameModel(NgramModel expected, NgramModel actual) {
+    assertEquals(expected.contextCount(), actual.contextCount());
+    assertEquals(expected.transitionCount(), actual.transitionCount());
+    assertArrayEquals(expected.tail(), actual.tail());
+    for (int seed = 0; seed < 8; seed++) {
+      assertEquals(expected.randomWalk(0, new SplittableRandom(seed)),
+          actual.randomWalk(0, new SplittableRandom(seed)));
+    }
+    int width = expected.order() - 1;
+    String[] context = new String[width];
+    Vocabulary dictionary = expected.dictionary();
+    for (int c = 0; c < expected.contextCount(); c++) {
+      for (int i = 0; i < width; i++) {
+        context[i] = expected.contextWord(c, i);
+      }
+      for (int w = 0; w < dictionary.size(); w++) {
+        assertEquals(expected.count(context, dictionary.word(w)),
+            actual.count(context, dictionary.word(w)));
+      }
+    }
+  }
+}
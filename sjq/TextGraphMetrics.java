@@ -0,0 +1,191 @@
+package sjq;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * 在内存中记录度量的实现：每种操作一个耗时直方图，计数器用 LongAdder，图的规模在读取时现算。
+ * 可注册为 JMX MBean（默认名称 {@value #DEFAULT_OBJECT_NAME}），也可定期把文本报告交给指定的输出。
+ */
+final class TextGraphMetrics implements GraphMetrics, TextGraphMetricsMBean {
+  static final String DEFAULT_OBJECT_NAME = "sjq:type=TextGraphMetrics";
+  private static final double[] REPORTED_PERCENTILES = {50, 90, 99, 99.9};
+
+  private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+  private final LongAdder[] counters = new LongAdder[Counter.values().length];
+  private volatile CsrGraph graph; // 最近一次构图得到的图
+  private volatile long lastBuildNanos;
+  private volatile long lastBuildTokens;
+  private ScheduledExecutorService reporter; // 定期报告的线程，未启动时为 null
+
+  TextGraphMetrics() {
+    for (int i = 0; i < latencies.length; i++) {
+      latencies[i] = new LatencyHistogram();
+    }
+    for (int i = 0; i < counters.length; i++) {
+      counters[i] = new LongAdder();
+    }
+  }
+
+  @Override
+  public boolean enabled() {
+    return true;
+  }
+
+  @Override
+  public void recordLatency(Operation operation, long elapsedNanos) {
+    latencies[operation.ordinal()].record(elapsedNanos);
+  }
+
+  @Override
+  public void increment(Counter counter, long delta) {
+    counters[counter.ordinal()].add(delta);
+  }
+
+  @Override
+  public void recordGraph(Operation operation, long elapsedNanos, long tokens, CsrGraph graph) {
+    recordLatency(operation, elapsedNanos);
+    this.lastBuildNanos = elapsedNanos;
+    this.lastBuildTokens = tokens;
+    this.graph = graph;
+  }
+
+  /** operation 的耗时分布（纳秒）。 */
+  LatencyHistogram latency(Operation operation) {
+    return latencies[operation.ordinal()];
+  }
+
+  long count(Counter counter) {
+    return counters[counter.ordinal()].sum();
+  }
+
+  /** 注册为平台 MBeanServer 上的 MBean。 */
+  ObjectName register(String objectName) throws JMException {
+    ObjectName name = new ObjectName(objectName);
+    ManagementFactory.getPlatformMBeanServer()
+        .registerMBean(new StandardMBean(this, TextGraphMetricsMBean.class), name);
+    return name;
+  }
+
+  /** 每隔 period 把 {@link #report()} 交给 sink，在后台守护线程上执行；已启动时先停止原来的。 */
+  synchronized void startReporting(long period, TimeUnit unit, Consumer<String> sink) {
+    stopReporting();
+    reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "sjq-metrics-reporter");
+      thread.setDaemon(true);
+      return thread;
+    });
+    reporter.scheduleAtFixedRate(() -> sink.accept(report()), period, period, unit);
+  }
+
+  synchronized void stopReporting() {
+    if (reporter != null) {
+      reporter.shutdownNow();
+      reporter = null;
+    }
+  }
+
+  @Override
+  public int getVertexCount() {
+    CsrGraph current = graph;
+    return current == null ? 0 : current.vertexCount();
+  }
+
+  @Override
+  public int getEdgeCount() {
+    CsrGraph current = graph;
+    return current == null ? 0 : current.edgeCount();
+  }
+
+  @Override
+  public long getEstimatedMemoryBytes() {
+    CsrGraph current = graph;
+    return current == null ? 0 : current.estimatedBytes();
+  }
+
+  @Override
+  public double getLastBuildMillis() {
+    return lastBuildNanos / 1e6;
+  }
+
+  @Override
+  public double getLastBuildTokensPerSecond() {
+    long nanos = lastBuildNanos;
+    return nanos == 0 ? 0 : lastBuildTokens * 1e9 / nanos;
+  }
+
+  @Override
+  public long getSettledVertices() {
+    return count(Counter.SETTLED_VERTICES);
+  }
+
+  @Override
+  public long getPrecomputedPathHits() {
+    return count(Counter.PRECOMPUTED_PATH_HITS);
+  }
+
+  @Override
+  public long getWalkSteps() {
+    return count(Counter.WALK_STEPS);
+  }
+
+  @Override
+  public String[] getOperations() {
+    Operation[] operations = Operation.values();
+    String[] names = new String[operations.length];
+    for (int i = 0; i < operations.length; i++) {
+      names[i] = operations[i].name();
+    }
+    return names;
+  }
+
+  @Override
+  public long operationCount(String operation) {
+    return latency(Operation.valueOf(operation)).count();
+  }
+
+  @Override
+  public double latencyMicros(String operation, double percentile) {
+    return latency(Operation.valueOf(operation)).valueAtPercentile(percentile) / 1e3;
+  }
+
+  @Override
+  public String report() {
+    StringBuilder out = new StringBuilder();
+    out.append(String.format(Locale.ROOT, "graph: %d vertices, %d edges, ~%.1f MB%n",
+        getVertexCount(), getEdgeCount(), getEstimatedMemoryBytes() / 1048576.0));
+    out.append(String.format(Locale.ROOT, "last build: %.1f ms, %.0f tokens/s%n",
+        getLastBuildMillis(), getLastBuildTokensPerSecond()));
+    for (Operation operation : Operation.values()) {
+      LatencyHistogram histogram = latency(operation);
+      if (histogram.count() == 0) {
+        continue;
+      }
+      out.append(String.format(Locale.ROOT, "%s: count %d, mean %.1fus", operation,
+          histogram.count(), histogram.mean() / 1e3));
+      for (double percentile : REPORTED_PERCENTILES) {
+        out.append(String.format(Locale.ROOT, ", p%s %.1fus",
+            percentile == (int) percentile ? String.valueOf((int) percentile) : percentile,
+            histogram.valueAtPercentile(percentile) / 1e3));
+      }
+      out.append(String.format(Locale.ROOT, ", max %.1fus%n", histogram.max() / 1e3));
+    }
+    for (Counter counter : Counter.values()) {
+      out.append(counter).append(": ").append(count(counter)).append(System.lineSeparator());
+    }
+    return out.toString();
+  }
+
+  @Override
+  public String toString() {
+    return report();
+  }
+}
@@ -0,0 +1,36 @@
+package sjq;
+
+/**
+ * {@link TextGraphMetrics} 的 JMX 管理接口。JMX 要求标准 MBean 接口为 public，
+ * 操作名取 {@link GraphMetrics.Operation} 的名称，如 SHORTEST_PATH。
+ */
+public interface TextGraphMetricsMBean {
+  int getVertexCount();
+
+  int getEdgeCount();
+
+  /** 当前图（CSR 数组与字典）的估算内存占用。 */
+  long getEstimatedMemoryBytes();
+
+  /** 最近一次构图或追加文本的耗时。 */
+  double getLastBuildMillis();
+
+  /** 最近一次构图或追加文本每秒处理的单词数。 */
+  double getLastBuildTokensPerSecond();
+
+  long getSettledVertices();
+
+  long getPrecomputedPathHits();
+
+  long getWalkSteps();
+
+  String[] getOperations();
+
+  long operationCount(String operation);
+
+  /** 操作耗时的第 percentile 百分位（微秒）。 */
+  double latencyMicros(String operation, double percentile);
+
+  /** 全部度量的文本报告。 */
+  String report();
+}
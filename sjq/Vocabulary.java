@@ -0,0 +1,25 @@
+package sjq;
+
+/**
+ * 只读的单词表：单词与从 0 开始的连续 ID 之间的双向映射。
+ * 构图时使用可增长的 {@link WordDictionary}，冻结后的图也可以改用堆外的 {@link DirectVocabulary}。
+ */
+interface Vocabulary {
+  /** 单词数量。 */
+  int size();
+
+  /** 根据 ID 取单词。 */
+  String word(int id);
+
+  /** 查询单词的 ID，不存在时返回 -1。 */
+  int idOf(String word);
+
+  /** 查询以字符数组片段给出的单词的 ID，不存在时返回 -1；不产生任何对象。 */
+  int idOf(char[] chars, int offset, int length);
+
+  /** 复制为可继续增长的堆上字典，ID 保持不变；用于在冻结的图上追加文本。 */
+  WordDictionary copy();
+
+  /** 估算占用的内存（字节）。 */
+  long estimatedBytes();
+}
@@ -0,0 +1,197 @@
+package sjq;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * 批量随机游走语料生成：从每个单词出发各游走 k 次，每行一条游走，单词以空格分隔。
+ * 游走按固定大小分块并行生成，每块使用由种子依次 split 出的独立随机数流，
+ * 各块按顺序写出，因此相同的种子总是得到完全相同的文件，与线程数无关。
+ * 输出可以是一个文件，也可以按块轮流写入多个分片文件。
+ */
+final class WalkCorpusGenerator {
+  private static final int BLOCK_SIZE = 1024; // 每块的游走数
+
+  private final CsrGraph graph;
+  private final RandomWalker walker;
+  private final byte[][] wordBytes; // 单词的 UTF-8 编码，写出时不再创建 String
+  private final ConcurrentLinkedQueue<RandomWalker.Walk> walks = new ConcurrentLinkedQueue<>();
+
+  WalkCorpusGenerator(CsrGraph graph, RandomWalker walker) {
+    this.graph = graph;
+    this.walker = walker;
+    this.wordBytes = new byte[graph.vertexCount()][];
+    for (int v = 0; v < wordBytes.length; v++) {
+      wordBytes[v] = graph.word(v).getBytes(StandardCharsets.UTF_8);
+    }
+  }
+
+  /**
+   * 生成语料。
+   *
+   * @param output 输出文件；shards 大于 1 时为 name-0.ext、name-1.ext……
+   * @param walksPerVertex 每个单词出发的游走次数
+   * @param maxSteps 每次游走的最大步数，不大于 0 表示走到重复的边或没有出边为止
+   * @param seed 随机种子
+   * @param shards 分片文件数
+   * @param executor 生成游走的线程池
+   */
+  Result generate(Path output, int walksPerVertex, int maxSteps, long seed, int shards,
+      ExecutorService executor) throws IOException, InterruptedException {
+    long startTime = System.nanoTime();
+    long totalWalks = (long) graph.vertexCount() * Math.max(0, walksPerVertex);
+    long blockCount = (totalWalks + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    int window = 4 * Runtime.getRuntime().availableProcessors(); // 同时在途的块数，限制内存
+    SplittableRandom root = new SplittableRandom(seed);
+    Path[] files = shardPaths(output, Math.max(1, shards));
+    FileChannel[] channels = new FileChannel[files.length];
+    long tokens = 0;
+    try {
+      for (int i = 0; i < files.length; i++) {
+        channels[i] = FileChannel.open(files[i], StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+      }
+      Deque<Future<Block>> inFlight = new ArrayDeque<>();
+      long written = 0;
+      for (long b = 0; b < blockCount; b++) {
+        if (inFlight.size() >= window) {
+          tokens += write(inFlight.poll(), channels[(int) (written++ % channels.length)]);
+        }
+        long first = b * BLOCK_SIZE;
+        long last = Math.min(totalWalks, first + BLOCK_SIZE);
+        SplittableRandom random = root.split(); // 按块顺序 split，保证可复现
+        inFlight.add(executor.submit(() -> render(first, last, walksPerVertex, maxSteps, random)));
+      }
+      while (!inFlight.isEmpty()) {
+        tokens += write(inFlight.poll(), channels[(int) (written++ % channels.length)]);
+      }
+    } finally {
+      for (FileChannel channel : channels) {
+        if (channel != null) {
+          channel.close();
+        }
+      }
+    }
+    return new Result(files, totalWalks, tokens, System.nanoTime() - startTime);
+  }
+
+  // 分片文件名：name.ext → name-i.ext
+  private static Path[] shardPaths(Path output, int shards) {
+    if (shards == 1) {
+      return new Path[] {output};
+    }
+    String name = output.getFileName().toString();
+    int dot = name.lastIndexOf('.');
+    String base = dot > 0 ? name.substring(0, dot) : name;
+    String extension = dot > 0 ? name.substring(dot) : "";
+    Path[] paths = new Path[shards];
+    for (int i = 0; i < shards; i++) {
+      paths[i] = output.resolveSibling(base + "-" + i + extension);
+    }
+    return paths;
+  }
+
+  private static long write(Future<Block> future, FileChannel channel)
+      throws IOException, InterruptedException {
+    Block block;
+    try {
+      block = future.get();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(block.bytes, 0, block.length);
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    return block.tokens;
+  }
+
+  // 生成下标为 [first, last) 的游走，第 j 次游走从第 j / walksPerVertex 个单词出发
+  private Block render(long first, long last, int walksPerVertex, int maxSteps,
+      SplittableRandom random) {
+    RandomWalker.Walk walk = walks.poll();
+    if (walk == null) {
+      walk = walker.newWalk();
+    }
+    Block block = new Block();
+    for (long j = first; j < last; j++) {
+      walk.reset((int) (j / walksPerVertex));
+      walk.run(random, maxSteps);
+      for (int i = 0; i < walk.length(); i++) {
+        block.append(wordBytes[walk.vertex(i)], i == walk.length() - 1 ? '\n' : ' ');
+      }
+      block.tokens += walk.length();
+    }
+    walks.add(walk); // 归还，供后续块复用位图
+    return block;
+  }
+
+  // 一块游走的输出字节
+  private static final class Block {
+    private byte[] bytes = new byte[64 * 1024];
+    private int length;
+    private long tokens;
+
+    void append(byte[] word, char separator) {
+      if (length + word.length + 1 > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + word.length + 1));
+      }
+      System.arraycopy(word, 0, bytes, length, word.length);
+      length += word.length;
+      bytes[length++] = (byte) separator;
+    }
+  }
+
+  /** 一次批量生成的结果。 */
+  static final class Result {
+    private final Path[] files;
+    private final long walks;
+    private final long tokens;
+    private final long elapsedNanos;
+
+    Result(Path[] files, long walks, long tokens, long elapsedNanos) {
+      this.files = files;
+      this.walks = walks;
+      this.tokens = tokens;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    Path[] files() {
+      return files.clone();
+    }
+
+    long walks() {
+      return walks;
+    }
+
+    long tokens() {
+      return tokens;
+    }
+
+    long elapsedNanos() {
+      return elapsedNanos;
+    }
+
+    double walksPerSecond() {
+      return elapsedNanos == 0 ? 0 : walks * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d walks, %d tokens in %.3f s (%.0f walks/s) -> %s",
+          walks, tokens, elapsedNanos / 1e9, walksPerSecond(), Arrays.toString(files));
+    }
+  }
+}
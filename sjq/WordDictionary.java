@@ -0,0 +1,190 @@
+package sjq;
+
+import java.util.Arrays;
+
+/**
+ * 单词字典：把单词映射为从 0 开始的连续整数 ID。
+ * 使用开放寻址的 int[] 哈希表，避免每个单词一个 HashMap.Entry。
+ */
+final class WordDictionary implements Vocabulary {
+  private static final int EMPTY = -1;
+
+  private String[] words;
+  private int[] hashes; // 缓存每个单词的哈希值，扩容时无需重新计算
+  private int[] table; // 槽位中保存单词 ID，EMPTY 表示空槽
+  private int size;
+
+  WordDictionary() {
+    this(16);
+  }
+
+  WordDictionary(int expectedSize) {
+    int capacity = Math.max(16, expectedSize);
+    words = new String[capacity];
+    hashes = new int[capacity];
+    table = new int[tableSizeFor(capacity)];
+    Arrays.fill(table, EMPTY);
+  }
+
+  /** 复制一份字典，之后两者各自增长，互不影响。 */
+  @Override
+  public WordDictionary copy() {
+    WordDictionary copy = new WordDictionary(0);
+    copy.words = words.clone();
+    copy.hashes = hashes.clone();
+    copy.table = table.clone();
+    copy.size = size;
+    return copy;
+  }
+
+  /** 单词数量。 */
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /** 估算字典占用的堆内存（字节），含各数组和单词字符串（按 Latin-1 紧凑存储计）。 */
+  @Override
+  public long estimatedBytes() {
+    long bytes = align(16 + 4L * words.length) + align(16 + 4L * hashes.length)
+        + align(16 + 4L * table.length);
+    for (int id = 0; id < size; id++) {
+      bytes += 24 + align(16 + words[id].length()); // String 对象及其 byte[]
+    }
+    return bytes;
+  }
+
+  static long align(long bytes) {
+    return (bytes + 7) & ~7L;
+  }
+
+  /** 根据 ID 取单词。 */
+  @Override
+  public String word(int id) {
+    return words[id];
+  }
+
+  /** 查询单词的 ID，不存在时返回 -1。 */
+  @Override
+  public int idOf(String word) {
+    if (word == null) {
+      return -1;
+    }
+    return table[findSlot(word, mix(word.hashCode()))];
+  }
+
+  boolean contains(String word) {
+    return idOf(word) >= 0;
+  }
+
+  /** 返回单词的 ID，不存在时分配新 ID。 */
+  int intern(String word) {
+    int h = mix(word.hashCode());
+    int slot = findSlot(word, h);
+    int id = table[slot];
+    return id != EMPTY ? id : add(word, h, slot);
+  }
+
+  /**
+   * 与 {@link #intern(String)} 相同，但单词以字符数组片段给出。
+   * 只有新单词才会创建 String，已有单词的查找不产生任何对象。
+   */
+  int intern(char[] chars, int offset, int length) {
+    int h = mix(hashOf(chars, offset, length));
+    int slot = findSlot(chars, offset, length, h);
+    int id = table[slot];
+    return id != EMPTY ? id : add(new String(chars, offset, length), h, slot);
+  }
+
+  /** 查询以字符数组片段给出的单词的 ID，不存在时返回 -1；不产生任何对象。 */
+  @Override
+  public int idOf(char[] chars, int offset, int length) {
+    int h = mix(hashOf(chars, offset, length));
+    return table[findSlot(chars, offset, length, h)];
+  }
+
+  static int hashOf(char[] chars, int offset, int length) {
+    int hash = 0; // 与 String.hashCode() 的算法一致
+    for (int i = offset; i < offset + length; i++) {
+      hash = 31 * hash + chars[i];
+    }
+    return hash;
+  }
+
+  private int findSlot(char[] chars, int offset, int length, int h) {
+    int mask = table.length - 1;
+    int slot = h & mask;
+    while (table[slot] != EMPTY) {
+      int id = table[slot];
+      if (hashes[id] == h && matches(words[id], chars, offset, length)) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private static boolean matches(String word, char[] chars, int offset, int length) {
+    if (word.length() != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (word.charAt(i) != chars[offset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int findSlot(String word, int h) {
+    int mask = table.length - 1;
+    int slot = h & mask;
+    while (table[slot] != EMPTY) {
+      int id = table[slot];
+      if (hashes[id] == h && words[id].equals(word)) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private int add(String word, int h, int slot) {
+    if (size == words.length) {
+      words = Arrays.copyOf(words, size * 2);
+      hashes = Arrays.copyOf(hashes, size * 2);
+    }
+    int id = size++;
+    words[id] = word;
+    hashes[id] = h;
+    table[slot] = id;
+    if (size * 2 > table.length) {
+      rehash(table.length * 2);
+    }
+    return id;
+  }
+
+  private void rehash(int newLength) {
+    int[] newTable = new int[newLength];
+    Arrays.fill(newTable, EMPTY);
+    int mask = newLength - 1;
+    for (int id = 0; id < size; id++) {
+      int slot = hashes[id] & mask;
+      while (newTable[slot] != EMPTY) {
+        slot = (slot + 1) & mask;
+      }
+      newTable[slot] = id;
+    }
+    table = newTable;
+  }
+
+  static int mix(int h) {
+    h *= 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  private static int tableSizeFor(int capacity) {
+    int n = Integer.highestOneBit(Math.max(2, capacity * 2 - 1));
+    return Math.max(32, n * 2);
+  }
+}
@@ -0,0 +1,280 @@
+package sjq;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * 单词重要性排名：加权 PageRank 与按出入度、出入边权重的排名。
+ * PageRank 在反向 CSR 上按“拉取”方式做幂迭代，顶点区间按入边数均分给 ForkJoinPool 的各个任务，
+ * 每轮只读写 double 数组，不为边分配对象；前 K 名用大小为 K 的最小堆选出。
+ */
+final class WordRanking {
+  static final double DEFAULT_DAMPING = 0.85;
+  static final double DEFAULT_TOLERANCE = 1e-9; // 相邻两轮排名之差的 L1 范数
+  static final int DEFAULT_MAX_ITERATIONS = 100;
+
+  /** 排名依据。 */
+  enum Measure {
+    PAGERANK,
+    IN_DEGREE,
+    OUT_DEGREE,
+    IN_WEIGHT, // 入边权重之和，即单词作为后一个词出现的次数
+    OUT_WEIGHT; // 出边权重之和
+
+    /** 解析名称，大小写不敏感，可用 - 代替 _。 */
+    static Measure parse(String name) {
+      return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+  }
+
+  private WordRanking() {
+  }
+
+  /**
+   * 加权 PageRank：从 u 出发按边权重比例走到后继，以 1 - damping 的概率随机跳到任意单词；
+   * 没有出边的单词把排名均分给所有单词。相邻两轮之差的 L1 范数小于 tolerance
+   * 或达到 maxIterations 轮时停止。各单词的排名之和为 1。
+   */
+  static double[] pageRank(CsrGraph graph, double damping, double tolerance, int maxIterations,
+      ForkJoinPool pool) throws InterruptedException {
+    int n = graph.vertexCount();
+    if (n == 0) {
+      return new double[0];
+    }
+    long[] outWeight = new long[n];
+    for (int v = 0; v < n; v++) {
+      for (int e = graph.begin(v); e < graph.end(v); e++) {
+        outWeight[v] += graph.weight(e);
+      }
+    }
+    int[] bounds = splitByInEdges(graph, pool.getParallelism() * 4);
+    double[] rank = new double[n];
+    Arrays.fill(rank, 1.0 / n);
+    double[] next = new double[n];
+    double[] share = new double[n]; // rank[u] / outWeight[u]，每条出边按权重取用
+    for (int iteration = 0; iteration < maxIterations; iteration++) {
+      double[] current = rank;
+      double dangling = sumOverChunks(pool, bounds, (from, to) -> {
+        double sum = 0;
+        for (int u = from; u < to; u++) {
+          if (outWeight[u] == 0) {
+            share[u] = 0;
+            sum += current[u];
+          } else {
+            share[u] = current[u] / outWeight[u];
+          }
+        }
+        return sum;
+      });
+      double base = (1 - damping) / n + damping * dangling / n;
+      double[] updated = next;
+      double delta = sumOverChunks(pool, bounds, (from, to) -> {
+        double sum = 0;
+        for (int v = from; v < to; v++) {
+          double incoming = 0;
+          for (int i = graph.inBegin(v); i < graph.inEnd(v); i++) {
+            incoming += graph.inWeight(i) * share[graph.source(i)];
+          }
+          updated[v] = base + damping * incoming;
+          sum += Math.abs(updated[v] - current[v]);
+        }
+        return sum;
+      });
+      next = rank;
+      rank = updated;
+      if (delta < tolerance) {
+        break;
+      }
+    }
+    return rank;
+  }
+
+  // 按入边数加顶点数均分顶点区间，返回 chunks + 1 个边界
+  private static int[] splitByInEdges(CsrGraph graph, int chunks) {
+    int n = graph.vertexCount();
+    long total = (long) graph.edgeCount() + n;
+    int[] bounds = new int[chunks + 1];
+    int v = 0;
+    long work = 0;
+    for (int c = 1; c < chunks; c++) {
+      long target = total * c / chunks;
+      while (v < n && work < target) {
+        work += graph.inDegree(v) + 1;
+        v++;
+      }
+      bounds[c] = v;
+    }
+    bounds[chunks] = n;
+    return bounds;
+  }
+
+  /** 作用于顶点区间 [from, to) 的任务，返回该区间上的部分和。 */
+  private interface ChunkTask {
+    double run(int from, int to);
+  }
+
+  private static double sumOverChunks(ForkJoinPool pool, int[] bounds, ChunkTask task)
+      throws InterruptedException {
+    List<Callable<Double>> tasks = new ArrayList<>(bounds.length - 1);
+    for (int c = 0; c + 1 < bounds.length; c++) {
+      int from = bounds[c];
+      int to = bounds[c + 1];
+      if (from < to) {
+        tasks.add(() -> task.run(from, to));
+      }
+    }
+    double sum = 0;
+    try {
+      for (Future<Double> future : pool.invokeAll(tasks)) {
+        sum += future.get();
+      }
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+    return sum;
+  }
+
+  /** 按 measure 计算每个单词的分数；PAGERANK 须另行调用 {@link #pageRank}。 */
+  static double[] scores(CsrGraph graph, Measure measure) {
+    double[] scores = new double[graph.vertexCount()];
+    for (int v = 0; v < scores.length; v++) {
+      switch (measure) {
+        case IN_DEGREE:
+          scores[v] = graph.inDegree(v);
+          break;
+        case OUT_DEGREE:
+          scores[v] = graph.outDegree(v);
+          break;
+        case IN_WEIGHT:
+          for (int i = graph.inBegin(v); i < graph.inEnd(v); i++) {
+            scores[v] += graph.inWeight(i);
+          }
+          break;
+        case OUT_WEIGHT:
+          for (int e = graph.begin(v); e < graph.end(v); e++) {
+            scores[v] += graph.weight(e);
+          }
+          break;
+        default:
+          throw new IllegalArgumentException("Not a local measure: " + measure);
+      }
+    }
+    return scores;
+  }
+
+  /**
+   * 分数最高的至多 k 个顶点，按分数降序排列，分数相同时 ID 小的（先出现的）在前。
+   * 用大小为 k 的最小堆扫描一遍，代价 O(n log k)。
+   */
+  static int[] topK(double[] scores, int k) {
+    int size = 0;
+    int[] heap = new int[Math.max(0, Math.min(k, scores.length))];
+    for (int v = 0; v < scores.length && heap.length > 0; v++) {
+      if (size < heap.length) {
+        heap[size] = v;
+        siftUp(heap, size++, scores);
+      } else if (ranksBefore(v, heap[0], scores)) {
+        heap[0] = v;
+        siftDown(heap, size, scores);
+      }
+    }
+    // 依次取出堆顶（最差者）放到末尾，得到降序
+    for (int end = size - 1; end > 0; end--) {
+      int worst = heap[0];
+      heap[0] = heap[end];
+      heap[end] = worst;
+      siftDown(heap, end, scores);
+    }
+    return heap;
+  }
+
+  // a 是否排在 b 之前
+  private static boolean ranksBefore(int a, int b, double[] scores) {
+    return scores[a] > scores[b] || (scores[a] == scores[b] && a < b);
+  }
+
+  private static void siftUp(int[] heap, int index, double[] scores) {
+    int v = heap[index];
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      if (!ranksBefore(heap[parent], v, scores)) {
+        break;
+      }
+      heap[index] = heap[parent];
+      index = parent;
+    }
+    heap[index] = v;
+  }
+
+  private static void siftDown(int[] heap, int size, double[] scores) {
+    int v = heap[0];
+    int index = 0;
+    while (true) {
+      int child = 2 * index + 1;
+      if (child >= size) {
+        break;
+      }
+      if (child + 1 < size && ranksBefore(heap[child], heap[child + 1], scores)) {
+        child++;
+      }
+      if (!ranksBefore(v, heap[child], scores)) {
+        break;
+      }
+      heap[index] = heap[child];
+      index = child;
+    }
+    heap[index] = v;
+  }
+
+  /** 一次排名的结果：按名次排列的单词及其分数。 */
+  static final class Result {
+    private final Measure measure;
+    private final String[] words;
+    private final double[] scores;
+
+    Result(Measure measure, String[] words, double[] scores) {
+      this.measure = measure;
+      this.words = words;
+      this.scores = scores;
+    }
+
+    Measure measure() {
+      return measure;
+    }
+
+    int size() {
+      return words.length;
+    }
+
+    /** 第 i 名（从 0 开始）的单词。 */
+    String word(int i) {
+      return words[i];
+    }
+
+    double score(int i) {
+      return scores[i];
+    }
+
+    /** 每行一名：名次、单词、分数。 */
+    @Override
+    public String toString() {
+      StringBuilder out = new StringBuilder();
+      for (int i = 0; i < words.length; i++) {
+        out.append(i + 1).append(". ").append(words[i]).append(' ');
+        if (measure == Measure.PAGERANK) {
+          out.append(String.format(Locale.ROOT, "%.6f", scores[i]));
+        } else {
+          out.append((long) scores[i]);
+        }
+        out.append(System.lineSeparator());
+      }
+      return out.toString();
+    }
+  }
+}
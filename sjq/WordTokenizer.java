@@ -0,0 +1,77 @@
+package sjq;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * 流式分词器：一次扫描字符或字节缓冲区，把 ASCII 字母组成的单词转为小写后
+ * 直接换成字典 ID 交给下游，已出现过的单词不会创建任何中间 String。
+ * 非字母（包括换行和所有非 ASCII 字符）都是分隔符；单词可以跨越多次 feed 调用，
+ * 因此缓冲区的切分位置不影响结果。
+ */
+final class WordTokenizer {
+  private final WordDictionary dictionary;
+  private final IntConsumer sink;
+  private char[] word = new char[32]; // 当前正在拼接的单词
+  private int length;
+
+  WordTokenizer(WordDictionary dictionary, IntConsumer sink) {
+    this.dictionary = dictionary;
+    this.sink = sink;
+  }
+
+  /** 扫描一段字符。 */
+  void feed(char[] chars, int offset, int count) {
+    for (int i = offset; i < offset + count; i++) {
+      accept(chars[i]);
+    }
+  }
+
+  /** 扫描一段文本。 */
+  void feed(CharSequence text) {
+    for (int i = 0; i < text.length(); i++) {
+      accept(text.charAt(i));
+    }
+  }
+
+  /** 扫描一段字节；按 ASCII 解释，UTF-8 的多字节字符全部视为分隔符。 */
+  void feed(byte[] bytes, int offset, int count) {
+    for (int i = offset; i < offset + count; i++) {
+      accept((char) (bytes[i] & 0xFF));
+    }
+  }
+
+  /** 扫描缓冲区中 position 到 limit 之间的字节，不改变缓冲区的位置。 */
+  void feed(ByteBuffer bytes) {
+    for (int i = bytes.position(); i < bytes.limit(); i++) {
+      accept((char) (bytes.get(i) & 0xFF));
+    }
+  }
+
+  /** 输入结束，输出最后一个未完成的单词。 */
+  void finish() {
+    if (length > 0) {
+      sink.accept(dictionary.intern(word, 0, length));
+      length = 0;
+    }
+  }
+
+  private void accept(char c) {
+    char lower = (char) (c | 0x20); // ASCII 大写转小写
+    if (isAsciiLetter(c)) {
+      if (length == word.length) {
+        word = Arrays.copyOf(word, length * 2);
+      }
+      word[length++] = lower;
+    } else if (length > 0) {
+      sink.accept(dictionary.intern(word, 0, length));
+      length = 0;
+    }
+  }
+
+  /** c 是否为 a-z 或 A-Z。 */
+  static boolean isAsciiLetter(int c) {
+    return (char) ((c | 0x20) - 'a') < 26;
+  }
+}